@@ -0,0 +1,141 @@
+/* ConcurrentWUGraphTest.java */
+
+/**
+ * The ConcurrentWUGraphTest class tests the ConcurrentWUGraph class by
+ * adding and removing edges and vertices from several threads at once, on
+ * vertices they all share, and checking that every edge is still listed
+ * by both its endpoints and that the counts agree.
+ */
+
+import graph.*;
+import java.util.Random;
+
+public class ConcurrentWUGraphTest {
+
+  private static final int VERTICES = 16;
+  private static final int THREADS = 4;
+  private static final int UPDATES = 50000;
+
+  //First exception thrown by a worker thread.
+  private static volatile Throwable thrown;
+
+  private static void runAll(Thread[] threads) throws InterruptedException {
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+        public void uncaughtException(Thread thread, Throwable e) {
+          thrown = e;
+        }
+      });
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].join();
+    }
+  }
+
+  /**
+   * randomTest() applies random updates to a few shared vertices from
+   * several threads, so edge updates and vertex removals keep colliding.
+   */
+
+  private static void randomTest() throws InterruptedException {
+    System.out.println("Running random concurrent update test.");
+    final ConcurrentWUGraph g = new ConcurrentWUGraph(4);
+    for (int i = 0; i < VERTICES; i++) {
+      g.addVertex(i);
+    }
+
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final Random random = new Random(t);
+      threads[t] = new Thread() {
+        public void run() {
+          for (int k = 0; k < UPDATES; k++) {
+            Integer u = random.nextInt(VERTICES);
+            Integer v = random.nextInt(VERTICES);
+            int op = random.nextInt(20);
+            if (op < 10) {
+              g.addEdge(u, v, k);
+            } else if (op < 17) {
+              g.removeEdge(v, u);
+            } else if (op < 18) {
+              g.removeVertex(u);
+            } else {
+              g.addVertex(u);
+            }
+          }
+        }
+      };
+    }
+    runAll(threads);
+    TestSupport.check(thrown == null, "a thread threw " + thrown);
+    TestSupport.consistent(g, "after random updates");
+  }
+
+  /**
+   * hubTest() has every thread add edges from the same hub vertices to its
+   * own leaves, then remove half of them, so the final graph is known.
+   */
+
+  private static void hubTest() throws InterruptedException {
+    System.out.println("Running shared hub test.");
+    final ConcurrentWUGraph g = new ConcurrentWUGraph(4);
+    final int hubs = 4;
+    final int leaves = 500;
+    for (int h = 0; h < hubs; h++) {
+      g.addVertex(h);
+    }
+
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int first = hubs + t * leaves;
+      threads[t] = new Thread() {
+        public void run() {
+          for (int i = first; i < first + leaves; i++) {
+            g.addVertex(i);
+            for (int h = 0; h < hubs; h++) {
+              g.addEdge(h, i, i);
+            }
+          }
+          for (int i = first; i < first + leaves; i += 2) {
+            for (int h = 0; h < hubs; h++) {
+              g.removeEdge(i, h);
+            }
+          }
+          for (int i = first + 1; i < first + leaves; i += 4) {
+            g.removeVertex(i);
+          }
+        }
+      };
+    }
+    runAll(threads);
+    TestSupport.check(thrown == null, "a thread threw " + thrown);
+    TestSupport.consistent(g, "after hub updates");
+
+    // Even leaves lost their hub edges; of the odd ones, every other one was
+    // removed, and the rest kept their edges.
+    int removed = THREADS * leaves / 4;
+    int kept = THREADS * leaves / 4;
+    TestSupport.check(g.vertexCount() == hubs + THREADS * leaves - removed,
+                      "vertexCount() is " + g.vertexCount());
+    TestSupport.check(g.edgeCount() == hubs * kept, "edgeCount() is " + g.edgeCount());
+    boolean right = true;
+    for (int h = 0; h < hubs; h++) {
+      right = right && g.degree(h) == kept;
+    }
+    for (int t = 0; t < THREADS; t++) {
+      int first = hubs + t * leaves;
+      for (int i = first + 3; i < first + leaves; i += 4) {
+        right = right && g.weight(0, i) == i && g.degree(i) == hubs;
+      }
+    }
+    TestSupport.check(right, "the hubs do not have the expected edges");
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    randomTest();
+    hubTest();
+
+    TestSupport.printScore("ConcurrentWUGraph");
+  }
+}
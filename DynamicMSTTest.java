@@ -0,0 +1,89 @@
+/* DynamicMSTTest.java */
+
+/**
+ * The DynamicMSTTest class tests the DynamicMST class against
+ * Kruskal.minSpanEdges(), recomputed from scratch after every batch of
+ * random changes, including batches larger than the graph's change log.
+ */
+
+import graph.*;
+import graphalg.*;
+import java.util.Random;
+
+public class DynamicMSTTest {
+
+  private static final int VERTICES = 40;
+
+  /**
+   * matches() checks that the forest "dynamic" keeps is a minimum spanning
+   * forest of g:  a spanning forest with as many edges, of the same total
+   * weight, as Kruskal finds.
+   */
+
+  private static void matches(WUGraph g, DynamicMST dynamic, String what) {
+    MSTResult expected = Kruskal.minSpanEdges(g);
+    MSTResult actual = dynamic.edges();
+    TestSupport.check(dynamic.weight() == expected.totalWeight,
+                      what + ":  weight " + dynamic.weight() + ", expected " +
+                      expected.totalWeight);
+    TestSupport.check(actual.totalWeight == expected.totalWeight,
+                      what + ":  edges() has the wrong weight");
+    TestSupport.check(dynamic.edgeCount() == expected.edgeCount &&
+                      actual.edgeCount == expected.edgeCount,
+                      what + ":  " + actual.edgeCount + " edges, expected " +
+                      expected.edgeCount);
+    TestSupport.checkForest(g, actual, what);
+  }
+
+  /**
+   * batchTest() follows a graph through batches of a few changes, each
+   * well within the change log.
+   */
+
+  private static void batchTest() {
+    System.out.println("Running batch test.");
+    Random random = new Random(1);
+    WUGraph g = new WUGraph();
+    TestSupport.randomChanges(g, random, 200, VERTICES, 12);
+    DynamicMST dynamic = new DynamicMST(g);
+    matches(g, dynamic, "initial forest");
+    for (int batch = 1; batch <= 60; batch++) {
+      int count = 1 + random.nextInt(batch % 10 == 0 ? 60 : 6);
+      TestSupport.randomChanges(g, random, count, VERTICES, 12);
+      matches(g, dynamic, "batch " + batch);
+    }
+    dynamic.close();
+    TestSupport.check(g.getChangeLog() == null, "close() left the change log installed");
+  }
+
+  /**
+   * overrunTest() gives the graph a change log of eight entries, so that
+   * larger batches overrun it and force a rebuild, and checks that the
+   * forest keeps up both across and after the rebuilds.
+   */
+
+  private static void overrunTest() {
+    System.out.println("Running change log overrun test.");
+    Random random = new Random(2);
+    WUGraph g = new WUGraph();
+    TestSupport.randomChanges(g, random, 200, VERTICES, 12);
+    GraphChangeLog log = new GraphChangeLog(8);
+    g.setChangeLog(log);
+    DynamicMST dynamic = new DynamicMST(g);
+    for (int batch = 1; batch <= 40; batch++) {
+      int count = batch % 3 == 0 ? 50 : 1 + random.nextInt(8);
+      TestSupport.randomChanges(g, random, count, VERTICES, 12);
+      matches(g, dynamic, "batch " + batch + " of " + count + " changes");
+    }
+    dynamic.close();
+    TestSupport.check(g.getChangeLog() == log,
+                      "close() removed a change log it did not install");
+  }
+
+  public static void main(String[] args) {
+    batchTest();
+    overrunTest();
+
+    TestSupport.printScore("DynamicMST");
+  }
+}
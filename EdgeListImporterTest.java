@@ -0,0 +1,175 @@
+/* EdgeListImporterTest.java */
+
+/**
+ * The EdgeListImporterTest class tests the EdgeListImporter class:  the
+ * headers, comments and blank lines of each format, Matrix Market real
+ * values, lines split across chunks, and lines that must be rejected.
+ */
+
+import graph.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+public class EdgeListImporterTest {
+
+  /**
+   * write() writes "text" to a temporary file and returns it.
+   */
+
+  private static File write(String text) throws IOException {
+    File file = File.createTempFile("EdgeListImporterTest", ".txt");
+    file.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(file);
+    out.write(text.getBytes("US-ASCII"));
+    out.close();
+    return file;
+  }
+
+  /**
+   * load() imports "text" in "format" into a new WUGraph, "chunkBytes" at a
+   * time, and returns it.
+   */
+
+  private static WUGraph load(EdgeListImporter.Format format, String text, int chunkBytes)
+      throws IOException {
+    WUGraph g = new WUGraph();
+    EdgeListImporter importer =
+      new EdgeListImporter(format, ForkJoinPool.commonPool(), chunkBytes);
+    importer.importInto(write(text), g);
+    return g;
+  }
+
+  private static WUGraph load(EdgeListImporter.Format format, String text)
+      throws IOException {
+    return load(format, text, 1 << 16);
+  }
+
+  private static boolean hasEdge(WUGraph g, int u, int v, int weight) {
+    return g.isEdge(u, v) && g.weight(u, v) == weight;
+  }
+
+  /**
+   * rejects() checks that importing "text" throws an IOException.
+   */
+
+  private static void rejects(EdgeListImporter.Format format, String text, String what) {
+    boolean threw = false;
+    try {
+      load(format, text);
+    } catch (IOException e) {
+      threw = true;
+    }
+    TestSupport.check(threw, what + " was accepted");
+  }
+
+  private static void csvTest() throws IOException {
+    System.out.println("Running CSV test.");
+    WUGraph g = load(EdgeListImporter.Format.CSV,
+                     "source,target,weight\r\n" +
+                     "1,2,5\r\n" +
+                     "\r\n" +
+                     "# a comment\n" +
+                     "   \n" +
+                     "2\t3\t-7\n" +
+                     "3 4\n" +
+                     "4,4,+9");
+    TestSupport.check(g.edgeCount() == 4, "CSV:  " + g.edgeCount() + " edges, expected 4");
+    TestSupport.check(hasEdge(g, 1, 2, 5) && hasEdge(g, 2, 3, -7) && hasEdge(g, 3, 4, 1) &&
+                      hasEdge(g, 4, 4, 9), "CSV:  wrong edges " + TestSupport.describe(g));
+
+    g = load(EdgeListImporter.Format.CSV, "1,2,3\n");
+    TestSupport.check(hasEdge(g, 1, 2, 3), "CSV without a header lost its first line");
+  }
+
+  private static void dimacsTest() throws IOException {
+    System.out.println("Running DIMACS test.");
+    WUGraph g = load(EdgeListImporter.Format.DIMACS,
+                     "c a comment\n" +
+                     "p sp 3 3\n" +
+                     "\n" +
+                     "a 1 2 10\n" +
+                     "e 2 3\n" +
+                     "a 3 1 -4\n");
+    TestSupport.check(g.edgeCount() == 3, "DIMACS:  " + g.edgeCount() + " edges, expected 3");
+    TestSupport.check(hasEdge(g, 1, 2, 10) && hasEdge(g, 2, 3, 1) && hasEdge(g, 1, 3, -4),
+                      "DIMACS:  wrong edges " + TestSupport.describe(g));
+  }
+
+  private static void matrixMarketTest() throws IOException {
+    System.out.println("Running Matrix Market test.");
+    WUGraph g = load(EdgeListImporter.Format.MATRIX_MARKET,
+                     "%%MatrixMarket matrix coordinate real symmetric\n" +
+                     "% a comment\n" +
+                     "6 6 7\n" +
+                     "1 2 1.5e+02\n" +
+                     "\n" +
+                     "2 3 2.5e-01\n" +
+                     "3 4 -2.5\n" +
+                     "4 5 1E1\n" +
+                     "5 6 12.49\n" +
+                     "6 6 7\n" +
+                     "1 6 2147483647.4\n");
+    TestSupport.check(g.edgeCount() == 7, "Matrix Market:  " + g.edgeCount() +
+                      " edges, expected 7");
+    TestSupport.check(hasEdge(g, 1, 2, 150), "1.5e+02 imported as " + g.weight(1, 2));
+    TestSupport.check(hasEdge(g, 2, 3, 0), "2.5e-01 imported as " + g.weight(2, 3));
+    TestSupport.check(hasEdge(g, 3, 4, -3), "-2.5 imported as " + g.weight(3, 4));
+    TestSupport.check(hasEdge(g, 4, 5, 10), "1E1 imported as " + g.weight(4, 5));
+    TestSupport.check(hasEdge(g, 5, 6, 12), "12.49 imported as " + g.weight(5, 6));
+    TestSupport.check(hasEdge(g, 6, 6, 7), "integer value imported as " + g.weight(6, 6));
+    TestSupport.check(hasEdge(g, 1, 6, Integer.MAX_VALUE),
+                      "2147483647.4 imported as " + g.weight(1, 6));
+  }
+
+  /**
+   * chunkTest() imports the same file in chunks of 64 bytes and in one
+   * chunk, so that lines are carried over from chunk to chunk.
+   */
+
+  private static void chunkTest() throws IOException {
+    System.out.println("Running chunk boundary test.");
+    StringBuilder text = new StringBuilder("u,v,w\n");
+    for (int i = 0; i < 500; i++) {
+      text.append(i).append(',').append((i * 7) % 101).append(',').append(i - 250).append('\n');
+    }
+    String expected = TestSupport.describe(load(EdgeListImporter.Format.CSV, text.toString()));
+    String chunked = TestSupport.describe(load(EdgeListImporter.Format.CSV, text.toString(), 64));
+    TestSupport.check(chunked.equals(expected), "64-byte chunks imported a different graph");
+  }
+
+  private static void rejectTest() {
+    System.out.println("Running malformed line test.");
+    EdgeListImporter.Format mm = EdgeListImporter.Format.MATRIX_MARKET;
+    String header = "%%MatrixMarket matrix coordinate real general\n3 3 1\n";
+    rejects(mm, header + "1 3 7 garbage\n", "a fourth field");
+    rejects(mm, header + "1 3 7garbage\n", "a weight followed by letters");
+    rejects(mm, header + "1 3 1.5e\n", "an exponent without digits");
+    rejects(mm, header + "1 3 1e10\n", "a weight of 1e10");
+    rejects(mm, header + "1 3 99999999999\n", "a weight of 99999999999");
+    rejects(mm, header + "1 3 2147483648\n", "a weight of 2147483648");
+    rejects(mm, header + "2147483648 3 1\n", "an id of 2147483648");
+    rejects(mm, header + "1.5 3 1\n", "a fractional id");
+    rejects(EdgeListImporter.Format.CSV, "1,2,3,4\n", "a CSV line with four fields");
+    rejects(EdgeListImporter.Format.DIMACS, "a 1\n", "a DIMACS line with one field");
+
+    boolean threw = false;
+    try {
+      load(mm, header + "1 3 -2147483648\n");
+    } catch (IOException e) {
+      threw = true;
+    }
+    TestSupport.check(!threw, "a weight of -2147483648 was rejected");
+  }
+
+  public static void main(String[] args) throws IOException {
+    csvTest();
+    dimacsTest();
+    matrixMarketTest();
+    chunkTest();
+    rejectTest();
+
+    TestSupport.printScore("EdgeListImporter");
+  }
+}
@@ -0,0 +1,237 @@
+/* GraphJournalTest.java */
+
+/**
+ * The GraphJournalTest class tests crash recovery with the GraphJournal
+ * class:  torn and corrupted journal frames, a crash at each step of a
+ * checkpoint, and a change the codec cannot encode.
+ */
+
+import graph.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+public class GraphJournalTest {
+
+  private static File emptyDir(String name) throws IOException {
+    File dir = new File(System.getProperty("java.io.tmpdir"), "GraphJournalTest-" + name);
+    if (dir.isDirectory()) {
+      File[] files = dir.listFiles();
+      for (int i = 0; i < files.length; i++) {
+        Files.delete(files[i].toPath());
+      }
+    }
+    dir.mkdirs();
+    return dir;
+  }
+
+  private static void copy(File from, File to) throws IOException {
+    Files.copy(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static File journalFile(File dir) {
+    File[] files = dir.listFiles();
+    for (int i = 0; i < files.length; i++) {
+      if (files[i].getName().startsWith("journal-")) {
+        return files[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * recovers() reopens "dir" and checks that it holds "expected".
+   */
+
+  private static void recovers(File dir, String expected, String what) throws IOException {
+    GraphJournal journal = GraphJournal.open(dir, VertexCodec.INTEGER);
+    TestSupport.check(TestSupport.describe(journal.graph()).equals(expected),
+                      what + " recovered the wrong graph");
+    journal.close();
+  }
+
+  /**
+   * tornFrameTest() cuts the journal in the middle of its last frame, and
+   * checks that recovery keeps the earlier frame and that later commits
+   * land where recovery cut the file.
+   */
+
+  private static void tornFrameTest() throws IOException {
+    System.out.println("Running torn frame test.");
+    File dir = emptyDir("torn");
+    Random random = new Random(1);
+    GraphJournal journal = GraphJournal.open(dir, VertexCodec.INTEGER);
+    TestSupport.randomChanges(journal.graph(), random, 50, 30, 100);
+    journal.commit();
+    String first = TestSupport.describe(journal.graph());
+    long firstLength = journalFile(dir).length();
+    TestSupport.randomChanges(journal.graph(), random, 50, 30, 100);
+    journal.commit();
+    long secondLength = journalFile(dir).length();
+    TestSupport.check(secondLength > firstLength, "second commit wrote nothing");
+
+    // Simulate a crash partway through writing the second frame.
+    RandomAccessFile file = new RandomAccessFile(journalFile(dir), "rw");
+    file.setLength(firstLength + (secondLength - firstLength) / 2);
+    file.close();
+
+    journal = GraphJournal.open(dir, VertexCodec.INTEGER);
+    TestSupport.check(TestSupport.describe(journal.graph()).equals(first),
+                      "torn frame: first commit not recovered");
+    TestSupport.check(journalFile(dir).length() == firstLength,
+                      "torn frame was not cut off");
+    TestSupport.randomChanges(journal.graph(), random, 50, 30, 100);
+    journal.commit();
+    String third = TestSupport.describe(journal.graph());
+    journal.close();
+    recovers(dir, third, "commit after torn frame");
+  }
+
+  /**
+   * corruptFrameTest() flips a byte in the last frame, so its CRC fails.
+   */
+
+  private static void corruptFrameTest() throws IOException {
+    System.out.println("Running corrupted frame test.");
+    File dir = emptyDir("crc");
+    Random random = new Random(2);
+    GraphJournal journal = GraphJournal.open(dir, VertexCodec.INTEGER);
+    TestSupport.randomChanges(journal.graph(), random, 50, 30, 100);
+    journal.commit();
+    String first = TestSupport.describe(journal.graph());
+    long firstLength = journalFile(dir).length();
+    TestSupport.randomChanges(journal.graph(), random, 50, 30, 100);
+    journal.commit();
+    long secondLength = journalFile(dir).length();
+
+    RandomAccessFile file = new RandomAccessFile(journalFile(dir), "rw");
+    long position = firstLength + 8 + (secondLength - firstLength - 8) / 2;
+    file.seek(position);
+    int b = file.read();
+    file.seek(position);
+    file.write(b ^ 0x5a);
+    file.close();
+
+    recovers(dir, first, "corrupted frame");
+    TestSupport.check(journalFile(dir).length() == firstLength,
+                      "corrupted frame was not cut off");
+  }
+
+  /**
+   * checkpointCrashTest() rebuilds the directory as a crash would leave it
+   * after each step of checkpoint(), and checks that each one recovers the
+   * committed graph.
+   */
+
+  private static void checkpointCrashTest() throws IOException {
+    System.out.println("Running checkpoint crash test.");
+    File dir = emptyDir("checkpoint");
+    Random random = new Random(3);
+    GraphJournal journal = GraphJournal.open(dir, VertexCodec.INTEGER);
+    TestSupport.randomChanges(journal.graph(), random, 80, 30, 100);
+    journal.commit();
+    journal.checkpoint();
+    TestSupport.randomChanges(journal.graph(), random, 80, 30, 100);
+    journal.commit();
+    String expected = TestSupport.describe(journal.graph());
+
+    File before = emptyDir("checkpoint-before");
+    copy(new File(dir, "checkpoint"), new File(before, "checkpoint"));
+    File oldJournal = journalFile(dir);
+    copy(oldJournal, new File(before, oldJournal.getName()));
+
+    journal.checkpoint();
+    File after = emptyDir("checkpoint-after");
+    copy(new File(dir, "checkpoint"), new File(after, "checkpoint"));
+    File newJournal = journalFile(dir);
+    copy(newJournal, new File(after, newJournal.getName()));
+    journal.close();
+    TestSupport.check(!oldJournal.getName().equals(newJournal.getName()),
+                      "checkpoint kept the journal");
+
+    // Crash after the new checkpoint was written under its temporary name.
+    File state = emptyDir("checkpoint-state");
+    copy(new File(before, "checkpoint"), new File(state, "checkpoint"));
+    copy(new File(before, oldJournal.getName()), new File(state, oldJournal.getName()));
+    copy(new File(after, "checkpoint"), new File(state, "checkpoint.tmp"));
+    recovers(state, expected, "crash before the new journal");
+    TestSupport.check(!new File(state, "checkpoint.tmp").exists(),
+                      "temporary checkpoint was left behind");
+
+    // Crash after the new journal was created, before the rename.
+    state = emptyDir("checkpoint-state");
+    copy(new File(before, "checkpoint"), new File(state, "checkpoint"));
+    copy(new File(before, oldJournal.getName()), new File(state, oldJournal.getName()));
+    copy(new File(after, "checkpoint"), new File(state, "checkpoint.tmp"));
+    copy(new File(after, newJournal.getName()), new File(state, newJournal.getName()));
+    recovers(state, expected, "crash before the rename");
+
+    // Crash after the rename, before the old journal was deleted.
+    state = emptyDir("checkpoint-state");
+    copy(new File(after, "checkpoint"), new File(state, "checkpoint"));
+    copy(new File(before, oldJournal.getName()), new File(state, oldJournal.getName()));
+    copy(new File(after, newJournal.getName()), new File(state, newJournal.getName()));
+    recovers(state, expected, "crash before the old journal was deleted");
+    TestSupport.check(!new File(state, oldJournal.getName()).exists(),
+                      "old journal was left behind");
+
+    // Checkpoint complete.
+    recovers(after, expected, "completed checkpoint");
+  }
+
+  /**
+   * encodeFailureTest() adds a vertex the codec cannot encode, and checks
+   * that the changes before it survive, that commit() keeps failing while
+   * the vertex is in the graph, and that it recovers once it is removed.
+   */
+
+  private static void encodeFailureTest() throws IOException {
+    System.out.println("Running encode failure test.");
+    File dir = emptyDir("encode");
+    GraphJournal journal = GraphJournal.open(dir, VertexCodec.INTEGER);
+    WUGraph g = journal.graph();
+    g.addVertex(1);
+    g.addVertex(2);
+    g.addEdge(1, 2, 7);
+    String good = TestSupport.describe(g);
+    g.addVertex("bad");
+    g.addVertex(3);
+
+    boolean threw = false;
+    try {
+      journal.commit();
+    } catch (IOException e) {
+      threw = true;
+    }
+    TestSupport.check(threw, "commit() of an unencodable vertex did not throw");
+
+    threw = false;
+    try {
+      journal.commit();
+    } catch (RuntimeException e) {
+      threw = true;
+    } catch (IOException e) {
+      threw = true;
+    }
+    TestSupport.check(threw, "commit() succeeded while the unencodable vertex remains");
+    recovers(dir, good, "changes before the unencodable vertex");
+
+    g.removeVertex("bad");
+    journal.commit();
+    String fixed = TestSupport.describe(g);
+    journal.close();
+    recovers(dir, fixed, "commit after the unencodable vertex was removed");
+  }
+
+  public static void main(String[] args) throws IOException {
+    tornFrameTest();
+    corruptFrameTest();
+    checkpointCrashTest();
+    encodeFailureTest();
+
+    TestSupport.printScore("GraphJournal");
+  }
+}
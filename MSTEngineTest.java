@@ -0,0 +1,357 @@
+/* MSTEngineTest.java */
+
+/**
+ * The MSTEngineTest class tests every MSTEngine against
+ * Kruskal.minSpanEdges() on random graphs:  each engine must find a
+ * spanning forest with as many edges, of the same total weight, and the
+ * engines that break ties by edge index must find the very same edges.
+ * The graphs have equal, negative and mixed weights, self-edges, several
+ * components, and enough edges to run the engines' parallel paths.
+ */
+
+import graph.*;
+import graphalg.*;
+import set.DisjointSets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class MSTEngineTest {
+
+  /**
+   * randomGraph() returns a graph on the vertices 0 ... vertices - 1 with
+   * about "edges" random edges, one in twenty of them a self-edge, of
+   * weights between minWeight and maxWeight inclusive.
+   */
+
+  private static WUGraph randomGraph(Random random, int vertices, int edges,
+                                     int minWeight, int maxWeight) {
+    WUGraph g = new WUGraph();
+    for (int i = 0; i < vertices; i++) {
+      g.addVertex(i);
+    }
+    long range = (long) maxWeight - minWeight + 1;
+    for (int k = 0; k < edges; k++) {
+      int u = random.nextInt(vertices);
+      int v = random.nextInt(20) == 0 ? u : random.nextInt(vertices);
+      g.addEdge(u, v, (int) (minWeight + (long) (random.nextDouble() * range)));
+    }
+    return g;
+  }
+
+  /**
+   * tiesByIndex() returns true if "engine" breaks ties between equal
+   * weights by edge index, so it must return the same edges as Kruskal.
+   */
+
+  private static boolean tiesByIndex(MSTEngine engine, GraphView g) {
+    if (engine == MSTEngine.AUTO) {
+      engine = MSTEngine.forGraph(g);
+    }
+    return engine != MSTEngine.PRIM;
+  }
+
+  /**
+   * compare() runs every engine on g and checks it against Kruskal.
+   */
+
+  private static void compare(GraphView g, String what) {
+    MSTResult expected = Kruskal.minSpanEdges(g);
+    String expectedEdges = TestSupport.describe(expected.toWUGraph());
+    MSTEngine[] engines = MSTEngine.values();
+    for (int i = 0; i < engines.length; i++) {
+      String name = what + ", " + engines[i];
+      MSTResult actual = engines[i].minSpanEdges(g);
+      TestSupport.check(actual.totalWeight == expected.totalWeight,
+                        name + ":  weight " + actual.totalWeight + ", expected " +
+                        expected.totalWeight);
+      TestSupport.check(actual.edgeCount == expected.edgeCount,
+                        name + ":  " + actual.edgeCount + " edges, expected " +
+                        expected.edgeCount);
+      TestSupport.checkForest(g, actual, name);
+      if (tiesByIndex(engines[i], g)) {
+        TestSupport.check(TestSupport.describe(actual.toWUGraph()).equals(expectedEdges),
+                          name + ":  different edges from Kruskal");
+      }
+    }
+  }
+
+  /**
+   * smallTest() compares the engines on many small graphs, from empty and
+   * scattered to dense, with equal, negative and mixed weights.
+   */
+
+  private static void smallTest() {
+    System.out.println("Running small graph test.");
+    Random random = new Random(1);
+    compare(new WUGraph(), "empty graph");
+    for (int round = 0; round < 30; round++) {
+      int vertices = 1 + random.nextInt(30);
+      int edges = random.nextInt(4 * vertices);
+      compare(randomGraph(random, vertices, edges, 5, 5),
+              "round " + round + ", equal weights");
+      compare(randomGraph(random, vertices, edges, -50, -1),
+              "round " + round + ", negative weights");
+      compare(randomGraph(random, vertices, edges, -3, 3),
+              "round " + round + ", mixed weights");
+    }
+  }
+
+  /**
+   * disconnectedTest() compares the engines on graphs of several random
+   * components and isolated vertices, and checks that each finds a forest
+   * with one tree per component.
+   */
+
+  private static void disconnectedTest() {
+    System.out.println("Running disconnected graph test.");
+    Random random = new Random(2);
+    for (int round = 0; round < 10; round++) {
+      int components = 2 + random.nextInt(4);
+      int size = 5 + random.nextInt(20);
+      WUGraph g = new WUGraph();
+      for (int c = 0; c < components; c++) {
+        int first = c * size;
+        for (int i = 0; i < size; i++) {
+          g.addVertex(first + i);
+          if (i > 0) {
+            g.addEdge(first + i, first + random.nextInt(i), random.nextInt(21) - 10);
+          }
+        }
+        for (int k = 0; k < 2 * size; k++) {
+          g.addEdge(first + random.nextInt(size), first + random.nextInt(size),
+                    random.nextInt(21) - 10);
+        }
+      }
+      g.addVertex("isolated");
+      String what = "round " + round + ", " + components + " components";
+      compare(g, what);
+
+      MSTEngine[] engines = MSTEngine.values();
+      for (int i = 0; i < engines.length; i++) {
+        MSTResult forest = engines[i].minSpanEdges(g);
+        TestSupport.check(!forest.isSpanning() &&
+                          forest.edgeCount == g.vertexCount() - components - 1,
+                          what + ", " + engines[i] + ":  " + forest.edgeCount +
+                          " edges, expected " + (g.vertexCount() - components - 1));
+      }
+    }
+  }
+
+  /**
+   * largeTest() compares the engines on graphs with several times more
+   * edges than FilterKruskal splits on one thread (32768) and Boruvka scans
+   * in one task (8192), so their ForkJoin pack and compaction paths run.
+   */
+
+  private static void largeTest() {
+    System.out.println("Running large graph test.");
+    Random random = new Random(3);
+    compare(randomGraph(random, 40000, 100000, -1000000, 1000000), "sparse, mixed weights");
+    compare(randomGraph(random, 40000, 100000, 7, 7), "sparse, equal weights");
+    compare(randomGraph(random, 100000, 60000, -100, -1), "scattered, negative weights");
+    compare(randomGraph(random, 1000, 100000, -50, 50), "dense, mixed weights");
+  }
+
+  /**
+   * sameTree() checks that FilterKruskal, run on "pool", finds exactly the
+   * edges Kruskal finds in g.
+   */
+
+  private static void sameTree(GraphView g, ForkJoinPool pool, String what) {
+    MSTResult expected = Kruskal.minSpanEdges(g);
+    MSTResult actual = FilterKruskal.minSpanEdges(g, pool);
+    TestSupport.checkForest(g, actual, what);
+    TestSupport.check(actual.edgeCount == expected.edgeCount &&
+                      actual.totalWeight == expected.totalWeight,
+                      what + ":  " + actual.edgeCount + " edges of weight " +
+                      actual.totalWeight + ", expected " + expected.edgeCount +
+                      " of weight " + expected.totalWeight);
+    TestSupport.check(TestSupport.describe(actual.toWUGraph())
+                      .equals(TestSupport.describe(expected.toWUGraph())),
+                      what + ":  different edges from Kruskal");
+  }
+
+  /**
+   * packTest() runs FilterKruskal on a pool of four workers, so that the
+   * blocks of a pack really are split among threads, on ranges above the
+   * 32768 edges it packs on one thread:  a split followed by a parallel
+   * filter that keeps most heavy edges, one that drops most of them, ties
+   * on every edge, and a range whose last 8192-edge block is short.
+   */
+
+  private static void packTest() {
+    System.out.println("Running FilterKruskal parallel pack test.");
+    Random random = new Random(4);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    sameTree(randomGraph(random, 100000, 200000, -1000, 1000), pool,
+             "sparse pack, mostly kept");
+    sameTree(randomGraph(random, 2000, 150000, 0, 1000000), pool,
+             "dense pack, mostly filtered");
+    sameTree(randomGraph(random, 50000, 120000, 3, 3), pool, "pack with equal weights");
+
+    // A cycle of 32771 edges:  four full blocks and a block of three.
+    WUGraph cycle = new WUGraph();
+    int n = 4 * 8192 + 3;
+    for (int i = 0; i < n; i++) {
+      cycle.addVertex(i);
+    }
+    for (int i = 0; i < n; i++) {
+      cycle.addEdge(i, (i + 1) % n, random.nextInt(2000) - 1000);
+    }
+    sameTree(cycle, pool, "pack with a short last block");
+    pool.shutdown();
+  }
+
+  /**
+   * referenceWeight() returns the weight of a minimum spanning forest of g,
+   * found by sorting Edge objects with Collections.sort() rather than by
+   * radix sorting keys.
+   */
+
+  private static long referenceWeight(GraphView g) {
+    Object[] verts = g.getVertices();
+    HashMap<Object, Integer> ids = new HashMap<Object, Integer>();
+    for (int i = 0; i < verts.length; i++) {
+      ids.put(verts[i], i);
+    }
+    ArrayList<Edge> edges = new ArrayList<Edge>();
+    for (int i = 0; i < verts.length; i++) {
+      Neighbors n = g.getNeighbors(verts[i]);
+      for (int j = 0; n != null && j < n.neighborList.length; j++) {
+        if (ids.get(n.neighborList[j]) > i) {
+          edges.add(new Edge(verts[i], n.neighborList[j], n.weightList[j]));
+        }
+      }
+    }
+    Collections.sort(edges);
+
+    DisjointSets forest = new DisjointSets(verts.length);
+    long total = 0;
+    for (int k = 0; k < edges.size(); k++) {
+      int root1 = forest.find(ids.get(edges.get(k).u()));
+      int root2 = forest.find(ids.get(edges.get(k).v()));
+      if (root1 != root2) {
+        forest.union(root1, root2);
+        total += edges.get(k).weight();
+      }
+    }
+    return total;
+  }
+
+  /**
+   * radixTest() checks Kruskal, whose radix sort orders weights by their
+   * bytes, on graphs with more edges than the 256 it leaves to
+   * Arrays.sort():  weights all negative, of mixed signs, straddling zero
+   * by one, and reaching Integer.MIN_VALUE and Integer.MAX_VALUE.  The tree
+   * edges must come out in order of increasing weight, and add up to the
+   * weight found by a comparison sort.
+   */
+
+  private static void radixTest() {
+    System.out.println("Running radix sort weight test.");
+    Random random = new Random(5);
+    int[][] ranges = {{-1000000, -1}, {-70000, 70000}, {-1, 0}, {-1, 1},
+                      {Integer.MIN_VALUE, Integer.MAX_VALUE},
+                      {Integer.MIN_VALUE, Integer.MIN_VALUE + 300},
+                      {Integer.MAX_VALUE - 300, Integer.MAX_VALUE}};
+    for (int r = 0; r < ranges.length; r++) {
+      String what = "weights " + ranges[r][0] + " ... " + ranges[r][1];
+      WUGraph g = randomGraph(random, 2000, 20000, ranges[r][0], ranges[r][1]);
+      g.addEdge(0, 1, ranges[r][0]);
+      g.addEdge(2, 3, ranges[r][1]);
+      MSTResult tree = Kruskal.minSpanEdges(g);
+      boolean sorted = true;
+      for (int i = 1; i < tree.edgeCount; i++) {
+        if (tree.weights[i - 1] > tree.weights[i]) {
+          sorted = false;
+        }
+      }
+      TestSupport.check(sorted, what + ":  tree edges out of weight order");
+      long expected = referenceWeight(g);
+      TestSupport.check(tree.totalWeight == expected, what + ":  weight " +
+                        tree.totalWeight + ", expected " + expected);
+      compare(g, what);
+    }
+  }
+
+  /**
+   * lazyTest() checks LazyKruskal's Iterator contract:  hasNext() may be
+   * called any number of times without skipping an edge, the edges come in
+   * order of increasing weight and are Kruskal's edges, next() throws
+   * NoSuchElementException once they run out, and an iterator abandoned
+   * early has returned a prefix of the tree.
+   */
+
+  private static void lazyTest() {
+    System.out.println("Running LazyKruskal iterator test.");
+    Random random = new Random(6);
+    for (int round = 0; round < 20; round++) {
+      WUGraph g = randomGraph(random, 1 + random.nextInt(60), random.nextInt(300), -20, 20);
+      String what = "round " + round;
+      MSTResult expected = Kruskal.minSpanEdges(g);
+
+      LazyKruskal lazy = new LazyKruskal(g);
+      WUGraph tree = new WUGraph();
+      Object[] verts = g.getVertices();
+      for (int i = 0; i < verts.length; i++) {
+        tree.addVertex(verts[i]);
+      }
+      boolean idempotent = true;
+      boolean sorted = true;
+      int count = 0;
+      int last = Integer.MIN_VALUE;
+      while (lazy.hasNext()) {
+        idempotent = idempotent && lazy.hasNext() && lazy.hasNext();
+        Edge edge = lazy.next();
+        sorted = sorted && edge.weight() >= last;
+        last = edge.weight();
+        tree.addEdge(edge.u(), edge.v(), edge.weight());
+        count++;
+      }
+      TestSupport.check(idempotent, what + ":  hasNext() changed its answer");
+      TestSupport.check(sorted, what + ":  edges out of weight order");
+      TestSupport.check(count == expected.edgeCount,
+                        what + ":  " + count + " edges, expected " + expected.edgeCount);
+      TestSupport.check(TestSupport.describe(tree)
+                        .equals(TestSupport.describe(expected.toWUGraph())),
+                        what + ":  different edges from Kruskal");
+      TestSupport.check(!lazy.hasNext(), what + ":  hasNext() true after the last edge");
+
+      boolean threw = false;
+      try {
+        lazy.next();
+      } catch (NoSuchElementException e) {
+        threw = true;
+      }
+      TestSupport.check(threw, what + ":  next() did not throw after the last edge");
+
+      // Stop after a prefix of the tree, calling next() without hasNext().
+      lazy = new LazyKruskal(g);
+      int prefix = expected.edgeCount / 2;
+      boolean matches = true;
+      for (int i = 0; i < prefix; i++) {
+        Edge edge = lazy.next();
+        matches = matches && edge.weight() == expected.weights[i];
+      }
+      TestSupport.check(matches, what + ":  the first " + prefix +
+                        " edges differ from Kruskal's");
+      TestSupport.check(lazy.hasNext() == (prefix < expected.edgeCount),
+                        what + ":  hasNext() wrong after " + prefix + " edges");
+    }
+  }
+
+  public static void main(String[] args) {
+    smallTest();
+    disconnectedTest();
+    largeTest();
+    packTest();
+    radixTest();
+    lazyTest();
+
+    TestSupport.printScore("MSTEngine");
+  }
+}
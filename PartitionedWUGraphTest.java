@@ -0,0 +1,164 @@
+/* PartitionedWUGraphTest.java */
+
+/**
+ * The PartitionedWUGraphTest class tests the PartitionedWUGraph class:  the
+ * messages that carry a cross-shard edge change between shards, when the
+ * same edges are added and removed from several threads at once, and the
+ * reporting of updates that fail.
+ */
+
+import graph.*;
+import java.util.Random;
+
+public class PartitionedWUGraphTest {
+
+  private static final int VERTICES = 12;
+  private static final int THREADS = 4;
+  private static final int UPDATES = 20000;
+
+  /**
+   * A BadVertex is a vertex whose equals() method throws.
+   */
+
+  private static class BadVertex {
+    public int hashCode() {
+      return 0;
+    }
+
+    public boolean equals(Object other) {
+      throw new UnsupportedOperationException("BadVertex.equals()");
+    }
+  }
+
+  /**
+   * protocolTest() adds and removes the same cross-shard edges from several
+   * threads, naming the endpoints in both orders, while vertices come and
+   * go.  With two shards, even Integers live in one and odd in the other.
+   */
+
+  private static void protocolTest() throws InterruptedException {
+    System.out.println("Running concurrent edge protocol test.");
+    final PartitionedWUGraph g = new PartitionedWUGraph(2);
+    for (int i = 0; i < VERTICES; i++) {
+      g.addVertex(i);
+    }
+
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final Random random = new Random(t);
+      threads[t] = new Thread() {
+        public void run() {
+          for (int k = 0; k < UPDATES; k++) {
+            Integer u = 2 * random.nextInt(VERTICES / 2);
+            Integer v = 2 * random.nextInt(VERTICES / 2) + 1;
+            int op = random.nextInt(20);
+            if (op < 8) {
+              g.addEdge(u, v, k);
+            } else if (op < 12) {
+              g.addEdge(v, u, k);
+            } else if (op < 15) {
+              g.removeEdge(u, v);
+            } else if (op < 18) {
+              g.removeEdge(v, u);
+            } else if (op < 19) {
+              g.removeVertex(random.nextBoolean() ? u : v);
+            } else {
+              g.addVertex(u);
+              g.addVertex(v);
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < THREADS; t++) {
+      threads[t].join();
+    }
+    g.flush();
+    TestSupport.consistent(g, "after concurrent updates");
+
+    // Changes posted by one thread apply in order, whichever endpoint the
+    // change names first.
+    for (int i = 0; i < VERTICES; i++) {
+      g.addVertex(i);
+    }
+    for (int u = 0; u < VERTICES; u += 2) {
+      for (int v = 1; v < VERTICES; v += 2) {
+        g.addEdge(u, v, 1);
+        g.removeEdge(v, u);
+        g.addEdge(v, u, u * VERTICES + v);
+      }
+    }
+    g.flush();
+    TestSupport.consistent(g, "after add, remove, add");
+    boolean right = g.edgeCount() == VERTICES * VERTICES / 4;
+    for (int u = 0; u < VERTICES; u += 2) {
+      for (int v = 1; v < VERTICES; v += 2) {
+        if (g.weight(u, v) != u * VERTICES + v) {
+          right = false;
+        }
+      }
+    }
+    TestSupport.check(right, "add, remove, add did not leave the last weight");
+
+    // A vertex removed and added again loses the edges it had, even those
+    // whose messages were still travelling between shards.
+    for (int v = 1; v < VERTICES; v += 2) {
+      g.addEdge(0, v, 5);
+      g.removeVertex(0);
+      g.addVertex(0);
+    }
+    g.flush();
+    TestSupport.consistent(g, "after removing and adding a vertex");
+    TestSupport.check(g.degree(0) == 0, "vertex 0 kept an edge after it was removed");
+    g.shutdown();
+  }
+
+  /**
+   * failureTest() posts updates that throw, and checks that the next flush()
+   * or query reports them once.
+   */
+
+  private static void failureTest() {
+    System.out.println("Running update failure test.");
+    PartitionedWUGraph g = new PartitionedWUGraph(2);
+    BadVertex bad = new BadVertex();
+    g.addVertex(bad);
+    g.addVertex(bad);
+
+    boolean threw = false;
+    try {
+      g.flush();
+    } catch (IllegalStateException e) {
+      threw = e.getCause() instanceof UnsupportedOperationException;
+    }
+    TestSupport.check(threw, "flush() did not report the failed update");
+    threw = false;
+    try {
+      g.flush();
+    } catch (IllegalStateException e) {
+      threw = true;
+    }
+    TestSupport.check(!threw, "flush() reported the same failure twice");
+
+    g.addVertex(bad);
+    g.addVertex(1);
+    threw = false;
+    try {
+      // 2 lives in the same shard as "bad", so the query waits for it.
+      g.isVertex(2);
+    } catch (IllegalStateException e) {
+      threw = true;
+    }
+    TestSupport.check(threw, "a query after the failed update did not report it");
+    TestSupport.check(g.vertexCount() == 2, "the failed update changed the graph");
+    g.shutdown();
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    protocolTest();
+    failureTest();
+
+    TestSupport.printScore("PartitionedWUGraph");
+  }
+}
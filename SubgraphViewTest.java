@@ -0,0 +1,164 @@
+/* SubgraphViewTest.java */
+
+/**
+ * The SubgraphViewTest class tests the SubgraphView class against a copy of
+ * the induced subgraph, for views chosen both by a VertexFilter and by a
+ * BitSet over a CSRGraph:  the view must answer every query as the copy
+ * does, and Kruskal must find the same minimum spanning forest on both.
+ */
+
+import graph.*;
+import graphalg.*;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Random;
+
+public class SubgraphViewTest {
+
+  /**
+   * A SetFilter accepts the vertices in a HashSet.
+   */
+
+  private static class SetFilter implements VertexFilter {
+    private final HashSet<Object> chosen;
+
+    private SetFilter(HashSet<Object> chosen) {
+      this.chosen = chosen;
+    }
+
+    public boolean accept(Object vertex) {
+      return chosen.contains(vertex);
+    }
+  }
+
+  /**
+   * induced() returns a new WUGraph holding the vertices of g that "filter"
+   * accepts, and every edge of g between two of them.
+   */
+
+  private static WUGraph induced(GraphView g, VertexFilter filter) {
+    WUGraph copy = new WUGraph();
+    Object[] verts = g.getVertices();
+    for (int i = 0; i < verts.length; i++) {
+      if (filter.accept(verts[i])) {
+        copy.addVertex(verts[i]);
+      }
+    }
+    for (int i = 0; i < verts.length; i++) {
+      Neighbors n = g.getNeighbors(verts[i]);
+      for (int j = 0; n != null && j < n.neighborList.length; j++) {
+        if (copy.isVertex(verts[i]) && copy.isVertex(n.neighborList[j])) {
+          copy.addEdge(verts[i], n.neighborList[j], n.weightList[j]);
+        }
+      }
+    }
+    return copy;
+  }
+
+  /**
+   * compare() checks the view against the copy.  The weights of g are all
+   * distinct if "distinct" is true, so both minimum spanning forests are
+   * unique and must have the same edges; otherwise Kruskal may break ties
+   * differently on the two, and only the forest's size and weight must
+   * agree.
+   */
+
+  private static void compare(SubgraphView view, WUGraph copy, boolean distinct,
+                              String what) {
+    TestSupport.consistent(view, what);
+    TestSupport.check(TestSupport.describe(view).equals(TestSupport.describe(copy)),
+                      what + ":  the view differs from the induced subgraph");
+
+    MSTResult onView = Kruskal.minSpanEdges(view);
+    MSTResult onCopy = Kruskal.minSpanEdges(copy);
+    TestSupport.checkForest(view, onView, what);
+    TestSupport.check(onView.edgeCount == onCopy.edgeCount &&
+                      onView.totalWeight == onCopy.totalWeight,
+                      what + ":  Kruskal found " + onView.edgeCount + " edges of weight " +
+                      onView.totalWeight + " on the view, " + onCopy.edgeCount +
+                      " of weight " + onCopy.totalWeight + " on the copy");
+    if (distinct) {
+      TestSupport.check(TestSupport.describe(onView.toWUGraph())
+                        .equals(TestSupport.describe(onCopy.toWUGraph())),
+                        what + ":  Kruskal found different edges on the view");
+    }
+  }
+
+  /**
+   * randomGraph() returns a random graph of "vertices" vertices, some
+   * self-edges among its edges.  Its weights are distinct if "distinct" is
+   * true, and drawn from a few values otherwise.
+   */
+
+  private static WUGraph randomGraph(Random random, int vertices, boolean distinct) {
+    WUGraph g = new WUGraph();
+    for (int i = 0; i < vertices; i++) {
+      g.addVertex(i);
+    }
+    int edges = 3 * vertices;
+    for (int k = 0; k < edges; k++) {
+      int u = random.nextInt(vertices);
+      int v = random.nextInt(10) == 0 ? u : random.nextInt(vertices);
+      g.addEdge(u, v, distinct ? k - edges / 2 : random.nextInt(7) - 3);
+    }
+    return g;
+  }
+
+  private static void viewTest() {
+    System.out.println("Running subgraph view test.");
+    Random random = new Random(1);
+    for (int round = 0; round < 20; round++) {
+      boolean distinct = round % 2 == 0;
+      WUGraph g = randomGraph(random, 5 + random.nextInt(80), distinct);
+      CSRGraph frozen = g.freeze();
+      Object[] verts = frozen.getVertices();
+
+      // Choose each vertex with probability 1/2, 1/4 or 1, by round.
+      int odds = round % 3 == 2 ? 1 : 2 + round % 3 * 2;
+      HashSet<Object> chosen = new HashSet<Object>();
+      BitSet ids = new BitSet();
+      for (int id = 0; id < verts.length; id++) {
+        if (random.nextInt(odds) == 0) {
+          chosen.add(verts[id]);
+          ids.set(id);
+        }
+      }
+      SetFilter filter = new SetFilter(chosen);
+      WUGraph copy = induced(g, filter);
+
+      String what = "round " + round;
+      compare(new SubgraphView(g, filter), copy, distinct, what + ", filter view");
+      compare(new SubgraphView(frozen, ids), copy, distinct, what + ", BitSet view");
+      TestSupport.check(!new SubgraphView(g, filter).isVertex("absent"),
+                        what + ":  the view accepts a vertex not in the graph");
+    }
+  }
+
+  /**
+   * liveTest() checks that a VertexFilter view of a WUGraph follows later
+   * changes to the graph.
+   */
+
+  private static void liveTest() {
+    System.out.println("Running live view test.");
+    Random random = new Random(2);
+    WUGraph g = randomGraph(random, 40, false);
+    HashSet<Object> chosen = new HashSet<Object>();
+    for (int i = 0; i < 40; i += 2) {
+      chosen.add(i);
+    }
+    SetFilter filter = new SetFilter(chosen);
+    SubgraphView view = new SubgraphView(g, filter);
+    for (int round = 0; round < 10; round++) {
+      TestSupport.randomChanges(g, random, 30, 40, 12);
+      compare(view, induced(g, filter), false, "after change round " + round);
+    }
+  }
+
+  public static void main(String[] args) {
+    viewTest();
+    liveTest();
+
+    TestSupport.printScore("SubgraphView");
+  }
+}
@@ -0,0 +1,161 @@
+/* TestSupport.java */
+
+/**
+ * The TestSupport class holds the helpers the graph tests share:  a tally
+ * of passed and failed checks, a canonical description of a graph for
+ * comparing two graphs, a consistency check of a graph's queries against
+ * each other, a check that a spanning forest is one, and a generator of
+ * random changes.
+ */
+
+import graph.*;
+import graphalg.MSTResult;
+import set.DisjointSets;
+import java.util.Random;
+import java.util.TreeSet;
+
+class TestSupport {
+
+  private static int checks = 0;
+  private static int failures = 0;
+
+  /**
+   * check() counts one check, and prints "message" if it failed.
+   */
+
+  static void check(boolean ok, String message) {
+    checks++;
+    if (!ok) {
+      System.out.println("FAILED:  " + message);
+      failures++;
+    }
+  }
+
+  /**
+   * printScore() prints how many of the checks so far passed.
+   */
+
+  static void printScore(String name) {
+    System.out.println("Your " + name + " test score is " + (checks - failures) +
+                       " out of " + checks + ".");
+  }
+
+  /**
+   * describe() returns a canonical description of every vertex and edge of
+   * g, so that two graphs holding the same vertices and edges, in any
+   * order, have equal descriptions.
+   */
+
+  static String describe(GraphView g) {
+    TreeSet<String> parts = new TreeSet<String>();
+    Object[] verts = g.getVertices();
+    for (int i = 0; i < verts.length; i++) {
+      parts.add("v" + verts[i]);
+      Neighbors n = g.getNeighbors(verts[i]);
+      if (n != null) {
+        for (int j = 0; j < n.neighborList.length; j++) {
+          parts.add(edgeName(verts[i], n.neighborList[j]) + ":" + n.weightList[j]);
+        }
+      }
+    }
+    return parts.toString();
+  }
+
+  /**
+   * consistent() checks that g's queries agree with each other:  every
+   * edge is listed by both its endpoints with the same weight, degree()
+   * matches getNeighbors(), and the counts match the lists.
+   */
+
+  static void consistent(GraphView g, String what) {
+    Object[] verts = g.getVertices();
+    check(verts.length == g.vertexCount(), what + ":  vertexCount() is " +
+          g.vertexCount() + ", but getVertices() lists " + verts.length);
+    TreeSet<String> edges = new TreeSet<String>();
+    boolean degrees = true;
+    boolean symmetric = true;
+    for (int i = 0; i < verts.length; i++) {
+      Neighbors n = g.getNeighbors(verts[i]);
+      int degree = n == null ? 0 : n.neighborList.length;
+      if (g.degree(verts[i]) != degree || !g.isVertex(verts[i])) {
+        degrees = false;
+      }
+      for (int j = 0; j < degree; j++) {
+        Object other = n.neighborList[j];
+        if (!g.isVertex(other) || !g.isEdge(other, verts[i])
+            || g.weight(other, verts[i]) != n.weightList[j]) {
+          symmetric = false;
+        }
+        edges.add(edgeName(verts[i], other));
+      }
+    }
+    check(degrees, what + ":  degree() disagrees with getNeighbors()");
+    check(symmetric, what + ":  an edge is missing from one of its endpoints");
+    check(edges.size() == g.edgeCount(), what + ":  edgeCount() is " + g.edgeCount() +
+          ", but the vertices list " + edges.size() + " edges");
+  }
+
+  /**
+   * checkForest() checks that "forest" is a spanning forest of g:  it has
+   * the vertices of g, its edges are edges of g with the same weights, they
+   * form no cycle, and they add up to its totalWeight.
+   */
+
+  static void checkForest(GraphView g, MSTResult forest, String what) {
+    boolean inGraph = true;
+    boolean acyclic = true;
+    long total = 0;
+    DisjointSets trees = new DisjointSets(forest.vertices.length);
+    for (int i = 0; i < forest.edgeCount; i++) {
+      if (!g.isEdge(forest.u(i), forest.v(i)) ||
+          g.weight(forest.u(i), forest.v(i)) != forest.weights[i]) {
+        inGraph = false;
+      }
+      total += forest.weights[i];
+      int root1 = trees.find(forest.us[i]);
+      int root2 = trees.find(forest.vs[i]);
+      if (root1 == root2) {
+        acyclic = false;
+      } else {
+        trees.union(root1, root2);
+      }
+    }
+    check(inGraph, what + ":  a tree edge is not an edge of the graph");
+    check(acyclic, what + ":  the tree edges form a cycle");
+    check(total == forest.totalWeight, what + ":  the tree edges do not add up");
+    check(forest.vertices.length == g.vertexCount(),
+          what + ":  the forest has the wrong vertices");
+  }
+
+  /**
+   * randomChanges() makes "count" random changes to g, on the vertices
+   * 0 ... vertices - 1, with edge weights drawn from "weights" values
+   * starting at -weights / 4, so some are negative and many are equal.
+   */
+
+  static void randomChanges(WUGraph g, Random random, int count, int vertices,
+                            int weights) {
+    for (int k = 0; k < count; k++) {
+      int op = random.nextInt(20);
+      Integer u = random.nextInt(vertices);
+      Integer v = random.nextInt(vertices);
+      if (op < 1) {
+        g.removeVertex(u);
+      } else if (op < 3) {
+        g.addVertex(u);
+      } else if (op < 13) {
+        g.addVertex(u);
+        g.addVertex(v);
+        g.addEdge(u, v, random.nextInt(weights) - weights / 4);
+      } else {
+        g.removeEdge(u, v);
+      }
+    }
+  }
+
+  private static String edgeName(Object u, Object v) {
+    String a = String.valueOf(u);
+    String b = String.valueOf(v);
+    return a.compareTo(b) <= 0 ? a + "-" + b : b + "-" + a;
+  }
+}
@@ -0,0 +1,154 @@
+/* VersionedWUGraphTest.java */
+
+/**
+ * The VersionedWUGraphTest class tests snapshot isolation in the
+ * VersionedWUGraph class:  a snapshot must keep showing the graph as it was
+ * when it was taken, whatever is changed or released afterward, and even
+ * while another thread keeps changing the graph.
+ */
+
+import graph.*;
+import java.util.Random;
+
+public class VersionedWUGraphTest {
+
+  private static final int VERTICES = 30;
+
+  //First exception thrown by the writer thread.
+  private static volatile Throwable thrown;
+  private static volatile boolean done;
+
+  /**
+   * A Mirror makes each change it is told about to a VersionedWUGraph, so
+   * random changes made to a WUGraph can be replayed through its change log.
+   */
+
+  private static class Mirror implements GraphListener {
+    private final VersionedWUGraph g;
+
+    private Mirror(VersionedWUGraph g) {
+      this.g = g;
+    }
+
+    public void vertexAdded(Object vertex) {
+      g.addVertex(vertex);
+    }
+
+    public void vertexRemoved(Object vertex) {
+      g.removeVertex(vertex);
+    }
+
+    public void edgeAdded(Object u, Object v, int weight) {
+      g.addEdge(u, v, weight);
+    }
+
+    public void edgeRemoved(Object u, Object v, int weight) {
+      g.removeEdge(u, v);
+    }
+
+    public void weightChanged(Object u, Object v, int oldWeight, int newWeight) {
+      g.addEdge(u, v, newWeight);
+    }
+  }
+
+  /**
+   * randomChanges() makes "count" random changes to "shadow", and the same
+   * changes to g.
+   */
+
+  private static void randomChanges(VersionedWUGraph g, WUGraph shadow, Random random,
+                                    int count) {
+    GraphChangeLog log = new GraphChangeLog(4 * count);
+    GraphChangeLog.Cursor cursor = log.newCursor();
+    shadow.setChangeLog(log);
+    TestSupport.randomChanges(shadow, random, count, VERTICES, 100);
+    shadow.setChangeLog(null);
+    cursor.drain(new Mirror(g));
+  }
+
+  /**
+   * isolationTest() takes snapshots between rounds of changes, and checks
+   * that each one still shows its own round after later changes and after
+   * other snapshots are released.
+   */
+
+  private static void isolationTest() {
+    System.out.println("Running snapshot isolation test.");
+    Random random = new Random(1);
+    VersionedWUGraph g = new VersionedWUGraph();
+    WUGraph shadow = new WUGraph();
+    int rounds = 12;
+    VersionedWUGraph.Snapshot[] snapshots = new VersionedWUGraph.Snapshot[rounds];
+    String[] expected = new String[rounds];
+    for (int r = 0; r < rounds; r++) {
+      randomChanges(g, shadow, random, 60);
+      snapshots[r] = g.snapshot();
+      expected[r] = TestSupport.describe(shadow);
+      TestSupport.check(TestSupport.describe(snapshots[r]).equals(expected[r]),
+                        "snapshot " + r + " is wrong when taken");
+      TestSupport.consistent(snapshots[r], "snapshot " + r);
+    }
+    TestSupport.check(TestSupport.describe(g).equals(TestSupport.describe(shadow)),
+                      "the graph is wrong");
+
+    // Release every other snapshot, then change the graph some more.
+    for (int r = 0; r < rounds; r += 2) {
+      snapshots[r].release();
+    }
+    randomChanges(g, shadow, random, 200);
+    for (int r = 1; r < rounds; r += 2) {
+      TestSupport.check(TestSupport.describe(snapshots[r]).equals(expected[r]),
+                        "snapshot " + r + " changed");
+      snapshots[r].release();
+    }
+    TestSupport.check(TestSupport.describe(g).equals(TestSupport.describe(shadow)),
+                      "the graph is wrong after releases");
+  }
+
+  /**
+   * concurrentTest() has one thread change the graph nonstop while this
+   * thread takes snapshots and reads each one twice; both readings must
+   * agree and be internally consistent.
+   */
+
+  private static void concurrentTest() throws InterruptedException {
+    System.out.println("Running concurrent snapshot test.");
+    final VersionedWUGraph g = new VersionedWUGraph();
+    Thread writer = new Thread() {
+      public void run() {
+        Random random = new Random(2);
+        WUGraph shadow = new WUGraph();
+        while (!done) {
+          randomChanges(g, shadow, random, 10);
+        }
+      }
+    };
+    writer.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+      public void uncaughtException(Thread thread, Throwable e) {
+        thrown = e;
+      }
+    });
+    writer.start();
+
+    boolean stable = true;
+    for (int k = 0; k < 50; k++) {
+      VersionedWUGraph.Snapshot snapshot = g.snapshot();
+      String first = TestSupport.describe(snapshot);
+      Thread.yield();
+      TestSupport.consistent(snapshot, "snapshot " + k);
+      stable = stable && first.equals(TestSupport.describe(snapshot));
+      snapshot.release();
+    }
+    done = true;
+    writer.join();
+    TestSupport.check(thrown == null, "the writer threw " + thrown);
+    TestSupport.check(stable, "a snapshot changed while it was read");
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    isolationTest();
+    concurrentTest();
+
+    TestSupport.printScore("VersionedWUGraph");
+  }
+}
@@ -23,8 +23,15 @@ public class HashTableChained implements Dictionary {
   protected int size;
   protected int numBuckets;
   protected DList[] table; 
+  // Prime used by compFunction(); depends only on numBuckets, so it is
+  // recomputed when the table is rebuilt rather than on every hash.
+  private int compPrime;
   private static final float MAX_LOADFACTOR = 1;
   private static final float MIN_LOADFACTOR = 0.25f;
+  // Hot-path counters, or null (the default) when nobody is watching.
+  private TableMetrics metrics;
+  // While true, remove() never shrinks the table; see suspendShrink().
+  private boolean shrinkSuspended;
 
 
 
@@ -36,7 +43,7 @@ public class HashTableChained implements Dictionary {
 
   public HashTableChained(int sizeEstimate) {
     // Your solution here.
-    numBuckets = prevPrime(sizeEstimate*2);
+    numBuckets = prevPrime(Math.max(sizeEstimate, 1)*2);
     makeEmpty();
   }
 
@@ -44,10 +51,33 @@ public class HashTableChained implements Dictionary {
     return (float) size/numBuckets;
   }
 
+  /**
+   *  Returns the current load factor:  entries per bucket.
+   **/
+  public float loadFactor(){
+    return getLoadFactor();
+  }
+
+  /**
+   *  Attach "metrics" to count chain probes and resizes from now on, or stop
+   *  counting if metrics is null.
+   **/
+  public void setMetrics(TableMetrics metrics){
+    this.metrics = metrics;
+  }
+
   private void resize(float factor){
+    rehash((int) (numBuckets * factor));
+  }
+
+  /**
+   *  Rebuild the table with newBuckets buckets, reinserting every entry once.
+   **/
+  private void rehash(int newBuckets){
+    long start = metrics == null ? 0 : System.nanoTime();
     int oldSize = numBuckets;
     DList[] oldTable = table;
-    numBuckets = (int) (numBuckets * factor);
+    numBuckets = newBuckets;
     makeEmpty();
     for (int i = 0; i < oldSize; i++) {
       DList currList = oldTable[i];
@@ -57,6 +87,9 @@ public class HashTableChained implements Dictionary {
         currNode = currList.next(currNode);
       }
     }
+    if (metrics != null) {
+      metrics.resized(System.nanoTime() - start);
+    }
   }
 
   private int prevPrime(int num) {
@@ -75,7 +108,7 @@ public class HashTableChained implements Dictionary {
 
   private boolean isPrime(int num) {
     int divisor = 2;
-    while (divisor < num) {
+    while (divisor * divisor <= num) {
       if ((num % divisor) == 0) {
         return false;
       }
@@ -95,6 +128,45 @@ public class HashTableChained implements Dictionary {
     makeEmpty();
   }
 
+  /**
+   *  Grow the table, if necessary, so that it can hold roughly sizeEstimate
+   *  entries without resizing, the same way the HashTableChained(int)
+   *  constructor sizes a new table.  Existing entries are rehashed at most
+   *  once.  Use this before inserting a large batch of entries.
+   **/
+
+  public void ensureCapacity(int sizeEstimate) {
+    int wanted = prevPrime(Math.max(sizeEstimate, 1) * 2);
+    if (wanted > numBuckets) {
+      rehash(wanted);
+    }
+  }
+
+  /**
+   *  Stop remove() from shrinking the table until resumeShrink() is called.
+   *  Use this around a large batch of removals, so the table is rebuilt at
+   *  most once at the end instead of repeatedly along the way.
+   **/
+
+  public void suspendShrink() {
+    shrinkSuspended = true;
+  }
+
+  /**
+   *  Let remove() shrink the table again, and shrink it now, once, if the
+   *  removals since suspendShrink() left it too sparse.
+   **/
+
+  public void resumeShrink() {
+    shrinkSuspended = false;
+    if (getLoadFactor() <= MIN_LOADFACTOR) {
+      int wanted = prevPrime(Math.max(size, 1) * 2);
+      if (wanted < numBuckets) {
+        rehash(wanted);
+      }
+    }
+  }
+
   /**
    *  Converts a hash code in the range Integer.MIN_VALUE...Integer.MAX_VALUE
    *  to a value in the range 0...(size of hash table) - 1.
@@ -105,8 +177,7 @@ public class HashTableChained implements Dictionary {
 
   int compFunction(int code) {
     // Replace the following line with your solution.
-    int p = nextPrime(numBuckets*2);
-    return Math.abs((329*code + 531) % p) % numBuckets;
+    return Math.abs((329*code + 531) % compPrime) % numBuckets;
   }
 
   /** 
@@ -183,13 +254,21 @@ public class HashTableChained implements Dictionary {
     int index = compFunction(key.hashCode());
     DList d = table[index];
     DListNode node = d.front();
+    int probes = 0;
     while (node != null) {
+      probes++;
       Object k = ((Entry) node.item).key();
       if (k.equals(key)) {
+        if (metrics != null) {
+          metrics.findProbed(probes);
+        }
         return (Entry) node.item;
       }
       node = d.next(node);
     }
+    if (metrics != null) {
+      metrics.findProbed(probes);
+    }
     return null;
   }
 
@@ -219,7 +298,7 @@ public class HashTableChained implements Dictionary {
       if (k.equals(key)) {
         d.remove(node);
         size--;
-        if (this.getLoadFactor() <= MIN_LOADFACTOR){
+        if (!shrinkSuspended && this.getLoadFactor() <= MIN_LOADFACTOR){
           resize(0.5f);
         }
         return (Entry) node.item;
@@ -235,6 +314,7 @@ public class HashTableChained implements Dictionary {
   public void makeEmpty() {
     // Your solution here.
     table = new DList[numBuckets];
+    compPrime = nextPrime(numBuckets*2);
     size = 0;
     for (int i = 0; i < numBuckets; i++) {
       table[i] = new DList();
@@ -0,0 +1,235 @@
+/* LongHashTable.java */
+
+package dict;
+
+/**
+ *  LongHashTable maps primitive long keys to Object values with open
+ *  addressing and linear probing.  Keys are stored unboxed in one long[]
+ *  array, so find(), insert() and remove() allocate nothing, and a lookup
+ *  is a single probe run over adjacent array slots.  Removal shifts later
+ *  entries of the run back into the hole, so no tombstones build up.
+ *
+ *  Unlike HashTableChained, each key appears at most once:  inserting an
+ *  existing key replaces its value.  Values may not be null; a null value
+ *  marks an empty slot.
+ **/
+
+public class LongHashTable {
+
+  private static final int MIN_CAPACITY = 16;
+
+  protected long[] keys;
+  protected Object[] values;
+  protected int size;
+  private int mask;
+  private boolean shrinkSuspended;
+
+  /**
+   *  Construct a new empty table with a default size.
+   **/
+
+  public LongHashTable() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   *  Construct a new empty table intended to hold roughly sizeEstimate
+   *  entries without growing.
+   **/
+
+  public LongHashTable(int sizeEstimate) {
+    allocate(capacityFor(sizeEstimate));
+  }
+
+  /**
+   *  Grow the table, if necessary, so that it can hold roughly sizeEstimate
+   *  entries without growing again.  Existing entries are rehashed at most
+   *  once.  Use this before inserting a large batch of entries.
+   **/
+
+  public void ensureCapacity(int sizeEstimate) {
+    int wanted = capacityFor(sizeEstimate);
+    if (wanted > keys.length) {
+      rehash(wanted);
+    }
+  }
+
+  /**
+   *  Stop remove() from shrinking the table until resumeShrink() is called,
+   *  so a large batch of removals rebuilds the table at most once.
+   **/
+
+  public void suspendShrink() {
+    shrinkSuspended = true;
+  }
+
+  /**
+   *  Let remove() shrink the table again, and shrink it now, once, if the
+   *  removals since suspendShrink() left it too sparse.
+   **/
+
+  public void resumeShrink() {
+    shrinkSuspended = false;
+    int wanted = capacityFor(size);
+    if (keys.length > MIN_CAPACITY && size * 8 < keys.length && wanted < keys.length) {
+      rehash(wanted);
+    }
+  }
+
+  /**
+   *  Returns the number of entries stored in the table.
+   **/
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   *  Returns the current load factor:  entries per slot.
+   **/
+
+  public float loadFactor() {
+    return (float) size / keys.length;
+  }
+
+  /**
+   *  Tests if the table is empty.
+   **/
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   *  Search for the entry with the specified key, and return its value, or
+   *  null if there is no such entry.
+   *
+   *  Running time:  O(1) expected.
+   **/
+
+  public Object find(long key) {
+    return values[slot(key)];
+  }
+
+  /**
+   *  Associate "value" with "key", replacing any value the key already had.
+   *  Returns the value replaced, or null if the key is new.
+   *
+   *  Running time:  O(1) expected, amortized.
+   *
+   *  @throws IllegalArgumentException if value is null.
+   **/
+
+  public Object insert(long key, Object value) {
+    if (value == null) {
+      throw new IllegalArgumentException("LongHashTable values may not be null");
+    }
+    int i = slot(key);
+    Object old = values[i];
+    keys[i] = key;
+    values[i] = value;
+    if (old == null) {
+      size++;
+      if (size * 4 > keys.length * 3) {
+        rehash(keys.length * 2);
+      }
+    }
+    return old;
+  }
+
+  /**
+   *  Remove the entry with the specified key, and return its value, or null
+   *  if there is no such entry.  The table shrinks when it falls below one
+   *  eighth full.
+   *
+   *  Running time:  O(1) expected, amortized.
+   **/
+
+  public Object remove(long key) {
+    int hole = slot(key);
+    Object old = values[hole];
+    if (old == null) {
+      return null;
+    }
+
+    // Shift each later member of the run back into the hole unless its home
+    // slot lies cyclically in (hole, i].
+    int i = hole;
+    while (true) {
+      i = (i + 1) & mask;
+      if (values[i] == null) {
+        break;
+      }
+      int home = hash(keys[i]) & mask;
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        keys[hole] = keys[i];
+        values[hole] = values[i];
+        hole = i;
+      }
+    }
+    values[hole] = null;
+    size--;
+
+    if (!shrinkSuspended && keys.length > MIN_CAPACITY && size * 8 < keys.length) {
+      rehash(keys.length / 2);
+    }
+    return old;
+  }
+
+  /**
+   *  Remove all entries from the table.
+   **/
+
+  public void makeEmpty() {
+    allocate(MIN_CAPACITY);
+  }
+
+  /**
+   *  slot() returns the slot holding "key", or the empty slot that ends its
+   *  probe run if the key is absent.
+   **/
+
+  private int slot(long key) {
+    int i = hash(key) & mask;
+    while (values[i] != null && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  private static int hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+
+  private static int capacityFor(int sizeEstimate) {
+    int capacity = MIN_CAPACITY;
+    while ((long) capacity * 3 < (long) sizeEstimate * 4 && capacity < (1 << 30)) {
+      capacity *= 2;
+    }
+    return capacity;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    size = 0;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != null) {
+        int j = slot(oldKeys[i]);
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+        size++;
+      }
+    }
+  }
+}
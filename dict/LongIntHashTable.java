@@ -0,0 +1,209 @@
+/* LongIntHashTable.java */
+
+package dict;
+
+import java.util.Arrays;
+
+/**
+ *  LongIntHashTable maps primitive long keys to non-negative int values.  It
+ *  works like LongHashTable, with open addressing, linear probing, and
+ *  backward-shift removal, but keeps its values unboxed in an int[] array
+ *  as well, so that find(), insert() and remove() never allocate.
+ *
+ *  Each key appears at most once:  inserting an existing key replaces its
+ *  value.  Values may not be negative; NO_VALUE marks an empty slot, and is
+ *  what find() and remove() return for a missing key.
+ **/
+
+public class LongIntHashTable {
+
+  public static final int NO_VALUE = -1;
+
+  private static final int MIN_CAPACITY = 16;
+
+  protected long[] keys;
+  protected int[] values;
+  protected int size;
+  private int mask;
+  private boolean shrinkSuspended;
+
+  /**
+   *  Construct a new empty table with a default size.
+   **/
+
+  public LongIntHashTable() {
+    allocate(MIN_CAPACITY);
+  }
+
+  /**
+   *  Stop remove() from shrinking the table until resumeShrink() is called,
+   *  so a large batch of removals rebuilds the table at most once.
+   **/
+
+  public void suspendShrink() {
+    shrinkSuspended = true;
+  }
+
+  /**
+   *  Let remove() shrink the table again, and shrink it now, once, if the
+   *  removals since suspendShrink() left it too sparse.
+   **/
+
+  public void resumeShrink() {
+    shrinkSuspended = false;
+    int wanted = capacityFor(size);
+    if (keys.length > MIN_CAPACITY && size * 8 < keys.length && wanted < keys.length) {
+      rehash(wanted);
+    }
+  }
+
+  /**
+   *  Returns the number of entries stored in the table.
+   **/
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   *  Returns the current load factor:  entries per slot.
+   **/
+
+  public float loadFactor() {
+    return (float) size / keys.length;
+  }
+
+  /**
+   *  Search for the entry with the specified key, and return its value, or
+   *  NO_VALUE if there is no such entry.
+   *
+   *  Running time:  O(1) expected.
+   **/
+
+  public int find(long key) {
+    return values[slot(key)];
+  }
+
+  /**
+   *  Associate "value" with "key", replacing any value the key already had.
+   *  Returns the value replaced, or NO_VALUE if the key is new.
+   *
+   *  Running time:  O(1) expected, amortized.
+   *
+   *  @throws IllegalArgumentException if value is negative.
+   **/
+
+  public int insert(long key, int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("LongIntHashTable values may not be negative");
+    }
+    int i = slot(key);
+    int old = values[i];
+    keys[i] = key;
+    values[i] = value;
+    if (old == NO_VALUE) {
+      size++;
+      if (size * 4 > keys.length * 3) {
+        rehash(keys.length * 2);
+      }
+    }
+    return old;
+  }
+
+  /**
+   *  Remove the entry with the specified key, and return its value, or
+   *  NO_VALUE if there is no such entry.  The table shrinks when it falls
+   *  below one eighth full.
+   *
+   *  Running time:  O(1) expected, amortized.
+   **/
+
+  public int remove(long key) {
+    int hole = slot(key);
+    int old = values[hole];
+    if (old == NO_VALUE) {
+      return NO_VALUE;
+    }
+
+    // Shift each later member of the run back into the hole unless its home
+    // slot lies cyclically in (hole, i].
+    int i = hole;
+    while (true) {
+      i = (i + 1) & mask;
+      if (values[i] == NO_VALUE) {
+        break;
+      }
+      int home = hash(keys[i]) & mask;
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        keys[hole] = keys[i];
+        values[hole] = values[i];
+        hole = i;
+      }
+    }
+    values[hole] = NO_VALUE;
+    size--;
+
+    if (!shrinkSuspended && keys.length > MIN_CAPACITY && size * 8 < keys.length) {
+      rehash(keys.length / 2);
+    }
+    return old;
+  }
+
+  /**
+   *  Remove all entries from the table.
+   **/
+
+  public void makeEmpty() {
+    allocate(MIN_CAPACITY);
+  }
+
+  /**
+   *  slot() returns the slot holding "key", or the empty slot that ends its
+   *  probe run if the key is absent.
+   **/
+
+  private int slot(long key) {
+    int i = hash(key) & mask;
+    while (values[i] != NO_VALUE && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  private static int hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+
+  private static int capacityFor(int sizeEstimate) {
+    int capacity = MIN_CAPACITY;
+    while ((long) capacity * 3 < (long) sizeEstimate * 4 && capacity < (1 << 30)) {
+      capacity *= 2;
+    }
+    return capacity;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    Arrays.fill(values, NO_VALUE);
+    mask = capacity - 1;
+    size = 0;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != NO_VALUE) {
+        int j = slot(oldKeys[i]);
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+        size++;
+      }
+    }
+  }
+}
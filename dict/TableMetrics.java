@@ -0,0 +1,90 @@
+/* TableMetrics.java */
+
+package dict;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  TableMetrics counts what a HashTableChained does on its hot paths:  how
+ *  many entries each find() walks past in its chain, and how often and how
+ *  long the table is rebuilt by resizing.  Attach one with
+ *  HashTableChained.setMetrics(); a table with no TableMetrics pays only a
+ *  null test.  The counters may be read from any thread.
+ **/
+
+public class TableMetrics {
+
+  private final LongAdder finds = new LongAdder();
+  private final LongAdder probes = new LongAdder();
+  private final AtomicLong maxProbes = new AtomicLong();
+  private final LongAdder resizes = new LongAdder();
+  private final LongAdder resizeNanos = new LongAdder();
+  private final AtomicLong maxResizeNanos = new AtomicLong();
+
+  /**
+   *  Record a find() that compared "length" chain entries.
+   **/
+
+  void findProbed(int length) {
+    finds.increment();
+    probes.add(length);
+    if (length > maxProbes.get()) {
+      maxProbes.accumulateAndGet(length, Math::max);
+    }
+  }
+
+  /**
+   *  Record a resize that took "nanos" nanoseconds.
+   **/
+
+  void resized(long nanos) {
+    resizes.increment();
+    resizeNanos.add(nanos);
+    if (nanos > maxResizeNanos.get()) {
+      maxResizeNanos.accumulateAndGet(nanos, Math::max);
+    }
+  }
+
+  public long findCount() {
+    return finds.sum();
+  }
+
+  /**
+   *  Returns the mean number of chain entries compared per find().
+   **/
+
+  public double meanProbes() {
+    long count = finds.sum();
+    return count == 0 ? 0 : (double) probes.sum() / count;
+  }
+
+  public long maxProbes() {
+    return maxProbes.get();
+  }
+
+  public long resizeCount() {
+    return resizes.sum();
+  }
+
+  public long resizeNanos() {
+    return resizeNanos.sum();
+  }
+
+  public long maxResizeNanos() {
+    return maxResizeNanos.get();
+  }
+
+  /**
+   *  Set every counter back to zero.
+   **/
+
+  public void reset() {
+    finds.reset();
+    probes.reset();
+    maxProbes.set(0);
+    resizes.reset();
+    resizeNanos.reset();
+    maxResizeNanos.set(0);
+  }
+}
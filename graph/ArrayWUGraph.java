@@ -0,0 +1,310 @@
+/* ArrayWUGraph.java */
+
+package graph;
+
+import dict.Entry;
+import dict.HashTableChained;
+
+/**
+ * The ArrayWUGraph class is a weighted, undirected graph with the same
+ * operations as WUGraph, but a struct-of-arrays adjacency layout in place
+ * of per-vertex DLists of HalfEdges.  Self-edges are permitted.
+ *
+ * Each vertex object is given a small int id, and the edges are kept in an
+ * IntWUGraph over those ids:  per vertex, three parallel growable arrays of
+ * neighbor id, weight, and the slot of the sibling half-edge in the
+ * neighbor's arrays.  Removing an edge moves the last half-edge of each row
+ * into the hole and patches its sibling's slot, so removal stays O(1) once
+ * the edge is found, and a neighbor scan reads contiguous memory instead of
+ * chasing list nodes.  Ids of removed vertices are reused, so the id space,
+ * and with it the arrays, stays as small as the largest vertex count.
+ *
+ * Unlike WUGraph, getNeighbors() lists neighbors in array order, which
+ * changes when edges are removed.
+ */
+
+public class ArrayWUGraph implements GraphView {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  //Real vertex object -> Integer id, and id -> real vertex object.
+  private HashTableChained vertexIds;
+  private Object[] vertices;
+
+  //Ids given up by removeVertex(), handed out again before new ones.
+  private int[] freeIds;
+  private int freeIdCount;
+  private int nextId;
+
+  private IntWUGraph adjacency;
+
+  /**
+   * ArrayWUGraph() constructs a graph having no vertices or edges.
+   * Running time:  O(1).
+   */
+
+  public ArrayWUGraph() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * ArrayWUGraph() constructs a graph having no vertices or edges, with room
+   * for roughly vertexEstimate vertices before any table needs to grow.
+   *
+   * Running time:  O(vertexEstimate).
+   */
+
+  public ArrayWUGraph(int vertexEstimate) {
+    int capacity = Math.max(vertexEstimate, 1);
+    vertexIds = new HashTableChained(capacity);
+    vertices = new Object[capacity];
+    freeIds = new int[INITIAL_CAPACITY];
+    adjacency = new IntWUGraph(capacity);
+  }
+
+  /**
+   * vertexCount() returns the number of vertices in the graph.
+   * Running time:  O(1).
+   */
+
+  public int vertexCount() {
+    return adjacency.vertexCount();
+  }
+
+  /**
+   * edgeCount() returns the total number of edges in the graph.
+   * Running time:  O(1).
+   */
+
+  public int edgeCount() {
+    return adjacency.edgeCount();
+  }
+
+  /**
+   * getVertices() returns an array containing all the objects that serve
+   * as vertices of the graph, in id order.  The array's length is exactly
+   * equal to the number of vertices.
+   *
+   * Running time:  O(|V|).
+   */
+
+  public Object[] getVertices() {
+    Object[] result = new Object[adjacency.vertexCount()];
+    int i = 0;
+    for (int id = 0; id < nextId; id++) {
+      if (vertices[id] != null) {
+        result[i] = vertices[id];
+        i++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * addVertex() adds a vertex (with no incident edges) to the graph.
+   * If this object is already a vertex of the graph, the graph is unchanged.
+   *
+   * Running time:  O(1), amortized.
+   */
+
+  public void addVertex(Object vertex) {
+    if (id(vertex) != -1) {
+      return;
+    }
+
+    int id;
+    if (freeIdCount > 0) {
+      freeIdCount--;
+      id = freeIds[freeIdCount];
+    } else {
+      if (nextId == vertices.length) {
+        Object[] grown = new Object[vertices.length * 2];
+        System.arraycopy(vertices, 0, grown, 0, nextId);
+        vertices = grown;
+      }
+      id = nextId;
+      nextId++;
+    }
+
+    vertices[id] = vertex;
+    vertexIds.insert(vertex, Integer.valueOf(id));
+    adjacency.addVertex(id);
+  }
+
+  /**
+   * removeVertex() removes a vertex from the graph.  All edges incident on
+   * the deleted vertex are removed.  If the parameter "vertex" does not
+   * represent a vertex of the graph, the graph is unchanged.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public void removeVertex(Object vertex) {
+    int id = id(vertex);
+    if (id == -1) {
+      return;
+    }
+
+    adjacency.removeVertex(id);
+    vertexIds.remove(vertex);
+    vertices[id] = null;
+    if (freeIdCount == freeIds.length) {
+      int[] grown = new int[freeIds.length * 2];
+      System.arraycopy(freeIds, 0, grown, 0, freeIdCount);
+      freeIds = grown;
+    }
+    freeIds[freeIdCount] = id;
+    freeIdCount++;
+  }
+
+  /**
+   * isVertex() returns true if the parameter "vertex" represents a vertex of
+   * the graph.
+   *
+   * Running time:  O(1).
+   */
+
+  public boolean isVertex(Object vertex) {
+    return id(vertex) != -1;
+  }
+
+  /**
+   * degree() returns the degree of a vertex.  Self-edges add only one to the
+   * degree of a vertex.  If the parameter "vertex" doesn't represent a vertex
+   * of the graph, zero is returned.
+   *
+   * Running time:  O(1).
+   */
+
+  public int degree(Object vertex) {
+    int id = id(vertex);
+    if (id == -1) {
+      return 0;
+    }
+    return adjacency.degree(id);
+  }
+
+  /**
+   * getNeighbors() returns a new Neighbors object listing the neighbors of
+   * "vertex" and the weights of the corresponding edges.  If the vertex has
+   * degree zero, or if "vertex" is not a vertex of the graph, null is
+   * returned.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public Neighbors getNeighbors(Object vertex) {
+    int id = id(vertex);
+    if (id == -1 || adjacency.degree(id) == 0) {
+      return null;
+    }
+
+    int degree = adjacency.degree(id);
+    Neighbors neighbors = new Neighbors();
+    neighbors.neighborList = new Object[degree];
+    neighbors.weightList = new int[degree];
+    for (int i = 0; i < degree; i++) {
+      neighbors.neighborList[i] = vertices[adjacency.neighbor(id, i)];
+      neighbors.weightList[i] = adjacency.neighborWeight(id, i);
+    }
+    return neighbors;
+  }
+
+  /**
+   * forEachNeighbor() calls visitor.visit() once for each edge incident on
+   * "vertex", in the same order getNeighbors() would list them, without
+   * allocating.  If "vertex" is not a vertex of the graph, the visitor is
+   * never called.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public void forEachNeighbor(Object vertex, NeighborVisitor visitor) {
+    int id = id(vertex);
+    if (id == -1) {
+      return;
+    }
+    int degree = adjacency.degree(id);
+    for (int i = 0; i < degree; i++) {
+      visitor.visit(vertices[adjacency.neighbor(id, i)], adjacency.neighborWeight(id, i));
+    }
+  }
+
+  /**
+   * addEdge() adds an edge (u, v) to the graph.  If either of the parameters
+   * u and v does not represent a vertex of the graph, the graph is
+   * unchanged.  The edge is assigned a weight of "weight".  If the graph
+   * already contains edge (u, v), the weight is updated to reflect the new
+   * value.  Self-edges (where u.equals(v)) are allowed.
+   *
+   * Running time:  O(1) expected, amortized.
+   */
+
+  public void addEdge(Object u, Object v, int weight) {
+    int uId = id(u);
+    int vId = id(v);
+    if (uId != -1 && vId != -1) {
+      adjacency.addEdge(uId, vId, weight);
+    }
+  }
+
+  /**
+   * removeEdge() removes an edge (u, v) from the graph.  If either of the
+   * parameters u and v does not represent a vertex of the graph, the graph
+   * is unchanged.  If (u, v) is not an edge of the graph, the graph is
+   * unchanged.
+   *
+   * Running time:  O(1) expected, amortized.
+   */
+
+  public void removeEdge(Object u, Object v) {
+    int uId = id(u);
+    int vId = id(v);
+    if (uId != -1 && vId != -1) {
+      adjacency.removeEdge(uId, vId);
+    }
+  }
+
+  /**
+   * isEdge() returns true if (u, v) is an edge of the graph.  Returns false
+   * if (u, v) is not an edge (including the case where either of the
+   * parameters u and v does not represent a vertex of the graph).
+   *
+   * Running time:  O(1) expected.
+   */
+
+  public boolean isEdge(Object u, Object v) {
+    int uId = id(u);
+    int vId = id(v);
+    return uId != -1 && vId != -1 && adjacency.isEdge(uId, vId);
+  }
+
+  /**
+   * weight() returns the weight of (u, v).  Returns zero if (u, v) is not
+   * an edge (including the case where either of the parameters u and v does
+   * not represent a vertex of the graph).
+   *
+   * Running time:  O(1) expected.
+   */
+
+  public int weight(Object u, Object v) {
+    int uId = id(u);
+    int vId = id(v);
+    if (uId == -1 || vId == -1) {
+      return 0;
+    }
+    return adjacency.weight(uId, vId);
+  }
+
+  /**
+   * id() returns the id of "vertex", or -1 if it is not a vertex.
+   */
+
+  private int id(Object vertex) {
+    Entry entry = vertexIds.find(vertex);
+    if (entry == null) {
+      return -1;
+    }
+    return ((Integer) entry.value()).intValue();
+  }
+}
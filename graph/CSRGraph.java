@@ -0,0 +1,439 @@
+/* CSRGraph.java */
+
+package graph;
+
+import dict.Entry;
+import dict.HashTableChained;
+import java.util.Arrays;
+
+/**
+ * The CSRGraph class is an immutable, compressed-sparse-row snapshot of a
+ * WUGraph, produced by WUGraph.freeze().  Each vertex is given a dense id in
+ * 0...vertexCount() - 1.  The neighbors of vertex id i are stored in the
+ * contiguous range offset(i)...offset(i + 1) - 1 of a single targets array,
+ * with the matching edge weights at the same positions of a single weights
+ * array.  Each row is sorted by neighbor id, so point lookups use binary
+ * search.
+ *
+ * As in WUGraph, a self-edge appears only once in its vertex's row, and adds
+ * only one to that vertex's degree.
+ */
+
+public class CSRGraph implements GraphView {
+
+  //Dense id -> real vertex object.
+  private final Object[] vertices;
+
+  //Real vertex object -> Integer dense id.
+  private final HashTableChained vertexIds;
+
+  //Row i occupies targets[offsets[i]]...targets[offsets[i + 1] - 1].
+  private final int[] offsets;
+  private final int[] targets;
+  private final int[] weights;
+
+  private final int edgeCount;
+
+  /**
+   * CSRGraph() wraps arrays already laid out in CSR form.  The arrays are
+   * adopted, not copied, so callers must not keep references to them.
+   * Every row must already be sorted by neighbor id.
+   */
+
+  CSRGraph(Object[] vertices, HashTableChained vertexIds, int[] offsets,
+           int[] targets, int[] weights, int edgeCount) {
+    this.vertices = vertices;
+    this.vertexIds = vertexIds;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+    this.edgeCount = edgeCount;
+  }
+
+  /**
+   * vertexCount() returns the number of vertices in the graph.
+   * Running time:  O(1).
+   */
+
+  public int vertexCount() {
+    return vertices.length;
+  }
+
+  /**
+   * edgeCount() returns the total number of edges in the graph.
+   * Running time:  O(1).
+   */
+
+  public int edgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * getVertices() returns a new array containing all the objects that serve
+   * as vertices of the graph, indexed by dense id.
+   *
+   * Running time:  O(|V|).
+   */
+
+  public Object[] getVertices() {
+    Object[] result = new Object[vertices.length];
+    System.arraycopy(vertices, 0, result, 0, vertices.length);
+    return result;
+  }
+
+  /**
+   * vertex() returns the real vertex object that has dense id "id".
+   * Running time:  O(1).
+   */
+
+  public Object vertex(int id) {
+    return vertices[id];
+  }
+
+  /**
+   * id() returns the dense id of "vertex", or -1 if "vertex" is not a vertex
+   * of the graph.
+   *
+   * Running time:  O(1).
+   */
+
+  public int id(Object vertex) {
+    Entry entry = vertexIds.find(vertex);
+    if (entry == null) {
+      return -1;
+    } else {
+      return ((Integer) entry.value()).intValue();
+    }
+  }
+
+  /**
+   * isVertex() returns true if the parameter "vertex" represents a vertex of
+   * the graph.
+   *
+   * Running time:  O(1).
+   */
+
+  public boolean isVertex(Object vertex) {
+    return id(vertex) != -1;
+  }
+
+  /**
+   * degree() returns the degree of a vertex, or zero if "vertex" is not a
+   * vertex of the graph.
+   *
+   * Running time:  O(1).
+   */
+
+  public int degree(Object vertex) {
+    int id = id(vertex);
+    if (id == -1) {
+      return 0;
+    }
+    return offsets[id + 1] - offsets[id];
+  }
+
+  /**
+   * offset() returns the index of the first neighbor of vertex id "id" in the
+   * targets array.  The row ends just before offset(id + 1), so offset() is
+   * defined for every id in 0...vertexCount().
+   *
+   * Running time:  O(1).
+   */
+
+  public int offset(int id) {
+    return offsets[id];
+  }
+
+  /**
+   * target() returns the dense id of the neighbor stored at index "slot" of
+   * the targets array.
+   *
+   * Running time:  O(1).
+   */
+
+  public int target(int slot) {
+    return targets[slot];
+  }
+
+  /**
+   * targetWeight() returns the weight of the edge stored at index "slot" of
+   * the targets array.
+   *
+   * Running time:  O(1).
+   */
+
+  public int targetWeight(int slot) {
+    return weights[slot];
+  }
+
+  /**
+   * getNeighbors() returns a new Neighbors object with the same contents
+   * WUGraph.getNeighbors() would have returned when the snapshot was taken,
+   * ordered by neighbor id.  If the vertex has degree zero, or if "vertex" is
+   * not a vertex of the graph, null is returned.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public Neighbors getNeighbors(Object vertex) {
+    int id = id(vertex);
+    if (id == -1 || offsets[id] == offsets[id + 1]) {
+      return null;
+    }
+
+    int start = offsets[id];
+    int degree = offsets[id + 1] - start;
+    Neighbors neighbors = new Neighbors();
+    neighbors.neighborList = new Object[degree];
+    neighbors.weightList = new int[degree];
+    for (int i = 0; i < degree; i++) {
+      neighbors.neighborList[i] = vertices[targets[start + i]];
+      neighbors.weightList[i] = weights[start + i];
+    }
+    return neighbors;
+  }
+
+  /**
+   * forEachNeighbor() calls visitor.visit() once for each edge incident on
+   * "vertex", in the same order getNeighbors() would list them, without
+   * allocating.  If "vertex" is not a vertex of the graph, the visitor is
+   * never called.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public void forEachNeighbor(Object vertex, NeighborVisitor visitor) {
+    int id = id(vertex);
+    if (id == -1) {
+      return;
+    }
+    for (int slot = offsets[id]; slot < offsets[id + 1]; slot++) {
+      visitor.visit(vertices[targets[slot]], weights[slot]);
+    }
+  }
+
+  /**
+   * isEdge() returns true if (u, v) is an edge of the graph.
+   *
+   * Running time:  O(log d), where d is the degree of "u".
+   */
+
+  public boolean isEdge(Object u, Object v) {
+    return findSlot(u, v) != -1;
+  }
+
+  /**
+   * weight() returns the weight of (u, v), or zero if (u, v) is not an edge.
+   *
+   * Running time:  O(log d), where d is the degree of "u".
+   */
+
+  public int weight(Object u, Object v) {
+    int slot = findSlot(u, v);
+    if (slot == -1) {
+      return 0;
+    }
+    return weights[slot];
+  }
+
+  /**
+   * reorder() returns a copy of the graph whose dense ids, and with them the
+   * rows of the targets and weights arrays, are laid out in "order".  The
+   * vertices and edges are the same; only the ids change.  Scans that
+   * follow edges, such as traversals and Kruskal's edge extraction, then
+   * read memory mostly in sequence.
+   *
+   * Running time:  O(|V| + |E|) for BFS, O(|V| log |V| + |E| log d) for the
+   * others, plus O(|E| log d) to sort the relabeled rows, where d is the
+   * largest degree.
+   */
+
+  public CSRGraph reorder(VertexOrder order) {
+    int n = vertices.length;
+    int[] newToOld;
+    switch (order) {
+    case BFS:
+      newToOld = breadthFirstOrder();
+      break;
+    case REVERSE_CUTHILL_MCKEE:
+      newToOld = reverseCuthillMcKeeOrder();
+      break;
+    default:
+      newToOld = degreeDescendingOrder();
+      break;
+    }
+
+    int[] oldToNew = new int[n];
+    for (int i = 0; i < n; i++) {
+      oldToNew[newToOld[i]] = i;
+    }
+
+    Object[] newVertices = new Object[n];
+    HashTableChained newIds = new HashTableChained(Math.max(n, 1));
+    int[] newOffsets = new int[n + 1];
+    int[] newTargets = new int[targets.length];
+    int[] newWeights = new int[weights.length];
+    long[] row = new long[maxDegree()];
+    for (int i = 0; i < n; i++) {
+      int old = newToOld[i];
+      newVertices[i] = vertices[old];
+      newIds.insert(newVertices[i], Integer.valueOf(i));
+
+      // Relabel the row, then sort it by new id.  Ids in a row are distinct,
+      // so the weight packed in the low half never decides the order.
+      int degree = offsets[old + 1] - offsets[old];
+      for (int k = 0; k < degree; k++) {
+        int slot = offsets[old] + k;
+        row[k] = ((long) oldToNew[targets[slot]] << 32) | (weights[slot] & 0xffffffffL);
+      }
+      Arrays.sort(row, 0, degree);
+      newOffsets[i + 1] = newOffsets[i] + degree;
+      for (int k = 0; k < degree; k++) {
+        newTargets[newOffsets[i] + k] = (int) (row[k] >>> 32);
+        newWeights[newOffsets[i] + k] = (int) row[k];
+      }
+    }
+
+    return new CSRGraph(newVertices, newIds, newOffsets, newTargets, newWeights, edgeCount);
+  }
+
+  private int maxDegree() {
+    int max = 0;
+    for (int id = 0; id < vertices.length; id++) {
+      max = Math.max(max, offsets[id + 1] - offsets[id]);
+    }
+    return max;
+  }
+
+  /**
+   * breadthFirstOrder() returns the ids in breadth-first order, taking each
+   * component in turn from its lowest id, and neighbors in row order.
+   */
+
+  private int[] breadthFirstOrder() {
+    int n = vertices.length;
+    int[] queue = new int[n];
+    boolean[] seen = new boolean[n];
+    int tail = 0;
+    for (int start = 0; start < n; start++) {
+      if (seen[start]) {
+        continue;
+      }
+      seen[start] = true;
+      queue[tail] = start;
+      tail++;
+      for (int head = tail - 1; head < tail; head++) {
+        int u = queue[head];
+        for (int slot = offsets[u]; slot < offsets[u + 1]; slot++) {
+          int v = targets[slot];
+          if (!seen[v]) {
+            seen[v] = true;
+            queue[tail] = v;
+            tail++;
+          }
+        }
+      }
+    }
+    return queue;
+  }
+
+  /**
+   * reverseCuthillMcKeeOrder() returns the ids in Reverse Cuthill-McKee
+   * order:  breadth-first from a minimum-degree vertex of each component,
+   * with the unvisited neighbors of each vertex queued by increasing
+   * degree, and the whole order reversed at the end.
+   */
+
+  private int[] reverseCuthillMcKeeOrder() {
+    int n = vertices.length;
+    int[] byDegree = degreeSortedIds(false);
+    int[] queue = new int[n];
+    boolean[] seen = new boolean[n];
+    long[] scratch = new long[maxDegree()];
+    int tail = 0;
+    for (int s = 0; s < n; s++) {
+      int start = byDegree[s];
+      if (seen[start]) {
+        continue;
+      }
+      seen[start] = true;
+      queue[tail] = start;
+      tail++;
+      for (int head = tail - 1; head < tail; head++) {
+        int u = queue[head];
+        int count = 0;
+        for (int slot = offsets[u]; slot < offsets[u + 1]; slot++) {
+          int v = targets[slot];
+          if (!seen[v]) {
+            seen[v] = true;
+            scratch[count] = ((long) (offsets[v + 1] - offsets[v]) << 32) | v;
+            count++;
+          }
+        }
+        Arrays.sort(scratch, 0, count);
+        for (int k = 0; k < count; k++) {
+          queue[tail] = (int) scratch[k];
+          tail++;
+        }
+      }
+    }
+
+    for (int i = 0, j = n - 1; i < j; i++, j--) {
+      int swap = queue[i];
+      queue[i] = queue[j];
+      queue[j] = swap;
+    }
+    return queue;
+  }
+
+  private int[] degreeDescendingOrder() {
+    return degreeSortedIds(true);
+  }
+
+  /**
+   * degreeSortedIds() returns the ids sorted by degree, ascending or
+   * descending, ties broken by increasing id.
+   */
+
+  private int[] degreeSortedIds(boolean descending) {
+    int n = vertices.length;
+    long[] keys = new long[n];
+    for (int id = 0; id < n; id++) {
+      long degree = offsets[id + 1] - offsets[id];
+      keys[id] = ((descending ? Integer.MAX_VALUE - degree : degree) << 32) | id;
+    }
+    Arrays.sort(keys);
+    int[] result = new int[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = (int) keys[i];
+    }
+    return result;
+  }
+
+  /**
+   * findSlot() binary searches the row of u for v, and returns the index of
+   * (u, v) in the targets array, or -1 if there is no such edge.
+   */
+
+  private int findSlot(Object u, Object v) {
+    int uId = id(u);
+    int vId = id(v);
+    if (uId == -1 || vId == -1) {
+      return -1;
+    }
+
+    int low = offsets[uId];
+    int high = offsets[uId + 1] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (targets[mid] < vId) {
+        low = mid + 1;
+      } else if (targets[mid] > vId) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,591 @@
+/* ConcurrentWUGraph.java */
+
+package graph;
+
+import dict.Entry;
+import dict.HashTableChained;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import list.DList;
+import list.DListNode;
+
+/**
+ * The ConcurrentWUGraph class is a thread-safe weighted, undirected graph
+ * with the same operations as WUGraph.  Self-edges are permitted.
+ *
+ * Vertices are spread over a fixed number of stripes by hash code.  Each
+ * stripe has its own read/write lock, and owns its vertices, their half-edge
+ * lists, and the edges whose lower-numbered endpoint stripe is this stripe.
+ * The lock of a stripe guards everything the stripe owns, so
+ *
+ *   - addEdge() and removeEdge() write-lock the one or two stripes of their
+ *     endpoints, always in increasing stripe order, so they cannot deadlock
+ *     and edits on vertices in disjoint stripes run in parallel;
+ *   - isEdge() and weight() read-lock just the edge's owning stripe, and
+ *     degree(), getNeighbors() and forEachNeighbor() just the vertex's
+ *     stripe, so readers never block each other;
+ *   - removeVertex() write-locks its vertex's stripe plus every stripe one
+ *     of its neighbors lives in, again in increasing order.
+ *
+ * Both half-edges of an edge are only ever changed while both endpoint
+ * stripes are write-locked, so a reader never sees one half without the
+ * other.  vertexCount() and edgeCount() add up per-stripe counts and are
+ * exact whenever no update is in flight; getVertices() read-locks every
+ * stripe and returns a consistent set.
+ */
+
+public class ConcurrentWUGraph implements GraphView {
+
+  private static final int DEFAULT_STRIPES = 16;
+
+  //A stripe mask is kept in a long, so there can be at most 64 stripes.
+  private static final int MAX_STRIPES = 64;
+
+  private final Stripe[] stripes;
+  private final int stripeMask;
+
+  /**
+   * A Stripe owns a share of the vertices and edges, and the lock that
+   * guards them.
+   */
+
+  private static class Stripe {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //Real vertex -> InternalVertex, for the vertices of this stripe.
+    private final HashTableChained vertexHashTable = new HashTableChained();
+    private final DList internalVertices = new DList();
+
+    //VertexPair -> first HalfEdge, for the edges this stripe owns.
+    private final HashTableChained edgeHashTable = new HashTableChained();
+    private int edgeCount;
+  }
+
+  /**
+   * ConcurrentWUGraph() constructs a graph having no vertices or edges,
+   * with a default number of stripes.
+   * Running time:  O(1).
+   */
+
+  public ConcurrentWUGraph() {
+    this(DEFAULT_STRIPES);
+  }
+
+  /**
+   * ConcurrentWUGraph() constructs a graph having no vertices or edges,
+   * spread over "stripeCount" stripes, rounded up to a power of two and
+   * capped at 64.  More stripes allow more updates to run in parallel.
+   * Running time:  O(stripeCount).
+   */
+
+  public ConcurrentWUGraph(int stripeCount) {
+    int count = 1;
+    while (count < stripeCount && count < MAX_STRIPES) {
+      count *= 2;
+    }
+    stripes = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      stripes[i] = new Stripe();
+    }
+    stripeMask = count - 1;
+  }
+
+  /**
+   * vertexCount() returns the number of vertices in the graph.
+   * Running time:  O(s), where s is the number of stripes.
+   */
+
+  public int vertexCount() {
+    int count = 0;
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i].lock.readLock().lock();
+      try {
+        count += stripes[i].internalVertices.length();
+      } finally {
+        stripes[i].lock.readLock().unlock();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * edgeCount() returns the total number of edges in the graph.
+   * Running time:  O(s), where s is the number of stripes.
+   */
+
+  public int edgeCount() {
+    int count = 0;
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i].lock.readLock().lock();
+      try {
+        count += stripes[i].edgeCount;
+      } finally {
+        stripes[i].lock.readLock().unlock();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * getVertices() returns an array containing all the objects that serve as
+   * vertices of the graph.  Every stripe is read-locked while the array is
+   * filled, so the result is a set of vertices that existed all at once.
+   *
+   * Running time:  O(|V| + s).
+   */
+
+  public Object[] getVertices() {
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i].lock.readLock().lock();
+    }
+    try {
+      int count = 0;
+      for (int i = 0; i < stripes.length; i++) {
+        count += stripes[i].internalVertices.length();
+      }
+
+      Object[] result = new Object[count];
+      int k = 0;
+      for (int i = 0; i < stripes.length; i++) {
+        DList internalVertices = stripes[i].internalVertices;
+        DListNode currentVertex = internalVertices.front();
+        while (currentVertex != null) {
+          result[k] = ((InternalVertex) currentVertex.item).realVertex;
+          k++;
+          currentVertex = internalVertices.next(currentVertex);
+        }
+      }
+      return result;
+    } finally {
+      for (int i = stripes.length - 1; i >= 0; i--) {
+        stripes[i].lock.readLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * addVertex() adds a vertex (with no incident edges) to the graph.  If this
+   * object is already a vertex of the graph, the graph is unchanged.
+   *
+   * Running time:  O(1).
+   */
+
+  public void addVertex(Object vertex) {
+    Stripe stripe = stripes[stripeOf(vertex)];
+    stripe.lock.writeLock().lock();
+    try {
+      if (stripe.vertexHashTable.find(vertex) == null) {
+        InternalVertex newVertex = new InternalVertex(vertex);
+        stripe.vertexHashTable.insert(vertex, newVertex);
+        stripe.internalVertices.insertFront(newVertex);
+        newVertex.parentDlistNode = stripe.internalVertices.front();
+      }
+    } finally {
+      stripe.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * removeVertex() removes a vertex from the graph.  All edges incident on
+   * the deleted vertex are removed.  If "vertex" is not a vertex of the
+   * graph, the graph is unchanged.
+   *
+   * The stripes of the vertex's neighbors are found under a read lock, then
+   * write-locked in increasing order.  Once the vertex's own stripe is
+   * write-locked no new edge can reach it, so if the neighbor stripes have
+   * not changed in between, every half-edge to unlink is covered.  If they
+   * have, the locks are dropped and the wider set is tried again.
+   *
+   * Running time:  O(d + s), where d is the degree of "vertex".
+   */
+
+  public void removeVertex(Object vertex) {
+    int home = stripeOf(vertex);
+    long wanted = neighborStripes(vertex, home);
+
+    while (true) {
+      long locked = wanted;
+      lockStripes(locked);
+      try {
+        InternalVertex target = findVertex(vertex, home);
+        if (target == null) {
+          return;
+        }
+        long needed = stripeMaskOf(target, home);
+        if ((needed & ~locked) == 0) {
+          unlinkVertex(target, home);
+          return;
+        }
+        wanted = locked | needed;
+      } finally {
+        unlockStripes(locked);
+      }
+    }
+  }
+
+  /**
+   * isVertex() returns true if the parameter "vertex" represents a vertex of
+   * the graph.
+   *
+   * Running time:  O(1).
+   */
+
+  public boolean isVertex(Object vertex) {
+    int home = stripeOf(vertex);
+    stripes[home].lock.readLock().lock();
+    try {
+      return findVertex(vertex, home) != null;
+    } finally {
+      stripes[home].lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * degree() returns the degree of a vertex.  Self-edges add only one to the
+   * degree of a vertex.  If "vertex" is not a vertex of the graph, zero is
+   * returned.
+   *
+   * Running time:  O(1).
+   */
+
+  public int degree(Object vertex) {
+    int home = stripeOf(vertex);
+    stripes[home].lock.readLock().lock();
+    try {
+      InternalVertex internalVertex = findVertex(vertex, home);
+      if (internalVertex == null) {
+        return 0;
+      }
+      return internalVertex.edgeList.length();
+    } finally {
+      stripes[home].lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * getNeighbors() returns a new Neighbors object listing the neighbors of
+   * "vertex" and the weights of the corresponding edges, exactly as
+   * WUGraph.getNeighbors() does.  If the vertex has degree zero, or if
+   * "vertex" is not a vertex of the graph, null is returned.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public Neighbors getNeighbors(Object vertex) {
+    int home = stripeOf(vertex);
+    stripes[home].lock.readLock().lock();
+    try {
+      InternalVertex internalVertex = findVertex(vertex, home);
+      if (internalVertex == null || internalVertex.edgeList.length() == 0) {
+        return null;
+      }
+
+      DList edgeList = internalVertex.edgeList;
+      Neighbors neighbors = new Neighbors();
+      neighbors.neighborList = new Object[edgeList.length()];
+      neighbors.weightList = new int[edgeList.length()];
+      DListNode currentEdge = edgeList.front();
+      for (int i = 0; currentEdge != null; i++) {
+        HalfEdge halfEdge = (HalfEdge) currentEdge.item;
+        neighbors.neighborList[i] = otherEnd(halfEdge, internalVertex).realVertex;
+        neighbors.weightList[i] = halfEdge.weight;
+        currentEdge = edgeList.next(currentEdge);
+      }
+      return neighbors;
+    } finally {
+      stripes[home].lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * forEachNeighbor() calls visitor.visit() once for each edge incident on
+   * "vertex", as WUGraph.forEachNeighbor() does.  The vertex's stripe stays
+   * read-locked while the visitor runs, so the visitor must not change this
+   * graph.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public void forEachNeighbor(Object vertex, NeighborVisitor visitor) {
+    int home = stripeOf(vertex);
+    stripes[home].lock.readLock().lock();
+    try {
+      InternalVertex internalVertex = findVertex(vertex, home);
+      if (internalVertex == null) {
+        return;
+      }
+
+      DList edgeList = internalVertex.edgeList;
+      DListNode currentEdge = edgeList.front();
+      while (currentEdge != null) {
+        HalfEdge halfEdge = (HalfEdge) currentEdge.item;
+        visitor.visit(otherEnd(halfEdge, internalVertex).realVertex, halfEdge.weight);
+        currentEdge = edgeList.next(currentEdge);
+      }
+    } finally {
+      stripes[home].lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * addEdge() adds an edge (u, v) to the graph.  If either of u and v is not
+   * a vertex of the graph, the graph is unchanged.  If the graph already
+   * contains edge (u, v), the weight is updated to reflect the new value.
+   * Self-edges are allowed.
+   *
+   * Running time:  O(1).
+   */
+
+  public void addEdge(Object u, Object v, int weight) {
+    int stripe_u = stripeOf(u);
+    int stripe_v = stripeOf(v);
+    lockPair(stripe_u, stripe_v);
+    try {
+      InternalVertex internalVertex_u = findVertex(u, stripe_u);
+      InternalVertex internalVertex_v = findVertex(v, stripe_v);
+      if (internalVertex_u == null || internalVertex_v == null) {
+        return;
+      }
+
+      Stripe owner = stripes[Math.min(stripe_u, stripe_v)];
+      VertexPair vertexPair = new VertexPair(u, v);
+      Entry vertexPairEntry = owner.edgeHashTable.find(vertexPair);
+      if (vertexPairEntry != null) {
+        HalfEdge halfEdge = (HalfEdge) vertexPairEntry.value();
+        halfEdge.weight = weight;
+        halfEdge.siblingEdge.weight = weight;
+        return;
+      }
+
+      HalfEdge firstHalfEdge = new HalfEdge(internalVertex_u, internalVertex_v, weight);
+      HalfEdge secondHalfEdge = new HalfEdge(internalVertex_u, internalVertex_v, weight);
+      firstHalfEdge.setSiblingEdge(secondHalfEdge);
+      secondHalfEdge.setSiblingEdge(firstHalfEdge);
+
+      internalVertex_u.edgeList.insertFront(firstHalfEdge);
+      firstHalfEdge.parentDListNode = internalVertex_u.edgeList.front();
+
+      // A self-edge is listed only once.
+      if (internalVertex_u != internalVertex_v) {
+        internalVertex_v.edgeList.insertFront(secondHalfEdge);
+        secondHalfEdge.parentDListNode = internalVertex_v.edgeList.front();
+      }
+
+      owner.edgeHashTable.insert(vertexPair, firstHalfEdge);
+      owner.edgeCount++;
+    } finally {
+      unlockPair(stripe_u, stripe_v);
+    }
+  }
+
+  /**
+   * removeEdge() removes an edge (u, v) from the graph.  If either of u and v
+   * is not a vertex of the graph, or (u, v) is not an edge, the graph is
+   * unchanged.
+   *
+   * Running time:  O(1).
+   */
+
+  public void removeEdge(Object u, Object v) {
+    int stripe_u = stripeOf(u);
+    int stripe_v = stripeOf(v);
+    lockPair(stripe_u, stripe_v);
+    try {
+      Stripe owner = stripes[Math.min(stripe_u, stripe_v)];
+      Entry vertexPairEntry = owner.edgeHashTable.remove(new VertexPair(u, v));
+      if (vertexPairEntry == null) {
+        return;
+      }
+
+      HalfEdge firstHalfEdge = (HalfEdge) vertexPairEntry.value();
+      unlinkHalfEdges(firstHalfEdge);
+      owner.edgeCount--;
+    } finally {
+      unlockPair(stripe_u, stripe_v);
+    }
+  }
+
+  /**
+   * isEdge() returns true if (u, v) is an edge of the graph.
+   * Running time:  O(1).
+   */
+
+  public boolean isEdge(Object u, Object v) {
+    Stripe owner = stripes[Math.min(stripeOf(u), stripeOf(v))];
+    owner.lock.readLock().lock();
+    try {
+      return owner.edgeHashTable.find(new VertexPair(u, v)) != null;
+    } finally {
+      owner.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * weight() returns the weight of (u, v).  Returns zero if (u, v) is not an
+   * edge.
+   *
+   * Running time:  O(1).
+   */
+
+  public int weight(Object u, Object v) {
+    Stripe owner = stripes[Math.min(stripeOf(u), stripeOf(v))];
+    owner.lock.readLock().lock();
+    try {
+      Entry hashResult = owner.edgeHashTable.find(new VertexPair(u, v));
+      if (hashResult == null) {
+        return 0;
+      }
+      return ((HalfEdge) hashResult.value()).weight;
+    } finally {
+      owner.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * stripeOf() returns the stripe a vertex belongs to.  The hash code is
+   * spread first so that keys differing only in high bits still scatter.
+   */
+
+  private int stripeOf(Object vertex) {
+    int h = vertex.hashCode();
+    h ^= (h >>> 16);
+    h ^= (h >>> 7);
+    return h & stripeMask;
+  }
+
+  /**
+   * findVertex() returns the InternalVertex of "vertex", which lives in
+   * stripe "home", or null.  The caller must hold home's lock.
+   */
+
+  private InternalVertex findVertex(Object vertex, int home) {
+    Entry entry = stripes[home].vertexHashTable.find(vertex);
+    if (entry == null) {
+      return null;
+    }
+    return (InternalVertex) entry.value();
+  }
+
+  /**
+   * neighborStripes() returns the stripe mask removeVertex() should start
+   * with:  the vertex's own stripe and the stripes of its current neighbors.
+   */
+
+  private long neighborStripes(Object vertex, int home) {
+    stripes[home].lock.readLock().lock();
+    try {
+      InternalVertex internalVertex = findVertex(vertex, home);
+      if (internalVertex == null) {
+        return 1L << home;
+      }
+      return stripeMaskOf(internalVertex, home);
+    } finally {
+      stripes[home].lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * stripeMaskOf() returns a mask with a bit set for "home" and for the
+   * stripe of every neighbor of internalVertex.  The caller must hold home's
+   * lock.
+   */
+
+  private long stripeMaskOf(InternalVertex internalVertex, int home) {
+    long mask = 1L << home;
+    DList edgeList = internalVertex.edgeList;
+    DListNode currentEdge = edgeList.front();
+    while (currentEdge != null) {
+      HalfEdge halfEdge = (HalfEdge) currentEdge.item;
+      mask |= 1L << stripeOf(otherEnd(halfEdge, internalVertex).realVertex);
+      currentEdge = edgeList.next(currentEdge);
+    }
+    return mask;
+  }
+
+  /**
+   * unlinkVertex() removes "target" and all of its edges.  The caller must
+   * hold the write locks of its stripe and of all its neighbors' stripes.
+   */
+
+  private void unlinkVertex(InternalVertex target, int home) {
+    DList edgeList = target.edgeList;
+    DListNode currentEdge = edgeList.front();
+    while (currentEdge != null) {
+      HalfEdge halfEdge = (HalfEdge) currentEdge.item;
+      InternalVertex other = otherEnd(halfEdge, target);
+      Stripe owner = stripes[Math.min(home, stripeOf(other.realVertex))];
+      owner.edgeHashTable.remove(new VertexPair(target.realVertex, other.realVertex));
+      owner.edgeCount--;
+      if (other != target) {
+        other.edgeList.remove(halfEdge.siblingEdge.getParentDListNode());
+      }
+      currentEdge = edgeList.next(currentEdge);
+    }
+
+    stripes[home].internalVertices.remove(target.parentDlistNode);
+    stripes[home].vertexHashTable.remove(target.realVertex);
+  }
+
+  /**
+   * unlinkHalfEdges() removes both halves of an edge from their vertices'
+   * edge lists.  A self-edge has only its first half listed.
+   */
+
+  private void unlinkHalfEdges(HalfEdge firstHalfEdge) {
+    HalfEdge secondHalfEdge = firstHalfEdge.siblingEdge;
+    firstHalfEdge.internalVert1.edgeList.remove(firstHalfEdge.getParentDListNode());
+    if (firstHalfEdge.internalVert1 != firstHalfEdge.internalVert2) {
+      firstHalfEdge.internalVert2.edgeList.remove(secondHalfEdge.getParentDListNode());
+    }
+  }
+
+  /**
+   * otherEnd() returns the endpoint of halfEdge that is not internalVertex
+   * (or internalVertex itself, for a self-edge).
+   */
+
+  private static InternalVertex otherEnd(HalfEdge halfEdge, InternalVertex internalVertex) {
+    if (halfEdge.internalVert1 == internalVertex) {
+      return halfEdge.internalVert2;
+    }
+    return halfEdge.internalVert1;
+  }
+
+  /**
+   * lockPair() write-locks stripes a and b, lower index first.
+   */
+
+  private void lockPair(int a, int b) {
+    stripes[Math.min(a, b)].lock.writeLock().lock();
+    if (a != b) {
+      stripes[Math.max(a, b)].lock.writeLock().lock();
+    }
+  }
+
+  private void unlockPair(int a, int b) {
+    if (a != b) {
+      stripes[Math.max(a, b)].lock.writeLock().unlock();
+    }
+    stripes[Math.min(a, b)].lock.writeLock().unlock();
+  }
+
+  /**
+   * lockStripes() write-locks every stripe whose bit is set in "mask", in
+   * increasing order.
+   */
+
+  private void lockStripes(long mask) {
+    for (int i = 0; i < stripes.length; i++) {
+      if ((mask & (1L << i)) != 0) {
+        stripes[i].lock.writeLock().lock();
+      }
+    }
+  }
+
+  private void unlockStripes(long mask) {
+    for (int i = stripes.length - 1; i >= 0; i--) {
+      if ((mask & (1L << i)) != 0) {
+        stripes[i].lock.writeLock().unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/* DirectIntArray.java */
+
+package graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A DirectIntArray is a growable array of ints kept outside the Java heap,
+ * in direct ByteBuffers.  It is indexed by long, so it may hold more than
+ * 2^31 ints.  Storage is split into segments of SEGMENT_INTS ints, since a
+ * single ByteBuffer is limited to 2GB; only the first segment may be
+ * shorter, so small arrays do not pay for a whole segment.
+ *
+ * The memory is given back when the array becomes garbage.  Its total size
+ * is limited by the JVM's -XX:MaxDirectMemorySize setting, not by the heap.
+ */
+
+class DirectIntArray {
+
+  static final int SEGMENT_SHIFT = 20;
+  static final int SEGMENT_INTS = 1 << SEGMENT_SHIFT;
+  private static final int SEGMENT_MASK = SEGMENT_INTS - 1;
+
+  private ByteBuffer[] segments;
+  private long capacity;
+
+  /**
+   * DirectIntArray() constructs an array of at least "capacity" ints, all
+   * zero.
+   */
+
+  DirectIntArray(long capacity) {
+    segments = new ByteBuffer[0];
+    ensureCapacity(Math.max(capacity, 1));
+  }
+
+  long capacity() {
+    return capacity;
+  }
+
+  int get(long index) {
+    return segments[(int) (index >>> SEGMENT_SHIFT)].getInt(((int) index & SEGMENT_MASK) << 2);
+  }
+
+  void set(long index, int value) {
+    segments[(int) (index >>> SEGMENT_SHIFT)].putInt(((int) index & SEGMENT_MASK) << 2, value);
+  }
+
+  /**
+   * fill() sets every int of the array to "value".
+   */
+
+  void fill(int value) {
+    for (int s = 0; s < segments.length; s++) {
+      ByteBuffer segment = segments[s];
+      for (int offset = 0; offset < segment.capacity(); offset += 4) {
+        segment.putInt(offset, value);
+      }
+    }
+  }
+
+  /**
+   * ensureCapacity() grows the array to hold at least "minimum" ints.  New
+   * ints are zero.  The first segment doubles until it is full size;
+   * after that, whole segments are added, and nothing is copied.
+   */
+
+  void ensureCapacity(long minimum) {
+    if (minimum <= capacity) {
+      return;
+    }
+    if (capacity < SEGMENT_INTS) {
+      int length = (int) Math.min(SEGMENT_INTS, Math.max(minimum, 2 * capacity));
+      ByteBuffer first = allocate(length);
+      if (segments.length > 0) {
+        ByteBuffer old = segments[0].duplicate();
+        old.clear();
+        first.put(old);
+        first.clear();
+        segments[0] = first;
+      } else {
+        segments = new ByteBuffer[] { first };
+      }
+      capacity = length;
+    }
+    if (minimum > capacity) {
+      int count = (int) ((minimum + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+      ByteBuffer[] grown = new ByteBuffer[count];
+      System.arraycopy(segments, 0, grown, 0, segments.length);
+      for (int s = segments.length; s < count; s++) {
+        grown[s] = allocate(SEGMENT_INTS);
+      }
+      segments = grown;
+      capacity = (long) count << SEGMENT_SHIFT;
+    }
+  }
+
+  private static ByteBuffer allocate(int ints) {
+    return ByteBuffer.allocateDirect(ints << 2).order(ByteOrder.nativeOrder());
+  }
+}
@@ -0,0 +1,102 @@
+/* DirectLongArray.java */
+
+package graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A DirectLongArray is a growable array of longs kept outside the Java heap,
+ * in direct ByteBuffers.  It is indexed by long, so it may hold more than
+ * 2^31 longs.  Storage is split into segments of SEGMENT_LONGS longs, since a
+ * single ByteBuffer is limited to 2GB; only the first segment may be
+ * shorter, so small arrays do not pay for a whole segment.
+ *
+ * The memory is given back when the array becomes garbage.  Its total size
+ * is limited by the JVM's -XX:MaxDirectMemorySize setting, not by the heap.
+ */
+
+class DirectLongArray {
+
+  static final int SEGMENT_SHIFT = 19;
+  static final int SEGMENT_LONGS = 1 << SEGMENT_SHIFT;
+  private static final int SEGMENT_MASK = SEGMENT_LONGS - 1;
+
+  private ByteBuffer[] segments;
+  private long capacity;
+
+  /**
+   * DirectLongArray() constructs an array of at least "capacity" longs, all
+   * zero.
+   */
+
+  DirectLongArray(long capacity) {
+    segments = new ByteBuffer[0];
+    ensureCapacity(Math.max(capacity, 1));
+  }
+
+  long capacity() {
+    return capacity;
+  }
+
+  long get(long index) {
+    return segments[(int) (index >>> SEGMENT_SHIFT)].getLong(((int) index & SEGMENT_MASK) << 3);
+  }
+
+  void set(long index, long value) {
+    segments[(int) (index >>> SEGMENT_SHIFT)].putLong(((int) index & SEGMENT_MASK) << 3, value);
+  }
+
+  /**
+   * fill() sets every long of the array to "value".
+   */
+
+  void fill(long value) {
+    for (int s = 0; s < segments.length; s++) {
+      ByteBuffer segment = segments[s];
+      for (int offset = 0; offset < segment.capacity(); offset += 8) {
+        segment.putLong(offset, value);
+      }
+    }
+  }
+
+  /**
+   * ensureCapacity() grows the array to hold at least "minimum" longs.  New
+   * longs are zero.  The first segment doubles until it is full size;
+   * after that, whole segments are added, and nothing is copied.
+   */
+
+  void ensureCapacity(long minimum) {
+    if (minimum <= capacity) {
+      return;
+    }
+    if (capacity < SEGMENT_LONGS) {
+      int length = (int) Math.min(SEGMENT_LONGS, Math.max(minimum, 2 * capacity));
+      ByteBuffer first = allocate(length);
+      if (segments.length > 0) {
+        ByteBuffer old = segments[0].duplicate();
+        old.clear();
+        first.put(old);
+        first.clear();
+        segments[0] = first;
+      } else {
+        segments = new ByteBuffer[] { first };
+      }
+      capacity = length;
+    }
+    if (minimum > capacity) {
+      int count = (int) ((minimum + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+      ByteBuffer[] grown = new ByteBuffer[count];
+      System.arraycopy(segments, 0, grown, 0, segments.length);
+      for (int s = segments.length; s < count; s++) {
+        grown[s] = allocate(SEGMENT_LONGS);
+      }
+      segments = grown;
+      capacity = (long) count << SEGMENT_SHIFT;
+    }
+  }
+
+  private static ByteBuffer allocate(int longs) {
+    return ByteBuffer.allocateDirect(longs << 3).order(ByteOrder.nativeOrder());
+  }
+}
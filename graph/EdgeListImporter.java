@@ -0,0 +1,503 @@
+/* EdgeListImporter.java */
+
+package graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * The EdgeListImporter class loads a text edge list into a graph.  The file
+ * is read through a FileChannel one large chunk at a time; each chunk is cut
+ * at line boundaries into pieces that are parsed in parallel on a
+ * ForkJoinPool, straight from the bytes into int arrays, and the parsed
+ * edges are handed to the graph in file order with one batched insert per
+ * chunk.  No line ever becomes a String, and only one chunk is held at a
+ * time, so files larger than the heap import in bounded memory.
+ *
+ * Vertex ids are taken from the file as they are (DIMACS and Matrix Market
+ * count from 1).  An edge line without a weight gets weight 1.  Supported
+ * formats:
+ *
+ *   CSV            "u,v[,w]" per line; spaces or tabs may separate fields
+ *                  instead.  Lines starting with '#' are comments, and a
+ *                  first line containing letters is taken as a header.
+ *   DIMACS         "a u v w" or "e u v [w]" lines; 'c' comment lines and the
+ *                  'p' problem line are skipped.
+ *   MATRIX_MARKET  coordinate format:  '%' comment lines, one size line,
+ *                  then "i j [value]" lines.  Real values, with or without
+ *                  an exponent, are rounded to the nearest int, halves
+ *                  away from zero.
+ *
+ * Every id and weight must fit in an int; a number that does not, or
+ * anything but separators after the weight, is reported as an IOException.
+ */
+
+public class EdgeListImporter {
+
+  /**
+   * The text formats EdgeListImporter understands.
+   */
+
+  public enum Format { CSV, DIMACS, MATRIX_MARKET }
+
+  /**
+   * An EdgeSink receives parsed edges in file order, one batch per chunk.
+   * The arrays are reused between batches; only the first "count" entries
+   * are meaningful.
+   */
+
+  public interface EdgeSink {
+    public void addEdges(int[] us, int[] vs, int[] weights, int count);
+  }
+
+  private static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+  //Pieces smaller than this are not worth a task of their own.
+  private static final int MIN_PIECE_BYTES = 64 << 10;
+
+  //parseFields() results for a malformed line and for a number too large.
+  private static final int MALFORMED = -1;
+  private static final int OUT_OF_RANGE = -2;
+
+  //Significant digits of a weight kept exactly; at most 15 fit a double.
+  private static final int MAX_DIGITS = 15;
+
+  private final Format format;
+  private final ForkJoinPool pool;
+  private final int chunkBytes;
+
+  /**
+   * EdgeListImporter() makes an importer for "format" that parses on the
+   * common ForkJoinPool with 8MB chunks.
+   */
+
+  public EdgeListImporter(Format format) {
+    this(format, ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+  }
+
+  /**
+   * EdgeListImporter() makes an importer for "format" that parses on "pool",
+   * reading "chunkBytes" bytes at a time.  No line may be longer than one
+   * chunk.
+   */
+
+  public EdgeListImporter(Format format, ForkJoinPool pool, int chunkBytes) {
+    this.format = format;
+    this.pool = pool;
+    this.chunkBytes = chunkBytes;
+  }
+
+  /**
+   * importInto() adds every edge of "file" to "g", adding each endpoint as a
+   * vertex (as an Integer) first if it is not one already.  Returns the
+   * number of edge lines read.
+   *
+   * @throws IOException if the file cannot be read or a line is malformed.
+   */
+
+  public long importInto(File file, final WUGraph g) throws IOException {
+    return read(file, new EdgeSink() {
+      public void addEdges(int[] us, int[] vs, int[] weights, int count) {
+        Object[] uObjects = new Object[count];
+        Object[] vObjects = new Object[count];
+        int[] batchWeights = new int[count];
+        for (int i = 0; i < count; i++) {
+          uObjects[i] = Integer.valueOf(us[i]);
+          vObjects[i] = Integer.valueOf(vs[i]);
+        }
+        System.arraycopy(weights, 0, batchWeights, 0, count);
+        g.addVertices(uObjects);
+        g.addVertices(vObjects);
+        g.addEdges(uObjects, vObjects, batchWeights);
+      }
+    });
+  }
+
+  /**
+   * importInto() adds every edge of "file" to "g", adding each endpoint as a
+   * vertex first if it is not one already.  Returns the number of edge
+   * lines read.
+   *
+   * @throws IOException if the file cannot be read or a line is malformed.
+   */
+
+  public long importInto(File file, final IntWUGraph g) throws IOException {
+    return read(file, new EdgeSink() {
+      public void addEdges(int[] us, int[] vs, int[] weights, int count) {
+        for (int i = 0; i < count; i++) {
+          g.addVertex(us[i]);
+          g.addVertex(vs[i]);
+          g.addEdge(us[i], vs[i], weights[i]);
+        }
+      }
+    });
+  }
+
+  /**
+   * read() parses "file" and hands its edges to "sink".  Returns the number
+   * of edge lines read.
+   *
+   * @throws IOException if the file cannot be read or a line is malformed.
+   */
+
+  public long read(File file, EdgeSink sink) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      ByteBuffer buffer = ByteBuffer.allocate(chunkBytes);
+      byte[] bytes = buffer.array();
+      Batch merged = new Batch(1024);
+      long edges = 0;
+      long chunkStart = 0;
+      boolean first = true;
+      boolean eof = false;
+
+      while (!eof) {
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer) < 0) {
+            eof = true;
+            break;
+          }
+        }
+        int filled = buffer.position();
+        if (filled == 0) {
+          break;
+        }
+
+        // Parse up to the last complete line; at end of file, everything.
+        int end = filled;
+        if (!eof) {
+          end = lastNewline(bytes, filled) + 1;
+          if (end == 0) {
+            throw new IOException("line longer than " + chunkBytes + " bytes at offset " + chunkStart);
+          }
+        }
+
+        int start = 0;
+        if (first) {
+          start = skipHeader(bytes, end);
+          first = false;
+        }
+
+        parseChunk(bytes, start, end, chunkStart, merged);
+        if (merged.count > 0) {
+          sink.addEdges(merged.us, merged.vs, merged.weights, merged.count);
+          edges += merged.count;
+        }
+
+        // Carry the unfinished last line over to the next chunk.
+        System.arraycopy(bytes, end, bytes, 0, filled - end);
+        buffer.clear();
+        buffer.position(filled - end);
+        chunkStart += end;
+      }
+      return edges;
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * parseChunk() cuts bytes[start...end - 1] into pieces at line boundaries,
+   * parses the pieces in parallel, and concatenates their edges, in order,
+   * into "merged".
+   */
+
+  private void parseChunk(final byte[] bytes, int start, int end, final long chunkStart,
+                          Batch merged) throws IOException {
+    int pieces = Math.max(1, Math.min(pool.getParallelism(), (end - start) / MIN_PIECE_BYTES));
+    List<Callable<Batch>> tasks = new ArrayList<Callable<Batch>>(pieces);
+    int pieceStart = start;
+    for (int i = 1; i <= pieces && pieceStart < end; i++) {
+      int pieceEnd = end;
+      if (i < pieces) {
+        pieceEnd = start + (int) ((long) (end - start) * i / pieces);
+        pieceEnd = Math.max(nextLineStart(bytes, pieceEnd, end), pieceStart);
+      }
+      final int from = pieceStart;
+      final int to = pieceEnd;
+      tasks.add(new Callable<Batch>() {
+        public Batch call() throws IOException {
+          Batch batch = new Batch(Math.max(16, (to - from) / 16));
+          parseLines(bytes, from, to, chunkStart, batch);
+          return batch;
+        }
+      });
+      pieceStart = pieceEnd;
+    }
+
+    merged.count = 0;
+    List<Future<Batch>> results = pool.invokeAll(tasks);
+    for (Future<Batch> result : results) {
+      try {
+        merged.append(result.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("interrupted while parsing", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException("parse failed", e.getCause());
+      }
+    }
+  }
+
+  /**
+   * skipHeader() returns the offset of the first line of the file that can
+   * hold edges:  past the Matrix Market size line, or past a CSV header.
+   */
+
+  private int skipHeader(byte[] bytes, int end) {
+    int lineStart = 0;
+    if (format == Format.MATRIX_MARKET) {
+      while (lineStart < end) {
+        int i = firstNonBlank(bytes, lineStart, end);
+        if (i < end && bytes[i] != '%') {
+          break;
+        }
+        lineStart = nextLineStart(bytes, lineStart, end);
+      }
+      return nextLineStart(bytes, lineStart, end);
+    }
+    if (format == Format.CSV) {
+      int lineEnd = nextLineStart(bytes, 0, end);
+      for (int i = 0; i < lineEnd; i++) {
+        if (Character.isLetter((char) bytes[i])) {
+          return lineEnd;
+        }
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * parseLines() parses every line of bytes[start...end - 1] into "batch".
+   */
+
+  private void parseLines(byte[] bytes, int start, int end, long chunkStart, Batch batch)
+      throws IOException {
+    int[] fields = new int[3];
+    int lineStart = start;
+    while (lineStart < end) {
+      int lineEnd = lineStart;
+      while (lineEnd < end && bytes[lineEnd] != '\n') {
+        lineEnd++;
+      }
+
+      int i = firstNonBlank(bytes, lineStart, lineEnd);
+      if (i < lineEnd && !isComment(bytes[i])) {
+        boolean isEdge = true;
+        if (format == Format.DIMACS) {
+          isEdge = bytes[i] == 'a' || bytes[i] == 'e';
+          i++;
+        }
+        if (isEdge) {
+          int n = parseFields(bytes, i, lineEnd, fields);
+          if (n == OUT_OF_RANGE) {
+            throw new IOException("number out of int range at offset " +
+                                  (chunkStart + lineStart));
+          }
+          if (n < 2) {
+            throw new IOException("malformed edge line at offset " + (chunkStart + lineStart));
+          }
+          batch.add(fields[0], fields[1], n == 3 ? fields[2] : 1);
+        }
+      }
+      lineStart = lineEnd + 1;
+    }
+  }
+
+  private boolean isComment(byte b) {
+    switch (format) {
+    case CSV:
+      return b == '#';
+    case DIMACS:
+      return b == 'c' || b == 'p';
+    default:
+      return b == '%';
+    }
+  }
+
+  /**
+   * parseFields() reads up to three numbers from bytes[i...end - 1] into
+   * "fields", and returns how many it read.  It returns MALFORMED if
+   * something other than a number or separator is found, including
+   * anything after the third number, and OUT_OF_RANGE if a number does not
+   * fit in an int.  The third number may have a fraction and an exponent;
+   * it is rounded to the nearest int, halves away from zero.
+   */
+
+  private static int parseFields(byte[] bytes, int i, int end, int[] fields) {
+    int n = 0;
+    while (true) {
+      while (i < end && isSeparator(bytes[i])) {
+        i++;
+      }
+      if (i == end) {
+        return n;
+      }
+      if (n == 3) {
+        return MALFORMED;
+      }
+
+      boolean negative = false;
+      if (bytes[i] == '-' || bytes[i] == '+') {
+        negative = bytes[i] == '-';
+        i++;
+      }
+      if (i == end || !isDigit(bytes[i])) {
+        return MALFORMED;
+      }
+
+      // The value is digits * 10^scale.  Digits past MAX_DIGITS significant
+      // ones only move the scale, so "digits" stays exact.
+      long digits = 0;
+      int scale = 0;
+      int significant = 0;
+      while (i < end && isDigit(bytes[i])) {
+        if (significant < MAX_DIGITS) {
+          digits = digits * 10 + (bytes[i] - '0');
+          if (digits != 0) {
+            significant++;
+          }
+        } else {
+          scale++;
+        }
+        i++;
+      }
+      if (n == 2 && i < end && bytes[i] == '.') {
+        i++;
+        while (i < end && isDigit(bytes[i])) {
+          if (significant < MAX_DIGITS) {
+            digits = digits * 10 + (bytes[i] - '0');
+            if (digits != 0) {
+              significant++;
+            }
+            scale--;
+          }
+          i++;
+        }
+      }
+      if (n == 2 && i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+        i++;
+        boolean negativeExponent = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+          negativeExponent = bytes[i] == '-';
+          i++;
+        }
+        if (i == end || !isDigit(bytes[i])) {
+          return MALFORMED;
+        }
+        int exponent = 0;
+        while (i < end && isDigit(bytes[i])) {
+          exponent = Math.min(exponent * 10 + (bytes[i] - '0'), 1000);
+          i++;
+        }
+        scale += negativeExponent ? -exponent : exponent;
+      }
+      if (i < end && !isSeparator(bytes[i])) {
+        return MALFORMED;
+      }
+
+      long value = digits;
+      if (digits != 0 && scale != 0) {
+        // Both operands are exact, so the quotient is correctly rounded.
+        double magnitude = scale > 0 ? digits * Math.pow(10, scale)
+                                     : digits / Math.pow(10, -scale);
+        if (magnitude >= 1L << 32) {
+          return OUT_OF_RANGE;
+        }
+        value = (long) Math.floor(magnitude + 0.5);
+      }
+      if (value > (negative ? 1L << 31 : Integer.MAX_VALUE)) {
+        return OUT_OF_RANGE;
+      }
+      fields[n] = (int) (negative ? -value : value);
+      n++;
+    }
+  }
+
+  private static boolean isDigit(byte b) {
+    return b >= '0' && b <= '9';
+  }
+
+  private static boolean isSeparator(byte b) {
+    return b == ' ' || b == '\t' || b == ',' || b == '\r';
+  }
+
+  private static int firstNonBlank(byte[] bytes, int i, int end) {
+    while (i < end && (bytes[i] == ' ' || bytes[i] == '\t' || bytes[i] == '\r')) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int nextLineStart(byte[] bytes, int i, int end) {
+    while (i < end && bytes[i] != '\n') {
+      i++;
+    }
+    return Math.min(i + 1, end);
+  }
+
+  private static int lastNewline(byte[] bytes, int filled) {
+    for (int i = filled - 1; i >= 0; i--) {
+      if (bytes[i] == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * A Batch is a growable set of parallel edge arrays.
+   */
+
+  private static class Batch {
+    private int[] us;
+    private int[] vs;
+    private int[] weights;
+    private int count;
+
+    private Batch(int capacity) {
+      us = new int[capacity];
+      vs = new int[capacity];
+      weights = new int[capacity];
+    }
+
+    private void add(int u, int v, int weight) {
+      ensure(count + 1);
+      us[count] = u;
+      vs[count] = v;
+      weights[count] = weight;
+      count++;
+    }
+
+    private void append(Batch other) {
+      ensure(count + other.count);
+      System.arraycopy(other.us, 0, us, count, other.count);
+      System.arraycopy(other.vs, 0, vs, count, other.count);
+      System.arraycopy(other.weights, 0, weights, count, other.count);
+      count += other.count;
+    }
+
+    private void ensure(int capacity) {
+      if (capacity > us.length) {
+        int length = Math.max(capacity, us.length * 2);
+        us = Arrays.copyOf(us, length);
+        vs = Arrays.copyOf(vs, length);
+        weights = Arrays.copyOf(weights, length);
+      }
+    }
+  }
+}
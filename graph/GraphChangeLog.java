@@ -0,0 +1,184 @@
+/* GraphChangeLog.java */
+
+package graph;
+
+/**
+ * The GraphChangeLog class records the changes made to a graph in a
+ * fixed-size ring buffer, for consumers that want to keep derived data up
+ * to date without rescanning the graph.  Attach one to a graph with
+ * WUGraph.setChangeLog(); the graph then appends every change to it.
+ *
+ * Each consumer reads the log through its own Cursor, at its own pace, and
+ * receives the changes in batches by calling Cursor.drain() with a
+ * GraphListener.  Appending costs a few array stores and never allocates.
+ * Nothing waits for slow consumers:  once a consumer falls more than
+ * capacity() changes behind, the oldest changes it has not seen are
+ * overwritten, and its next drain() reports the overrun so it can rebuild
+ * from the graph itself.
+ *
+ * Like WUGraph, a GraphChangeLog is not thread-safe; drain it on the thread
+ * that changes the graph, or guard both with one lock.
+ */
+
+public class GraphChangeLog implements GraphListener {
+
+  private static final byte VERTEX_ADDED = 0;
+  private static final byte VERTEX_REMOVED = 1;
+  private static final byte EDGE_ADDED = 2;
+  private static final byte EDGE_REMOVED = 3;
+  private static final byte WEIGHT_CHANGED = 4;
+
+  //Change number i lives at index i & mask of each array.
+  private final byte[] types;
+  private final Object[] us;
+  private final Object[] vs;
+  private final int[] weights;
+  private final int[] oldWeights;
+  private final int mask;
+
+  //Number of changes ever appended; the next one gets this number.
+  private long head;
+
+  /**
+   * A Cursor is one consumer's position in the log.
+   */
+
+  public class Cursor {
+    private long position;
+
+    private Cursor(long position) {
+      this.position = position;
+    }
+
+    /**
+     * lag() returns the number of changes appended since this cursor last
+     * drained, which may exceed capacity() if it has been overrun.
+     */
+
+    public long lag() {
+      return head - position;
+    }
+
+    /**
+     * drain() hands every change this cursor has not yet seen to
+     * "listener", oldest first, and returns how many there were.  If more
+     * than capacity() changes were appended since the last drain, some are
+     * lost:  nothing is delivered, the cursor skips to the newest change,
+     * and -1 is returned, telling the consumer to rebuild its state from the
+     * graph.  The listener must not change the graph.
+     */
+
+    public int drain(GraphListener listener) {
+      return drain(listener, Integer.MAX_VALUE);
+    }
+
+    /**
+     * drain() hands at most "max" unseen changes to "listener", as above.
+     */
+
+    public int drain(GraphListener listener, int max) {
+      if (head - position > types.length) {
+        position = head;
+        return -1;
+      }
+
+      int count = (int) Math.min(head - position, max);
+      for (int n = 0; n < count; n++) {
+        int i = (int) position & mask;
+        switch (types[i]) {
+        case VERTEX_ADDED:
+          listener.vertexAdded(us[i]);
+          break;
+        case VERTEX_REMOVED:
+          listener.vertexRemoved(us[i]);
+          break;
+        case EDGE_ADDED:
+          listener.edgeAdded(us[i], vs[i], weights[i]);
+          break;
+        case EDGE_REMOVED:
+          listener.edgeRemoved(us[i], vs[i], weights[i]);
+          break;
+        default:
+          listener.weightChanged(us[i], vs[i], oldWeights[i], weights[i]);
+          break;
+        }
+        position++;
+      }
+      return count;
+    }
+  }
+
+  /**
+   * GraphChangeLog() constructs a log that holds the last "capacity" changes,
+   * rounded up to a power of two.
+   */
+
+  public GraphChangeLog(int capacity) {
+    int size = 1;
+    while (size < capacity && size < (1 << 30)) {
+      size *= 2;
+    }
+    types = new byte[size];
+    us = new Object[size];
+    vs = new Object[size];
+    weights = new int[size];
+    oldWeights = new int[size];
+    mask = size - 1;
+  }
+
+  /**
+   * capacity() returns how many changes the log holds before it overwrites
+   * the oldest.
+   */
+
+  public int capacity() {
+    return types.length;
+  }
+
+  /**
+   * size() returns the total number of changes ever appended to the log.
+   */
+
+  public long size() {
+    return head;
+  }
+
+  /**
+   * newCursor() returns a cursor that will see every change appended from
+   * now on.
+   */
+
+  public Cursor newCursor() {
+    return new Cursor(head);
+  }
+
+  public void vertexAdded(Object vertex) {
+    append(VERTEX_ADDED, vertex, null, 0, 0);
+  }
+
+  public void vertexRemoved(Object vertex) {
+    append(VERTEX_REMOVED, vertex, null, 0, 0);
+  }
+
+  public void edgeAdded(Object u, Object v, int weight) {
+    append(EDGE_ADDED, u, v, weight, 0);
+  }
+
+  public void edgeRemoved(Object u, Object v, int weight) {
+    append(EDGE_REMOVED, u, v, weight, 0);
+  }
+
+  public void weightChanged(Object u, Object v, int oldWeight, int newWeight) {
+    append(WEIGHT_CHANGED, u, v, newWeight, oldWeight);
+  }
+
+  private void append(byte type, Object u, Object v, int weight, int oldWeight) {
+    int i = (int) head & mask;
+    types[i] = type;
+    us[i] = u;
+    vs[i] = v;
+    weights[i] = weight;
+    oldWeights[i] = oldWeight;
+    head++;
+  }
+}
@@ -0,0 +1,509 @@
+/* GraphJournal.java */
+
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The GraphJournal class makes a WUGraph durable, so a crashed process can
+ * get its graph back without rebuilding it from source data.  It keeps two
+ * kinds of file in one directory:
+ *
+ *   checkpoint     a compact image of the whole graph, tagged with a
+ *                  generation number g.
+ *   journal-g      every change made since checkpoint g was taken, appended
+ *                  in frames.
+ *
+ * open() recovers the graph by loading the checkpoint and replaying the
+ * journal of the same generation, then keeps recording.  Changes reach the
+ * journal through a GraphChangeLog on the graph:  they cost the graph a few
+ * array stores each, and are encoded and written only when commit() is
+ * called.  commit() writes everything since the last commit as one frame
+ * with one FileChannel write and one fsync, so a caller that commits once
+ * per batch of updates pays for one disk flush per batch.  Changes not yet
+ * committed are lost in a crash.
+ *
+ * Each frame carries its length and a CRC32 of its contents; recovery stops
+ * at the first frame that is short or damaged, which is where a crash
+ * interrupted a write, and cuts the journal there.
+ *
+ * checkpoint() writes a new checkpoint next to the old one, fsyncs it,
+ * starts the next journal, and only then renames the new checkpoint into
+ * place and deletes the old journal, so a crash at any point leaves either
+ * the old or the new checkpoint with its whole journal.  commit() takes a
+ * checkpoint by itself once the journal passes a size limit, or if the
+ * change log overflowed because commit() was not called often enough.
+ *
+ * If commit() fails, it throws, and the journal is marked damaged:  the
+ * failed frame is cut off the end of the file, and the next commit() takes
+ * a checkpoint instead of appending, so no later commit is ever written
+ * after a torn frame that recovery would stop at.  A change the codec
+ * cannot encode (say, a String vertex with VertexCodec.INTEGER) fails the
+ * same way; the complete records before it are still written, and the
+ * journal stays damaged, with every commit() throwing, until the graph can
+ * be checkpointed again.
+ *
+ * A GraphJournal is not thread-safe, just like the WUGraph it records.
+ */
+
+public class GraphJournal {
+
+  private static final int CHECKPOINT_MAGIC = 0x57554750;     // "WUGP"
+  private static final int FORMAT_VERSION = 1;
+  private static final String CHECKPOINT = "checkpoint";
+  private static final String CHECKPOINT_TEMP = "checkpoint.tmp";
+  private static final String JOURNAL_PREFIX = "journal-";
+
+  private static final int DEFAULT_LOG_CAPACITY = 1 << 16;
+  private static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+
+  //Journal record types.
+  private static final byte VERTEX_ADDED = 0;
+  private static final byte VERTEX_REMOVED = 1;
+  private static final byte EDGE_ADDED = 2;
+  private static final byte EDGE_REMOVED = 3;
+  private static final byte WEIGHT_CHANGED = 4;
+
+  private final File directory;
+  private final VertexCodec codec;
+  private final WUGraph graph;
+  private final GraphChangeLog log;
+  private final long checkpointBytes;
+
+  private GraphChangeLog.Cursor cursor;
+  private long generation;
+  private FileChannel journal;
+  //Set when a commit failed; the next commit takes a checkpoint instead.
+  private boolean damaged;
+
+  //The frame being built by the encoder between commits.
+  private final ByteArrayOutputStream frameBytes = new ByteArrayOutputStream(1 << 16);
+  private final DataOutputStream frame = new DataOutputStream(frameBytes);
+  private final Encoder encoder = new Encoder();
+
+  private GraphJournal(File directory, VertexCodec codec, WUGraph graph, long generation,
+                       FileChannel journal, int logCapacity, long checkpointBytes) {
+    this.directory = directory;
+    this.codec = codec;
+    this.graph = graph;
+    this.generation = generation;
+    this.journal = journal;
+    this.checkpointBytes = checkpointBytes;
+    log = new GraphChangeLog(logCapacity);
+    cursor = log.newCursor();
+    graph.setChangeLog(log);
+  }
+
+  /**
+   * open() recovers the graph stored in "directory", or starts an empty one
+   * if the directory holds none, and returns a journal recording it from
+   * now on.  The change log holds 65536 changes between commits, and a
+   * checkpoint is taken when the journal passes 64MB.
+   *
+   * @throws IOException if the files cannot be read or written.
+   */
+
+  public static GraphJournal open(File directory, VertexCodec codec) throws IOException {
+    return open(directory, codec, DEFAULT_LOG_CAPACITY, DEFAULT_CHECKPOINT_BYTES);
+  }
+
+  /**
+   * open() recovers the graph stored in "directory", as above, with a change
+   * log of "logCapacity" changes and a checkpoint whenever the journal grows
+   * past "checkpointBytes".
+   *
+   * @throws IOException if the files cannot be read or written.
+   */
+
+  public static GraphJournal open(File directory, VertexCodec codec, int logCapacity,
+                                  long checkpointBytes) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("cannot create " + directory);
+    }
+
+    WUGraph graph;
+    long generation = 0;
+    File checkpoint = new File(directory, CHECKPOINT);
+    if (checkpoint.exists()) {
+      DataInputStream in = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(checkpoint), 1 << 16));
+      try {
+        if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != FORMAT_VERSION) {
+          throw new IOException(checkpoint + " is not a graph checkpoint");
+        }
+        generation = in.readLong();
+        graph = readGraph(in, codec);
+      } finally {
+        in.close();
+      }
+    } else {
+      graph = new WUGraph();
+    }
+
+    // Journals of other generations are left over from an interrupted
+    // checkpoint, or already folded into this one.
+    File[] files = directory.listFiles();
+    for (int i = 0; i < files.length; i++) {
+      String name = files[i].getName();
+      if ((name.startsWith(JOURNAL_PREFIX) && !name.equals(JOURNAL_PREFIX + generation))
+          || name.equals(CHECKPOINT_TEMP)) {
+        Files.delete(files[i].toPath());
+      }
+    }
+
+    FileChannel journal = FileChannel.open(new File(directory, JOURNAL_PREFIX + generation).toPath(),
+                                           StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                           StandardOpenOption.WRITE);
+    long end = replay(journal, graph, codec);
+    journal.truncate(end);
+    journal.position(end);
+
+    return new GraphJournal(directory, codec, graph, generation, journal, logCapacity,
+                            checkpointBytes);
+  }
+
+  /**
+   * graph() returns the graph this journal records.  Change it freely, and
+   * call commit() to make the changes durable.
+   */
+
+  public WUGraph graph() {
+    return graph;
+  }
+
+  /**
+   * commit() writes every change made since the last commit to the journal
+   * as one frame, and waits until it is on disk.
+   *
+   * @throws IOException if the journal cannot be written.
+   */
+
+  public void commit() throws IOException {
+    if (damaged) {
+      // The log may have lost changes, or the file may end in a torn frame.
+      checkpoint();
+      return;
+    }
+
+    int drained;
+    RuntimeException encodeFailure = null;
+    try {
+      drained = cursor.drain(encoder);
+    } catch (RuntimeException e) {
+      // The cursor is stuck on the change that failed; only a checkpoint
+      // gets past it.
+      encodeFailure = e;
+      drained = 0;
+      damaged = true;
+    }
+    if (drained < 0) {
+      // Changes were lost from the log; only a full image is safe now.
+      checkpoint();
+      return;
+    }
+
+    // Keep only complete records if encoding stopped partway.
+    int length = encodeFailure == null ? frameBytes.size() : encoder.recordStart;
+    byte[] payload = frameBytes.toByteArray();
+    frameBytes.reset();
+    if (length > 0) {
+      writeFrame(payload, length);
+    }
+
+    if (encodeFailure != null) {
+      if (encodeFailure instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) encodeFailure).getCause();
+      }
+      throw new IOException("cannot encode graph change", encodeFailure);
+    }
+
+    if (journal.size() >= checkpointBytes) {
+      checkpoint();
+    }
+  }
+
+  /**
+   * writeFrame() appends payload[0 ... length-1] to the journal as one frame
+   * and forces it to disk.  If that fails, the journal is cut back to where
+   * the frame began and marked damaged.
+   */
+
+  private void writeFrame(byte[] payload, int length) throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(payload, 0, length);
+    ByteBuffer header = ByteBuffer.allocate(8);
+    header.putInt(length);
+    header.putInt((int) crc.getValue());
+    header.flip();
+    ByteBuffer[] buffers = { header, ByteBuffer.wrap(payload, 0, length) };
+
+    long start = journal.position();
+    try {
+      while (buffers[1].hasRemaining()) {
+        journal.write(buffers);
+      }
+      journal.force(false);
+    } catch (IOException e) {
+      damaged = true;
+      try {
+        journal.truncate(start);
+        journal.position(start);
+      } catch (IOException truncateFailure) {
+        e.addSuppressed(truncateFailure);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * checkpoint() writes an image of the whole graph and starts an empty
+   * journal, so recovery no longer needs the changes made so far.  Changes
+   * not yet committed are included in the image.  A successful checkpoint
+   * clears the damage left by a failed commit().  If the codec cannot
+   * encode a vertex, checkpoint() throws whatever the codec throws, and the
+   * old checkpoint and journal are left in place.
+   *
+   * Running time:  O(|V| + |E|).
+   *
+   * @throws IOException if the files cannot be written.
+   */
+
+  public void checkpoint() throws IOException {
+    long next = generation + 1;
+    File temp = new File(directory, CHECKPOINT_TEMP);
+    FileOutputStream file = new FileOutputStream(temp);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+    try {
+      out.writeInt(CHECKPOINT_MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(next);
+      writeGraph(graph.freeze(), out, codec);
+      out.flush();
+      file.getFD().sync();
+    } finally {
+      out.close();
+    }
+
+    // Everything in the log so far is in the image.
+    cursor = log.newCursor();
+    frameBytes.reset();
+
+    FileChannel nextJournal = FileChannel.open(new File(directory, JOURNAL_PREFIX + next).toPath(),
+                                               StandardOpenOption.CREATE,
+                                               StandardOpenOption.TRUNCATE_EXISTING,
+                                               StandardOpenOption.READ, StandardOpenOption.WRITE);
+    nextJournal.force(true);
+    Files.move(temp.toPath(), new File(directory, CHECKPOINT).toPath(),
+               StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+    journal.close();
+    Files.deleteIfExists(new File(directory, JOURNAL_PREFIX + generation).toPath());
+    journal = nextJournal;
+    generation = next;
+    damaged = false;
+  }
+
+  /**
+   * close() commits any pending changes, stops recording, and closes the
+   * journal.  The graph remains usable, but later changes are not recorded.
+   *
+   * @throws IOException if the journal cannot be written.
+   */
+
+  public void close() throws IOException {
+    try {
+      commit();
+    } finally {
+      graph.setChangeLog(null);
+      journal.close();
+    }
+  }
+
+  /**
+   * An Encoder appends each change it is handed to the current frame.
+   */
+
+  private class Encoder implements GraphListener {
+    //Frame length before the record being written.
+    private int recordStart;
+
+    public void vertexAdded(Object vertex) {
+      recordStart = frameBytes.size();
+      try {
+        frame.writeByte(VERTEX_ADDED);
+        codec.write(vertex, frame);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    public void vertexRemoved(Object vertex) {
+      recordStart = frameBytes.size();
+      try {
+        frame.writeByte(VERTEX_REMOVED);
+        codec.write(vertex, frame);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    public void edgeAdded(Object u, Object v, int weight) {
+      writeEdge(EDGE_ADDED, u, v, weight);
+    }
+
+    public void edgeRemoved(Object u, Object v, int weight) {
+      writeEdge(EDGE_REMOVED, u, v, weight);
+    }
+
+    public void weightChanged(Object u, Object v, int oldWeight, int newWeight) {
+      writeEdge(WEIGHT_CHANGED, u, v, newWeight);
+    }
+
+    private void writeEdge(byte type, Object u, Object v, int weight) {
+      recordStart = frameBytes.size();
+      try {
+        frame.writeByte(type);
+        codec.write(u, frame);
+        codec.write(v, frame);
+        frame.writeInt(weight);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * replay() applies every intact frame of "journal" to "graph", and returns
+   * the position just past the last one.
+   */
+
+  private static long replay(FileChannel journal, WUGraph graph, VertexCodec codec)
+      throws IOException {
+    long position = 0;
+    long size = journal.size();
+    ByteBuffer header = ByteBuffer.allocate(8);
+    while (size - position >= 8) {
+      header.clear();
+      readFully(journal, header, position);
+      header.flip();
+      int length = header.getInt();
+      int checksum = header.getInt();
+      if (length < 0 || size - position - 8 < length) {
+        break;
+      }
+
+      byte[] payload = new byte[length];
+      readFully(journal, ByteBuffer.wrap(payload), position + 8);
+      CRC32 crc = new CRC32();
+      crc.update(payload, 0, length);
+      if ((int) crc.getValue() != checksum) {
+        break;
+      }
+
+      applyFrame(payload, graph, codec);
+      position += 8 + length;
+    }
+    return position;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int n = channel.read(buffer, position);
+      if (n < 0) {
+        throw new EOFException();
+      }
+      position += n;
+    }
+  }
+
+  private static void applyFrame(byte[] payload, WUGraph graph, VertexCodec codec)
+      throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+    while (in.available() > 0) {
+      byte type = in.readByte();
+      switch (type) {
+      case VERTEX_ADDED:
+        graph.addVertex(codec.read(in));
+        break;
+      case VERTEX_REMOVED:
+        graph.removeVertex(codec.read(in));
+        break;
+      case EDGE_REMOVED: {
+        Object u = codec.read(in);
+        Object v = codec.read(in);
+        in.readInt();
+        graph.removeEdge(u, v);
+        break;
+      }
+      case EDGE_ADDED:
+      case WEIGHT_CHANGED: {
+        Object u = codec.read(in);
+        Object v = codec.read(in);
+        graph.addEdge(u, v, in.readInt());
+        break;
+      }
+      default:
+        throw new IOException("unknown journal record type " + type);
+      }
+    }
+  }
+
+  /**
+   * writeGraph() writes the vertices of "g" by dense id, then each edge once,
+   * as (smaller id, larger id, weight).
+   */
+
+  private static void writeGraph(CSRGraph g, DataOutputStream out, VertexCodec codec)
+      throws IOException {
+    int n = g.vertexCount();
+    out.writeInt(n);
+    for (int id = 0; id < n; id++) {
+      codec.write(g.vertex(id), out);
+    }
+    out.writeInt(g.edgeCount());
+    for (int id = 0; id < n; id++) {
+      for (int slot = g.offset(id); slot < g.offset(id + 1); slot++) {
+        if (g.target(slot) >= id) {
+          out.writeInt(id);
+          out.writeInt(g.target(slot));
+          out.writeInt(g.targetWeight(slot));
+        }
+      }
+    }
+  }
+
+  private static WUGraph readGraph(DataInputStream in, VertexCodec codec) throws IOException {
+    int n = in.readInt();
+    Object[] vertices = new Object[n];
+    for (int id = 0; id < n; id++) {
+      vertices[id] = codec.read(in);
+    }
+    int edges = in.readInt();
+    WUGraph graph = new WUGraph(n, edges);
+    graph.addVertices(vertices);
+    for (int i = 0; i < edges; i++) {
+      int u = in.readInt();
+      int v = in.readInt();
+      graph.addEdge(vertices[u], vertices[v], in.readInt());
+    }
+    return graph;
+  }
+}
@@ -0,0 +1,50 @@
+/* GraphListener.java */
+
+package graph;
+
+/**
+ * A GraphListener is told about each change made to a graph, in the order
+ * the changes were made.  GraphChangeLog records changes as a
+ * GraphListener, and hands them on to other GraphListeners when a consumer
+ * drains it, so caches and algorithms built on a graph can be updated
+ * incrementally instead of being rebuilt.
+ *
+ * Removing a vertex is reported as the removal of each of its edges,
+ * followed by the removal of the vertex.  Setting the weight of an existing
+ * edge to a new value is reported by weightChanged(), not edgeAdded().
+ */
+
+public interface GraphListener {
+
+  /**
+   * vertexAdded() reports that "vertex" became a vertex of the graph.
+   */
+
+  public void vertexAdded(Object vertex);
+
+  /**
+   * vertexRemoved() reports that "vertex" was removed from the graph.  Its
+   * edges have already been reported removed.
+   */
+
+  public void vertexRemoved(Object vertex);
+
+  /**
+   * edgeAdded() reports that edge (u, v) was added with weight "weight".
+   */
+
+  public void edgeAdded(Object u, Object v, int weight);
+
+  /**
+   * edgeRemoved() reports that edge (u, v), of weight "weight", was removed.
+   */
+
+  public void edgeRemoved(Object u, Object v, int weight);
+
+  /**
+   * weightChanged() reports that the weight of edge (u, v) changed from
+   * "oldWeight" to "newWeight".
+   */
+
+  public void weightChanged(Object u, Object v, int oldWeight, int newWeight);
+}
@@ -0,0 +1,214 @@
+/* GraphMetrics.java */
+
+package graph;
+
+import dict.TableMetrics;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The GraphMetrics class counts and times the hot operations of one
+ * WUGraph:  addEdge(), removeEdge(), getNeighbors() and isEdge(), plus the
+ * chain lengths and resizes of its vertex hash table and the load factors of
+ * both its tables.  Metrics are off unless asked for:  WUGraph.enableMetrics()
+ * creates and attaches a GraphMetrics, and until then each operation pays
+ * only a null test.  register() exports the counters through JMX, where
+ * they can be watched next to GC and latency data.
+ *
+ * Counters may be read from any thread while the graph is in use.  Load
+ * factors and counts are read from the graph without synchronization, so
+ * they are approximate while the graph is changing.
+ */
+
+public class GraphMetrics implements GraphMetricsMBean {
+
+  static final int ADD_EDGE = 0;
+  static final int REMOVE_EDGE = 1;
+  static final int GET_NEIGHBORS = 2;
+  static final int IS_EDGE = 3;
+  private static final int OPERATIONS = 4;
+
+  private final WUGraph graph;
+  private final TableMetrics vertexTable = new TableMetrics();
+
+  private final LongAdder[] counts = new LongAdder[OPERATIONS];
+  private final LongAdder[] totalNanos = new LongAdder[OPERATIONS];
+  private final AtomicLong[] maxNanos = new AtomicLong[OPERATIONS];
+
+  private ObjectName registeredName;
+
+  GraphMetrics(WUGraph graph) {
+    this.graph = graph;
+    for (int i = 0; i < OPERATIONS; i++) {
+      counts[i] = new LongAdder();
+      totalNanos[i] = new LongAdder();
+      maxNanos[i] = new AtomicLong();
+    }
+  }
+
+  TableMetrics vertexTable() {
+    return vertexTable;
+  }
+
+  /**
+   * record() counts one call of "operation" that took "nanos" nanoseconds.
+   */
+
+  void record(int operation, long nanos) {
+    counts[operation].increment();
+    totalNanos[operation].add(nanos);
+    if (nanos > maxNanos[operation].get()) {
+      maxNanos[operation].accumulateAndGet(nanos, Math::max);
+    }
+  }
+
+  /**
+   * recordBatch() counts "calls" calls of "operation" made together in one
+   * batch that took "nanos" nanoseconds.  Single calls in a batch are not
+   * timed, so the batch's mean time per call stands in for their maximum.
+   */
+
+  void recordBatch(int operation, int calls, long nanos) {
+    if (calls == 0) {
+      return;
+    }
+    counts[operation].add(calls);
+    totalNanos[operation].add(nanos);
+    long mean = nanos / calls;
+    if (mean > maxNanos[operation].get()) {
+      maxNanos[operation].accumulateAndGet(mean, Math::max);
+    }
+  }
+
+  /**
+   * register() exports these metrics to the platform MBean server as
+   * "graph:type=WUGraph,name=" followed by "name" (quoted).
+   *
+   * @throws JMException if the name is taken or cannot be registered.
+   */
+
+  public synchronized void register(String name) throws JMException {
+    ObjectName objectName = new ObjectName("graph:type=WUGraph,name=" + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    registeredName = objectName;
+  }
+
+  /**
+   * unregister() removes these metrics from the platform MBean server, if
+   * register() put them there.
+   *
+   * @throws JMException if they cannot be unregistered.
+   */
+
+  public synchronized void unregister() throws JMException {
+    if (registeredName != null) {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+      registeredName = null;
+    }
+  }
+
+  private double mean(int operation) {
+    long count = counts[operation].sum();
+    return count == 0 ? 0 : (double) totalNanos[operation].sum() / count;
+  }
+
+  public long getAddEdgeCount() {
+    return counts[ADD_EDGE].sum();
+  }
+
+  public double getAddEdgeMeanNanos() {
+    return mean(ADD_EDGE);
+  }
+
+  public long getAddEdgeMaxNanos() {
+    return maxNanos[ADD_EDGE].get();
+  }
+
+  public long getRemoveEdgeCount() {
+    return counts[REMOVE_EDGE].sum();
+  }
+
+  public double getRemoveEdgeMeanNanos() {
+    return mean(REMOVE_EDGE);
+  }
+
+  public long getRemoveEdgeMaxNanos() {
+    return maxNanos[REMOVE_EDGE].get();
+  }
+
+  public long getGetNeighborsCount() {
+    return counts[GET_NEIGHBORS].sum();
+  }
+
+  public double getGetNeighborsMeanNanos() {
+    return mean(GET_NEIGHBORS);
+  }
+
+  public long getGetNeighborsMaxNanos() {
+    return maxNanos[GET_NEIGHBORS].get();
+  }
+
+  public long getIsEdgeCount() {
+    return counts[IS_EDGE].sum();
+  }
+
+  public double getIsEdgeMeanNanos() {
+    return mean(IS_EDGE);
+  }
+
+  public long getIsEdgeMaxNanos() {
+    return maxNanos[IS_EDGE].get();
+  }
+
+  public long getVertexFindCount() {
+    return vertexTable.findCount();
+  }
+
+  public double getVertexFindMeanProbes() {
+    return vertexTable.meanProbes();
+  }
+
+  public long getVertexFindMaxProbes() {
+    return vertexTable.maxProbes();
+  }
+
+  public long getVertexTableResizeCount() {
+    return vertexTable.resizeCount();
+  }
+
+  public long getVertexTableResizeTotalNanos() {
+    return vertexTable.resizeNanos();
+  }
+
+  public long getVertexTableResizeMaxNanos() {
+    return vertexTable.maxResizeNanos();
+  }
+
+  public float getVertexTableLoadFactor() {
+    return graph.vertexTableLoadFactor();
+  }
+
+  public float getEdgeTableLoadFactor() {
+    return graph.edgeTableLoadFactor();
+  }
+
+  public int getVertexCount() {
+    return graph.vertexCount();
+  }
+
+  public int getEdgeCount() {
+    return graph.edgeCount();
+  }
+
+  public void reset() {
+    for (int i = 0; i < OPERATIONS; i++) {
+      counts[i].reset();
+      totalNanos[i].reset();
+      maxNanos[i].set(0);
+    }
+    vertexTable.reset();
+  }
+}
@@ -0,0 +1,49 @@
+/* GraphMetricsMBean.java */
+
+package graph;
+
+/**
+ * GraphMetricsMBean is the JMX management interface of GraphMetrics.  Each
+ * timed operation reports its count, mean and maximum latency in
+ * nanoseconds; the vertex hash table reports how long its chains are and
+ * how often and how long it resizes.
+ */
+
+public interface GraphMetricsMBean {
+
+  public long getAddEdgeCount();
+  public double getAddEdgeMeanNanos();
+  public long getAddEdgeMaxNanos();
+
+  public long getRemoveEdgeCount();
+  public double getRemoveEdgeMeanNanos();
+  public long getRemoveEdgeMaxNanos();
+
+  public long getGetNeighborsCount();
+  public double getGetNeighborsMeanNanos();
+  public long getGetNeighborsMaxNanos();
+
+  public long getIsEdgeCount();
+  public double getIsEdgeMeanNanos();
+  public long getIsEdgeMaxNanos();
+
+  public long getVertexFindCount();
+  public double getVertexFindMeanProbes();
+  public long getVertexFindMaxProbes();
+
+  public long getVertexTableResizeCount();
+  public long getVertexTableResizeTotalNanos();
+  public long getVertexTableResizeMaxNanos();
+
+  public float getVertexTableLoadFactor();
+  public float getEdgeTableLoadFactor();
+
+  public int getVertexCount();
+  public int getEdgeCount();
+
+  /**
+   * reset() sets every counter back to zero.
+   */
+
+  public void reset();
+}
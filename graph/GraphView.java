@@ -0,0 +1,34 @@
+/* GraphView.java */
+
+package graph;
+
+/**
+ * GraphView is the read-only side of a weighted, undirected graph:  the
+ * queries WUGraph answers, without any way to change the graph.  Algorithms
+ * such as Kruskal take a GraphView, so they run unchanged on a WUGraph, on
+ * one of its snapshots, or on any other implementation.
+ *
+ * The meaning of each method is exactly that of the WUGraph method of the
+ * same name.
+ */
+
+public interface GraphView {
+
+  public int vertexCount();
+
+  public int edgeCount();
+
+  public Object[] getVertices();
+
+  public boolean isVertex(Object vertex);
+
+  public int degree(Object vertex);
+
+  public Neighbors getNeighbors(Object vertex);
+
+  public void forEachNeighbor(Object vertex, NeighborVisitor visitor);
+
+  public boolean isEdge(Object u, Object v);
+
+  public int weight(Object u, Object v);
+}
@@ -0,0 +1,538 @@
+/* IntWUGraph.java */
+
+package graph;
+
+import dict.HashTableChained;
+import dict.LongIntHashTable;
+import java.util.Arrays;
+
+/**
+ * The IntWUGraph class is a weighted, undirected graph whose vertices are
+ * non-negative ints, for callers that already key their vertices by integer
+ * id.  It supports the same operations as WUGraph, but never boxes a vertex:
+ * a vertex id indexes straight into the adjacency arrays.  Self-edges are
+ * permitted.
+ *
+ * Each vertex keeps its half-edges in three parallel growable int arrays:
+ * the neighbor id, the weight, and the slot of the sibling half-edge in the
+ * neighbor's arrays.  The sibling slot lets removeEdge() delete both halves
+ * in O(1) once one of them is found, by moving the last half-edge of a row
+ * into the hole and patching that half-edge's sibling.
+ *
+ * An edge is found by scanning the shorter of its endpoints' rows while
+ * that row is short.  Between two high-degree vertices, where a scan would
+ * be long, it is found instead through a LongIntHashTable that maps each
+ * edge, packed as (smaller id, larger id), to its slot in the smaller id's
+ * row.  Only edges between two such vertices are in the table:  a row's
+ * edges are indexed when its degree rises past SCAN_DEGREE, and dropped
+ * when it falls back, so building up and tearing down low-degree rows
+ * never touches the table, and no change boxes anything.
+ */
+
+public class IntWUGraph {
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int INITIAL_DEGREE = 4;
+
+  //Rows no longer than this are scanned rather than looked up in slotIndex.
+  private static final int SCAN_DEGREE = 8;
+
+  //Per-vertex degree, or -1 if the id is not a vertex of the graph.
+  private int[] degrees;
+
+  //Per-vertex rows of neighbor ids, weights, and sibling slots.
+  private int[][] neighbors;
+  private int[][] weights;
+  private int[][] siblings;
+
+  //Packed (smaller id, larger id) -> slot in the smaller id's row, for the
+  //edges whose endpoints both have degree above SCAN_DEGREE.
+  private final LongIntHashTable slotIndex;
+
+  private int vertexCount;
+  private int edgeCount;
+
+  /**
+   * IntWUGraph() constructs a graph having no vertices or edges.
+   * Running time:  O(1).
+   */
+
+  public IntWUGraph() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * IntWUGraph() constructs a graph having no vertices or edges, with room
+   * for vertex ids 0...idEstimate - 1 before any array needs to grow.
+   *
+   * Running time:  O(idEstimate).
+   */
+
+  public IntWUGraph(int idEstimate) {
+    int capacity = Math.max(idEstimate, 1);
+    degrees = new int[capacity];
+    Arrays.fill(degrees, -1);
+    neighbors = new int[capacity][];
+    weights = new int[capacity][];
+    siblings = new int[capacity][];
+    slotIndex = new LongIntHashTable();
+  }
+
+  /**
+   * vertexCount() returns the number of vertices in the graph.
+   * Running time:  O(1).
+   */
+
+  public int vertexCount() {
+    return vertexCount;
+  }
+
+  /**
+   * edgeCount() returns the total number of edges in the graph.
+   * Running time:  O(1).
+   */
+
+  public int edgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * idCapacity() returns a bound on the vertex ids:  every vertex of the
+   * graph is less than idCapacity().  Useful for sizing per-vertex arrays.
+   *
+   * Running time:  O(1).
+   */
+
+  public int idCapacity() {
+    return degrees.length;
+  }
+
+  /**
+   * getVertices() returns a new array containing every vertex of the graph,
+   * in increasing order.
+   *
+   * Running time:  O(idCapacity()).
+   */
+
+  public int[] getVertices() {
+    int[] result = new int[vertexCount];
+    int i = 0;
+    for (int v = 0; v < degrees.length; v++) {
+      if (degrees[v] >= 0) {
+        result[i] = v;
+        i++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * addVertex() adds a vertex (with no incident edges) to the graph.  If
+   * "vertex" is already a vertex of the graph, or is negative, the graph is
+   * unchanged.
+   *
+   * Running time:  O(1), amortized.
+   */
+
+  public void addVertex(int vertex) {
+    if (vertex < 0 || isVertex(vertex)) {
+      return;
+    }
+    if (vertex >= degrees.length) {
+      grow(vertex + 1);
+    }
+    if (neighbors[vertex] == null) {
+      neighbors[vertex] = new int[INITIAL_DEGREE];
+      weights[vertex] = new int[INITIAL_DEGREE];
+      siblings[vertex] = new int[INITIAL_DEGREE];
+    }
+    degrees[vertex] = 0;
+    vertexCount++;
+  }
+
+  /**
+   * removeVertex() removes a vertex from the graph.  All edges incident on
+   * the deleted vertex are removed.  If "vertex" is not a vertex of the
+   * graph, the graph is unchanged.  The vertex's rows are kept for reuse if
+   * the id is added again.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public void removeVertex(int vertex) {
+    if (!isVertex(vertex)) {
+      return;
+    }
+
+    // Always take the last half-edge, so our own row never needs patching.
+    int[] row = neighbors[vertex];
+    slotIndex.suspendShrink();
+    while (degrees[vertex] > 0) {
+      int last = degrees[vertex] - 1;
+      int other = row[last];
+      if (isIndexed(vertex, other)) {
+        slotIndex.remove(key(vertex, other));
+      }
+      if (other != vertex) {
+        removeSlot(other, siblings[vertex][last]);
+        unindexIfShort(other);
+      }
+      degrees[vertex] = last;
+      unindexIfShort(vertex);
+      edgeCount--;
+    }
+    slotIndex.resumeShrink();
+
+    degrees[vertex] = -1;
+    vertexCount--;
+  }
+
+  /**
+   * isVertex() returns true if "vertex" is a vertex of the graph.
+   * Running time:  O(1).
+   */
+
+  public boolean isVertex(int vertex) {
+    return vertex >= 0 && vertex < degrees.length && degrees[vertex] >= 0;
+  }
+
+  /**
+   * degree() returns the degree of a vertex.  Self-edges add only one to the
+   * degree of a vertex.  If "vertex" is not a vertex of the graph, zero is
+   * returned.
+   *
+   * Running time:  O(1).
+   */
+
+  public int degree(int vertex) {
+    if (!isVertex(vertex)) {
+      return 0;
+    }
+    return degrees[vertex];
+  }
+
+  /**
+   * neighbor() returns the "i"th neighbor of "vertex", for i in
+   * 0...degree(vertex) - 1.  The order is arbitrary and changes when edges
+   * of "vertex" are removed.
+   *
+   * Running time:  O(1).
+   */
+
+  public int neighbor(int vertex, int i) {
+    return neighbors[vertex][i];
+  }
+
+  /**
+   * neighborWeight() returns the weight of the edge to neighbor(vertex, i).
+   * Running time:  O(1).
+   */
+
+  public int neighborWeight(int vertex, int i) {
+    return weights[vertex][i];
+  }
+
+  /**
+   * getNeighbors() returns a new Neighbors object whose neighborList holds
+   * the neighbors of "vertex" as Integers, and whose weightList holds the
+   * weights of the corresponding edges.  If the vertex has degree zero, or
+   * if "vertex" is not a vertex of the graph, null is returned.  Callers
+   * that want to avoid boxing should use neighbor() and neighborWeight().
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public Neighbors getNeighbors(int vertex) {
+    if (degree(vertex) == 0) {
+      return null;
+    }
+
+    int degree = degrees[vertex];
+    Neighbors result = new Neighbors();
+    result.neighborList = new Object[degree];
+    result.weightList = new int[degree];
+    for (int i = 0; i < degree; i++) {
+      result.neighborList[i] = Integer.valueOf(neighbors[vertex][i]);
+      result.weightList[i] = weights[vertex][i];
+    }
+    return result;
+  }
+
+  /**
+   * addEdge() adds an edge (u, v) to the graph.  If either of u and v is not
+   * a vertex of the graph, the graph is unchanged.  If the graph already
+   * contains edge (u, v), the weight is updated to reflect the new value.
+   * Self-edges (where u == v) are allowed.
+   *
+   * Running time:  O(1) expected, amortized.
+   */
+
+  public void addEdge(int u, int v, int weight) {
+    if (!isVertex(u) || !isVertex(v)) {
+      return;
+    }
+
+    int slot = findSlot(u, v);
+    if (slot != -1) {
+      weights[u][slot] = weight;
+      weights[v][siblings[u][slot]] = weight;
+      return;
+    }
+
+    int uSlot = append(u, v, weight);
+    int vSlot = uSlot;
+    if (u != v) {
+      vSlot = append(v, u, weight);
+    }
+    siblings[u][uSlot] = vSlot;
+    siblings[v][vSlot] = uSlot;
+    indexIfLong(u);
+    if (u != v) {
+      indexIfLong(v);
+    }
+    if (isIndexed(u, v)) {
+      slotIndex.insert(key(u, v), u < v ? uSlot : vSlot);
+    }
+    edgeCount++;
+  }
+
+  /**
+   * removeEdge() removes an edge (u, v) from the graph.  If either of u and v
+   * is not a vertex of the graph, or (u, v) is not an edge, the graph is
+   * unchanged.
+   *
+   * Running time:  O(1) expected, amortized.
+   */
+
+  public void removeEdge(int u, int v) {
+    int uSlot = findSlot(u, v);
+    if (uSlot == -1) {
+      return;
+    }
+    if (isIndexed(u, v)) {
+      slotIndex.remove(key(u, v));
+    }
+
+    // No other half-edge of u leads to v, so moving u's last half-edge into
+    // uSlot cannot disturb the sibling slot we are about to use.
+    int vSlot = siblings[u][uSlot];
+    removeSlot(u, uSlot);
+    unindexIfShort(u);
+    if (u != v) {
+      removeSlot(v, vSlot);
+      unindexIfShort(v);
+    }
+    edgeCount--;
+  }
+
+  /**
+   * isEdge() returns true if (u, v) is an edge of the graph.
+   * Running time:  O(1) expected.
+   */
+
+  public boolean isEdge(int u, int v) {
+    return findSlot(u, v) != -1;
+  }
+
+  /**
+   * weight() returns the weight of (u, v).  Returns zero if (u, v) is not an
+   * edge.
+   *
+   * Running time:  O(1) expected.
+   */
+
+  public int weight(int u, int v) {
+    int slot = findSlot(u, v);
+    if (slot == -1) {
+      return 0;
+    }
+    return weights[u][slot];
+  }
+
+  /**
+   * freeze() returns an immutable CSRGraph snapshot of the graph whose
+   * vertices are Integers, numbered densely in increasing vertex order.
+   * Later changes to this graph do not affect the snapshot.
+   *
+   * Running time:  O(idCapacity() + |E|).
+   */
+
+  public CSRGraph freeze() {
+    int[] verts = getVertices();
+    int n = verts.length;
+    Object[] vertices = new Object[n];
+    HashTableChained ids = new HashTableChained(Math.max(n, 1));
+    int[] denseIds = new int[degrees.length];
+    int[] offsets = new int[n + 1];
+    for (int i = 0; i < n; i++) {
+      vertices[i] = Integer.valueOf(verts[i]);
+      ids.insert(vertices[i], Integer.valueOf(i));
+      denseIds[verts[i]] = i;
+      offsets[i + 1] = offsets[i] + degrees[verts[i]];
+    }
+
+    // Appending u to each neighbor's row, u in increasing order, leaves
+    // every row sorted.
+    int[] cursor = Arrays.copyOf(offsets, n);
+    int[] targets = new int[offsets[n]];
+    int[] targetWeights = new int[offsets[n]];
+    for (int u = 0; u < n; u++) {
+      int vertex = verts[u];
+      for (int i = 0; i < degrees[vertex]; i++) {
+        int w = denseIds[neighbors[vertex][i]];
+        targets[cursor[w]] = u;
+        targetWeights[cursor[w]] = weights[vertex][i];
+        cursor[w]++;
+      }
+    }
+
+    return new CSRGraph(vertices, ids, offsets, targets, targetWeights, edgeCount);
+  }
+
+  /**
+   * findSlot() returns the slot of v in u's row, or -1 if (u, v) is not an
+   * edge.  If either row is short, the shorter one is scanned; otherwise
+   * the slot comes from slotIndex.  Either way, a slot found in v's row
+   * leads back into u's row through its sibling slot.
+   */
+
+  private int findSlot(int u, int v) {
+    if (!isVertex(u) || !isVertex(v)) {
+      return -1;
+    }
+
+    if (isIndexed(u, v)) {
+      int i = slotIndex.find(key(u, v));
+      if (i == LongIntHashTable.NO_VALUE) {
+        return -1;
+      }
+      return u <= v ? i : siblings[v][i];
+    } else if (degrees[u] <= degrees[v]) {
+      int[] row = neighbors[u];
+      for (int i = 0; i < degrees[u]; i++) {
+        if (row[i] == v) {
+          return i;
+        }
+      }
+    } else {
+      int[] row = neighbors[v];
+      for (int i = 0; i < degrees[v]; i++) {
+        if (row[i] == u) {
+          return siblings[v][i];
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * append() adds a half-edge (vertex -> other) to the end of vertex's row,
+   * growing the row if it is full, and returns its slot.  The caller fills
+   * in the sibling slot.
+   */
+
+  private int append(int vertex, int other, int weight) {
+    int slot = degrees[vertex];
+    if (slot == neighbors[vertex].length) {
+      int length = slot * 2;
+      neighbors[vertex] = Arrays.copyOf(neighbors[vertex], length);
+      weights[vertex] = Arrays.copyOf(weights[vertex], length);
+      siblings[vertex] = Arrays.copyOf(siblings[vertex], length);
+    }
+    neighbors[vertex][slot] = other;
+    weights[vertex][slot] = weight;
+    degrees[vertex] = slot + 1;
+    return slot;
+  }
+
+  /**
+   * removeSlot() deletes the half-edge at "slot" of vertex's row by moving
+   * the row's last half-edge into the hole, then repointing the moved
+   * half-edge's sibling, and its slotIndex entry if it is indexed by this
+   * row, at its new slot.  If the row falls to SCAN_DEGREE, the caller
+   * must then call unindexIfShort(), which drops the stale entries.
+   */
+
+  private void removeSlot(int vertex, int slot) {
+    int last = degrees[vertex] - 1;
+    degrees[vertex] = last;
+    if (slot != last) {
+      int moved = neighbors[vertex][last];
+      neighbors[vertex][slot] = moved;
+      weights[vertex][slot] = weights[vertex][last];
+      siblings[vertex][slot] = siblings[vertex][last];
+      if (moved == vertex) {
+        siblings[vertex][slot] = slot;
+      } else {
+        siblings[moved][siblings[vertex][slot]] = slot;
+      }
+      if (vertex <= moved && isIndexed(vertex, moved)) {
+        slotIndex.insert(key(vertex, moved), slot);
+      }
+    }
+  }
+
+  /**
+   * isIndexed() returns true if an edge (u, v) would be in slotIndex:  if
+   * both u and v have degree above SCAN_DEGREE.
+   */
+
+  private boolean isIndexed(int u, int v) {
+    return degrees[u] > SCAN_DEGREE && degrees[v] > SCAN_DEGREE;
+  }
+
+  /**
+   * indexIfLong() adds to slotIndex the edges of "vertex" that have become
+   * indexed if its degree has just risen past SCAN_DEGREE.
+   */
+
+  private void indexIfLong(int vertex) {
+    if (degrees[vertex] != SCAN_DEGREE + 1) {
+      return;
+    }
+    for (int i = 0; i <= SCAN_DEGREE; i++) {
+      int other = neighbors[vertex][i];
+      if (isIndexed(vertex, other)) {
+        slotIndex.insert(key(vertex, other), vertex <= other ? i : siblings[vertex][i]);
+      }
+    }
+  }
+
+  /**
+   * unindexIfShort() removes every edge of "vertex" from slotIndex if its
+   * degree has just fallen to SCAN_DEGREE.
+   */
+
+  private void unindexIfShort(int vertex) {
+    if (degrees[vertex] != SCAN_DEGREE) {
+      return;
+    }
+    for (int i = 0; i < SCAN_DEGREE; i++) {
+      slotIndex.remove(key(vertex, neighbors[vertex][i]));
+    }
+  }
+
+  /**
+   * key() packs the edge (u, v) into its slotIndex key.
+   */
+
+  private static long key(int u, int v) {
+    return u < v ? ((long) u << 32) | v : ((long) v << 32) | u;
+  }
+
+  /**
+   * grow() enlarges the per-vertex arrays so that ids below "minCapacity"
+   * fit, at least doubling them so repeated addVertex() calls stay O(1)
+   * amortized.
+   */
+
+  private void grow(int minCapacity) {
+    int oldCapacity = degrees.length;
+    int capacity = Math.max(oldCapacity * 2, minCapacity);
+    degrees = Arrays.copyOf(degrees, capacity);
+    Arrays.fill(degrees, oldCapacity, capacity, -1);
+    neighbors = Arrays.copyOf(neighbors, capacity);
+    weights = Arrays.copyOf(weights, capacity);
+    siblings = Arrays.copyOf(siblings, capacity);
+  }
+}
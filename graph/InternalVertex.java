@@ -14,6 +14,9 @@ public class InternalVertex {
 	
 	//Holds all of the edges.
 	protected DList edgeList = new DList();    
+
+	//Dense id, unique among the graph's live vertices; half of each packed edge key.
+	protected int id;
 	
 	//Default constructor which assigns the InternalVertex's realVertex.
 	protected InternalVertex(Object vertex) {
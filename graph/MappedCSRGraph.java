@@ -0,0 +1,380 @@
+/* MappedCSRGraph.java */
+
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * The MappedCSRGraph class serves a read-only graph straight out of a
+ * memory-mapped file.  save() writes a CSRGraph whose vertices are Integers
+ * to a compact binary file; load() maps that file and answers queries from
+ * the mapped pages, so opening a graph costs a few system calls no matter
+ * how large it is.  The pages are read-only and shared, so several JVMs
+ * loading the same file share one copy of the graph in memory.
+ *
+ * File layout, all big-endian ints:
+ *
+ *   header         MAGIC, FORMAT_VERSION, vertexCount V, slot count S,
+ *                  edgeCount
+ *   labels[V]      the Integer value of the vertex with each dense id
+ *   sortedLabels[V], sortedIds[V]
+ *                  the labels in increasing order, with their dense ids,
+ *                  so a vertex is found by binary search instead of a
+ *                  hash table that would have to be rebuilt at load time
+ *   offsets[V + 1], targets[S], weights[S]
+ *                  the CSR rows, exactly as in CSRGraph
+ */
+
+public class MappedCSRGraph implements GraphView {
+
+  private static final int MAGIC = 0x57554743;          // "WUGC"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_INTS = 5;
+
+  private final int vertexCount;
+  private final int edgeCount;
+
+  private final IntBuffer labels;
+  private final IntBuffer sortedLabels;
+  private final IntBuffer sortedIds;
+  private final IntBuffer offsets;
+  private final IntBuffer targets;
+  private final IntBuffer weights;
+
+  private MappedCSRGraph(int vertexCount, int edgeCount, IntBuffer labels,
+                         IntBuffer sortedLabels, IntBuffer sortedIds,
+                         IntBuffer offsets, IntBuffer targets, IntBuffer weights) {
+    this.vertexCount = vertexCount;
+    this.edgeCount = edgeCount;
+    this.labels = labels;
+    this.sortedLabels = sortedLabels;
+    this.sortedIds = sortedIds;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+  }
+
+  /**
+   * save() writes "g" to "file" in the format load() maps.  Every vertex of
+   * g must be an Integer.
+   *
+   * @throws IllegalArgumentException if some vertex is not an Integer.
+   * @throws IOException if the file cannot be written.
+   */
+
+  public static void save(CSRGraph g, File file) throws IOException {
+    int n = g.vertexCount();
+    int[] labels = new int[n];
+    long[] order = new long[n];
+    for (int id = 0; id < n; id++) {
+      Object vertex = g.vertex(id);
+      if (!(vertex instanceof Integer)) {
+        throw new IllegalArgumentException("only graphs with Integer vertices can be saved");
+      }
+      labels[id] = ((Integer) vertex).intValue();
+      // label in the high half, id in the low half: sorting orders by label
+      order[id] = ((long) labels[id] << 32) | id;
+    }
+    Arrays.sort(order);
+
+    int slots = g.offset(n);
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(n);
+      out.writeInt(slots);
+      out.writeInt(g.edgeCount());
+      for (int id = 0; id < n; id++) {
+        out.writeInt(labels[id]);
+      }
+      for (int i = 0; i < n; i++) {
+        out.writeInt((int) (order[i] >> 32));
+      }
+      for (int i = 0; i < n; i++) {
+        out.writeInt((int) order[i]);
+      }
+      for (int id = 0; id <= n; id++) {
+        out.writeInt(g.offset(id));
+      }
+      for (int slot = 0; slot < slots; slot++) {
+        out.writeInt(g.target(slot));
+      }
+      for (int slot = 0; slot < slots; slot++) {
+        out.writeInt(g.targetWeight(slot));
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * load() maps a file written by save() and returns a graph that reads
+   * from it directly.  Nothing is copied onto the heap.
+   *
+   * @throws IOException if the file cannot be read or is not a graph file.
+   */
+
+  public static MappedCSRGraph load(File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      if (channel.size() < HEADER_INTS * 4) {
+        throw new IOException(file + " is not a graph file");
+      }
+      IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_INTS * 4).asIntBuffer();
+      if (header.get(0) != MAGIC || header.get(1) != FORMAT_VERSION) {
+        throw new IOException(file + " is not a graph file");
+      }
+      int n = header.get(2);
+      int slots = header.get(3);
+      int edges = header.get(4);
+
+      long position = HEADER_INTS * 4;
+      long expected = position + 4L * (3L * n + (n + 1) + 2L * slots);
+      if (channel.size() != expected) {
+        throw new IOException(file + " is truncated or corrupt");
+      }
+
+      // Each section is mapped on its own, since one mapping is limited to
+      // 2GB; the mappings stay valid after the channel is closed.
+      IntBuffer labels = mapInts(channel, position, n);
+      position += 4L * n;
+      IntBuffer sortedLabels = mapInts(channel, position, n);
+      position += 4L * n;
+      IntBuffer sortedIds = mapInts(channel, position, n);
+      position += 4L * n;
+      IntBuffer offsets = mapInts(channel, position, n + 1);
+      position += 4L * (n + 1);
+      IntBuffer targets = mapInts(channel, position, slots);
+      position += 4L * slots;
+      IntBuffer weights = mapInts(channel, position, slots);
+
+      return new MappedCSRGraph(n, edges, labels, sortedLabels, sortedIds,
+                                offsets, targets, weights);
+    } finally {
+      raf.close();
+    }
+  }
+
+  private static IntBuffer mapInts(FileChannel channel, long position, int count) throws IOException {
+    if (4L * count > Integer.MAX_VALUE) {
+      throw new IOException("graph file section too large to map");
+    }
+    ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count);
+    return bytes.asIntBuffer();
+  }
+
+  /**
+   * vertexCount() returns the number of vertices in the graph.
+   * Running time:  O(1).
+   */
+
+  public int vertexCount() {
+    return vertexCount;
+  }
+
+  /**
+   * edgeCount() returns the total number of edges in the graph.
+   * Running time:  O(1).
+   */
+
+  public int edgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * getVertices() returns a new array of the vertices, as Integers, indexed
+   * by dense id.
+   *
+   * Running time:  O(|V|).
+   */
+
+  public Object[] getVertices() {
+    Object[] result = new Object[vertexCount];
+    for (int id = 0; id < vertexCount; id++) {
+      result[id] = Integer.valueOf(labels.get(id));
+    }
+    return result;
+  }
+
+  /**
+   * vertex() returns the vertex that has dense id "id".
+   * Running time:  O(1).
+   */
+
+  public Object vertex(int id) {
+    return Integer.valueOf(labels.get(id));
+  }
+
+  /**
+   * id() returns the dense id of "vertex", or -1 if "vertex" is not a vertex
+   * of the graph.
+   *
+   * Running time:  O(log |V|).
+   */
+
+  public int id(Object vertex) {
+    if (!(vertex instanceof Integer)) {
+      return -1;
+    }
+    int label = ((Integer) vertex).intValue();
+    int low = 0;
+    int high = vertexCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int midLabel = sortedLabels.get(mid);
+      if (midLabel < label) {
+        low = mid + 1;
+      } else if (midLabel > label) {
+        high = mid - 1;
+      } else {
+        return sortedIds.get(mid);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * offset(), target() and targetWeight() give direct access to the CSR rows,
+   * as in CSRGraph.
+   */
+
+  public int offset(int id) {
+    return offsets.get(id);
+  }
+
+  public int target(int slot) {
+    return targets.get(slot);
+  }
+
+  public int targetWeight(int slot) {
+    return weights.get(slot);
+  }
+
+  /**
+   * isVertex() returns true if the parameter "vertex" represents a vertex of
+   * the graph.
+   *
+   * Running time:  O(log |V|).
+   */
+
+  public boolean isVertex(Object vertex) {
+    return id(vertex) != -1;
+  }
+
+  /**
+   * degree() returns the degree of a vertex, or zero if "vertex" is not a
+   * vertex of the graph.
+   *
+   * Running time:  O(log |V|).
+   */
+
+  public int degree(Object vertex) {
+    int id = id(vertex);
+    if (id == -1) {
+      return 0;
+    }
+    return offsets.get(id + 1) - offsets.get(id);
+  }
+
+  /**
+   * getNeighbors() returns a new Neighbors object listing the neighbors of
+   * "vertex", ordered by id, and the weights of the corresponding edges.
+   * If the vertex has degree zero, or if "vertex" is not a vertex of the
+   * graph, null is returned.
+   *
+   * Running time:  O(d + log |V|), where d is the degree of "vertex".
+   */
+
+  public Neighbors getNeighbors(Object vertex) {
+    int degree = degree(vertex);
+    if (degree == 0) {
+      return null;
+    }
+
+    int start = offsets.get(id(vertex));
+    Neighbors neighbors = new Neighbors();
+    neighbors.neighborList = new Object[degree];
+    neighbors.weightList = new int[degree];
+    for (int i = 0; i < degree; i++) {
+      neighbors.neighborList[i] = vertex(targets.get(start + i));
+      neighbors.weightList[i] = weights.get(start + i);
+    }
+    return neighbors;
+  }
+
+  /**
+   * forEachNeighbor() calls visitor.visit() once for each edge incident on
+   * "vertex".  If "vertex" is not a vertex of the graph, the visitor is
+   * never called.
+   *
+   * Running time:  O(d + log |V|), where d is the degree of "vertex".
+   */
+
+  public void forEachNeighbor(Object vertex, NeighborVisitor visitor) {
+    int id = id(vertex);
+    if (id == -1) {
+      return;
+    }
+    int end = offsets.get(id + 1);
+    for (int slot = offsets.get(id); slot < end; slot++) {
+      visitor.visit(vertex(targets.get(slot)), weights.get(slot));
+    }
+  }
+
+  /**
+   * isEdge() returns true if (u, v) is an edge of the graph.
+   * Running time:  O(log |V| + log d), where d is the degree of "u".
+   */
+
+  public boolean isEdge(Object u, Object v) {
+    return findSlot(u, v) != -1;
+  }
+
+  /**
+   * weight() returns the weight of (u, v), or zero if (u, v) is not an edge.
+   * Running time:  O(log |V| + log d), where d is the degree of "u".
+   */
+
+  public int weight(Object u, Object v) {
+    int slot = findSlot(u, v);
+    if (slot == -1) {
+      return 0;
+    }
+    return weights.get(slot);
+  }
+
+  private int findSlot(Object u, Object v) {
+    int uId = id(u);
+    int vId = id(v);
+    if (uId == -1 || vId == -1) {
+      return -1;
+    }
+
+    int low = offsets.get(uId);
+    int high = offsets.get(uId + 1) - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int target = targets.get(mid);
+      if (target < vId) {
+        low = mid + 1;
+      } else if (target > vId) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+}
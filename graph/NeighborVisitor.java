@@ -0,0 +1,23 @@
+/* NeighborVisitor.java */
+
+package graph;
+
+/**
+ * A NeighborVisitor is handed each neighbor of a vertex, together with the
+ * weight of the connecting edge, by WUGraph.forEachNeighbor().  It lets an
+ * algorithm scan adjacency without the arrays getNeighbors() allocates; one
+ * visitor object can be reused for every vertex.
+ */
+
+public interface NeighborVisitor {
+
+  /**
+   * visit() is called once for each edge incident on the vertex being
+   * scanned.  The graph must not be changed from inside visit().
+   *
+   * @param neighbor the vertex at the other end of the edge.
+   * @param weight the weight of the edge.
+   */
+
+  public void visit(Object neighbor, int weight);
+}
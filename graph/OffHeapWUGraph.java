@@ -0,0 +1,582 @@
+/* OffHeapWUGraph.java */
+
+package graph;
+
+import dict.Entry;
+import dict.HashTableChained;
+import java.util.Arrays;
+
+/**
+ * The OffHeapWUGraph class is a weighted, undirected graph with the same
+ * operations as WUGraph, whose edges live outside the Java heap.  Only the
+ * vertices are on the heap:  each vertex object is given a small int id,
+ * and the id indexes plain arrays holding the head of the vertex's edge
+ * list and its degree.  Self-edges are permitted.
+ *
+ * Each edge is one fixed-size record of RECORD_INTS ints in a DirectIntArray:
+ * its two endpoint ids, its weight, and the next/previous links of the edge
+ * in each endpoint's doubly-linked edge list.  A self-edge is linked into
+ * its vertex's list only once.  Edges are found by an open-addressing hash
+ * table, also off the heap, keyed by the packed long (min id, max id) of
+ * the endpoints.  Freed edge records and freed vertex ids are recycled, so
+ * a graph under steady churn does not grow.
+ *
+ * An edge costs 28 bytes of record plus about 24 bytes of index, instead of
+ * the hundreds of heap bytes WUGraph spends on half-edges, list nodes and
+ * hash entries, and none of it is scanned by the garbage collector.  The
+ * total is limited by -XX:MaxDirectMemorySize rather than by the heap.
+ */
+
+public class OffHeapWUGraph implements GraphView {
+
+  //Edge record layout.
+  private static final int U = 0;
+  private static final int V = 1;
+  private static final int WEIGHT = 2;
+  private static final int NEXT_U = 3;
+  private static final int PREV_U = 4;
+  private static final int NEXT_V = 5;
+  private static final int PREV_V = 6;
+  private static final int RECORD_INTS = 7;
+
+  private static final int NIL = -1;
+
+  //Endpoint ids are never negative, so -1 never packs to a real key.
+  private static final long EMPTY = -1L;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  //Real vertex object -> Integer id, and id -> real vertex object.
+  private HashTableChained vertexIds;
+  private Object[] vertices;
+
+  //Per-id head of the edge list and degree; unused ids have degree -1.
+  private int[] heads;
+  private int[] degrees;
+
+  //Ids given up by removeVertex(), reused before new ones.
+  private int[] freeIds;
+  private int freeIdCount;
+  private int nextId;
+  private int vertexCount;
+
+  //Edge records, and the head of the list of free records, threaded
+  //through NEXT_U.
+  private DirectIntArray edges;
+  private int freeEdge;
+  private int nextEdge;
+  private int edgeCount;
+
+  //Packed endpoint key -> edge record, linear probing.
+  private DirectLongArray indexKeys;
+  private DirectIntArray indexValues;
+  private long indexMask;
+
+  /**
+   * OffHeapWUGraph() constructs a graph having no vertices or edges.
+   * Running time:  O(1).
+   */
+
+  public OffHeapWUGraph() {
+    this(INITIAL_CAPACITY, INITIAL_CAPACITY);
+  }
+
+  /**
+   * OffHeapWUGraph() constructs a graph having no vertices or edges, with
+   * room for roughly vertexEstimate vertices and edgeEstimate edges before
+   * anything needs to grow.
+   *
+   * Running time:  O(vertexEstimate + edgeEstimate).
+   */
+
+  public OffHeapWUGraph(int vertexEstimate, int edgeEstimate) {
+    int capacity = Math.max(vertexEstimate, 1);
+    vertexIds = new HashTableChained(capacity);
+    vertices = new Object[capacity];
+    heads = new int[capacity];
+    degrees = new int[capacity];
+    Arrays.fill(degrees, -1);
+    freeIds = new int[INITIAL_CAPACITY];
+
+    edges = new DirectIntArray((long) Math.max(edgeEstimate, 1) * RECORD_INTS);
+    freeEdge = NIL;
+    allocateIndex(indexCapacityFor(edgeEstimate));
+  }
+
+  /**
+   * vertexCount() returns the number of vertices in the graph.
+   * Running time:  O(1).
+   */
+
+  public int vertexCount() {
+    return vertexCount;
+  }
+
+  /**
+   * edgeCount() returns the total number of edges in the graph.
+   * Running time:  O(1).
+   */
+
+  public int edgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * getVertices() returns an array containing all the objects that serve
+   * as vertices of the graph, in id order.  The array's length is exactly
+   * equal to the number of vertices.
+   *
+   * Running time:  O(|V|).
+   */
+
+  public Object[] getVertices() {
+    Object[] result = new Object[vertexCount];
+    int i = 0;
+    for (int id = 0; id < nextId; id++) {
+      if (degrees[id] != -1) {
+        result[i] = vertices[id];
+        i++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * addVertex() adds a vertex (with no incident edges) to the graph.
+   * If this object is already a vertex of the graph, the graph is unchanged.
+   *
+   * Running time:  O(1).
+   */
+
+  public void addVertex(Object vertex) {
+    if (id(vertex) != NIL) {
+      return;
+    }
+
+    int id;
+    if (freeIdCount > 0) {
+      freeIdCount--;
+      id = freeIds[freeIdCount];
+    } else {
+      if (nextId == vertices.length) {
+        int length = vertices.length * 2;
+        vertices = Arrays.copyOf(vertices, length);
+        heads = Arrays.copyOf(heads, length);
+        degrees = Arrays.copyOf(degrees, length);
+        Arrays.fill(degrees, nextId, length, -1);
+      }
+      id = nextId;
+      nextId++;
+    }
+
+    vertices[id] = vertex;
+    heads[id] = NIL;
+    degrees[id] = 0;
+    vertexIds.insert(vertex, Integer.valueOf(id));
+    vertexCount++;
+  }
+
+  /**
+   * removeVertex() removes a vertex from the graph.  All edges incident on
+   * the deleted vertex are removed.  If the parameter "vertex" does not
+   * represent a vertex of the graph, the graph is unchanged.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public void removeVertex(Object vertex) {
+    int id = id(vertex);
+    if (id == NIL) {
+      return;
+    }
+
+    // Every edge of the list goes, so only the other endpoint's list needs
+    // unlinking.
+    int e = heads[id];
+    while (e != NIL) {
+      int next = edges.get(field(e, nextField(e, id)));
+      int other = otherEnd(e, id);
+      if (other != id) {
+        unlink(e, other);
+      }
+      indexRemove(key(id, other));
+      freeRecord(e);
+      e = next;
+    }
+
+    vertexIds.remove(vertex);
+    vertices[id] = null;
+    degrees[id] = -1;
+    if (freeIdCount == freeIds.length) {
+      freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+    }
+    freeIds[freeIdCount] = id;
+    freeIdCount++;
+    vertexCount--;
+  }
+
+  /**
+   * isVertex() returns true if the parameter "vertex" represents a vertex of
+   * the graph.
+   *
+   * Running time:  O(1).
+   */
+
+  public boolean isVertex(Object vertex) {
+    return id(vertex) != NIL;
+  }
+
+  /**
+   * degree() returns the degree of a vertex.  Self-edges add only one to the
+   * degree of a vertex.  If the parameter "vertex" doesn't represent a vertex
+   * of the graph, zero is returned.
+   *
+   * Running time:  O(1).
+   */
+
+  public int degree(Object vertex) {
+    int id = id(vertex);
+    if (id == NIL) {
+      return 0;
+    }
+    return degrees[id];
+  }
+
+  /**
+   * getNeighbors() returns a new Neighbors object listing the neighbors of
+   * "vertex" and the weights of the corresponding edges, most recently added
+   * first, as in WUGraph.  If the vertex has degree zero, or if "vertex" is
+   * not a vertex of the graph, null is returned.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public Neighbors getNeighbors(Object vertex) {
+    int id = id(vertex);
+    if (id == NIL || degrees[id] == 0) {
+      return null;
+    }
+
+    Neighbors neighbors = new Neighbors();
+    neighbors.neighborList = new Object[degrees[id]];
+    neighbors.weightList = new int[degrees[id]];
+    int i = 0;
+    for (int e = heads[id]; e != NIL; e = edges.get(field(e, nextField(e, id)))) {
+      neighbors.neighborList[i] = vertices[otherEnd(e, id)];
+      neighbors.weightList[i] = edges.get(field(e, WEIGHT));
+      i++;
+    }
+    return neighbors;
+  }
+
+  /**
+   * forEachNeighbor() calls visitor.visit() once for each edge incident on
+   * "vertex", in the same order getNeighbors() would list them, without
+   * allocating.  If "vertex" is not a vertex of the graph, the visitor is
+   * never called.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public void forEachNeighbor(Object vertex, NeighborVisitor visitor) {
+    int id = id(vertex);
+    if (id == NIL) {
+      return;
+    }
+    for (int e = heads[id]; e != NIL; e = edges.get(field(e, nextField(e, id)))) {
+      visitor.visit(vertices[otherEnd(e, id)], edges.get(field(e, WEIGHT)));
+    }
+  }
+
+  /**
+   * addEdge() adds an edge (u, v) to the graph.  If either of the parameters
+   * u and v does not represent a vertex of the graph, the graph is
+   * unchanged.  The edge is assigned a weight of "weight".  If the graph
+   * already contains edge (u, v), the weight is updated to reflect the new
+   * value.  Self-edges (where u.equals(v)) are allowed.
+   *
+   * Running time:  O(1).
+   */
+
+  public void addEdge(Object u, Object v, int weight) {
+    int uId = id(u);
+    int vId = id(v);
+    if (uId == NIL || vId == NIL) {
+      return;
+    }
+
+    long key = key(uId, vId);
+    long slot = indexSlot(key);
+    if (indexKeys.get(slot) != EMPTY) {
+      edges.set(field(indexValues.get(slot), WEIGHT), weight);
+      return;
+    }
+
+    int e = allocateRecord();
+    edges.set(field(e, U), uId);
+    edges.set(field(e, V), vId);
+    edges.set(field(e, WEIGHT), weight);
+    link(e, uId);
+    if (uId != vId) {
+      link(e, vId);
+    }
+    indexKeys.set(slot, key);
+    indexValues.set(slot, e);
+    edgeCount++;
+
+    if ((long) edgeCount * 4 > (indexMask + 1) * 3) {
+      allocateIndex((indexMask + 1) * 2);
+    }
+  }
+
+  /**
+   * removeEdge() removes an edge (u, v) from the graph.  If either of the
+   * parameters u and v does not represent a vertex of the graph, the graph
+   * is unchanged.  If (u, v) is not an edge of the graph, the graph is
+   * unchanged.
+   *
+   * Running time:  O(1).
+   */
+
+  public void removeEdge(Object u, Object v) {
+    int uId = id(u);
+    int vId = id(v);
+    if (uId == NIL || vId == NIL) {
+      return;
+    }
+
+    long key = key(uId, vId);
+    long slot = indexSlot(key);
+    if (indexKeys.get(slot) == EMPTY) {
+      return;
+    }
+    int e = indexValues.get(slot);
+    unlink(e, uId);
+    if (uId != vId) {
+      unlink(e, vId);
+    }
+    deleteSlot(slot);
+    freeRecord(e);
+  }
+
+  /**
+   * isEdge() returns true if (u, v) is an edge of the graph.  Returns false
+   * if (u, v) is not an edge (including the case where either of the
+   * parameters u and v does not represent a vertex of the graph).
+   *
+   * Running time:  O(1).
+   */
+
+  public boolean isEdge(Object u, Object v) {
+    return findEdge(u, v) != NIL;
+  }
+
+  /**
+   * weight() returns the weight of (u, v).  Returns zero if (u, v) is not
+   * an edge (including the case where either of the parameters u and v does
+   * not represent a vertex of the graph).
+   *
+   * Running time:  O(1).
+   */
+
+  public int weight(Object u, Object v) {
+    int e = findEdge(u, v);
+    if (e == NIL) {
+      return 0;
+    }
+    return edges.get(field(e, WEIGHT));
+  }
+
+  private int findEdge(Object u, Object v) {
+    int uId = id(u);
+    int vId = id(v);
+    if (uId == NIL || vId == NIL) {
+      return NIL;
+    }
+    long slot = indexSlot(key(uId, vId));
+    if (indexKeys.get(slot) == EMPTY) {
+      return NIL;
+    }
+    return indexValues.get(slot);
+  }
+
+  /**
+   * id() returns the id of "vertex", or NIL if it is not a vertex.
+   */
+
+  private int id(Object vertex) {
+    Entry entry = vertexIds.find(vertex);
+    if (entry == null) {
+      return NIL;
+    }
+    return ((Integer) entry.value()).intValue();
+  }
+
+  private static long field(int e, int offset) {
+    return (long) e * RECORD_INTS + offset;
+  }
+
+  /**
+   * nextField() returns the offset of the link that continues vertex id's
+   * list past edge e.  A self-edge is linked through its U links only.
+   */
+
+  private int nextField(int e, int id) {
+    return edges.get(field(e, U)) == id ? NEXT_U : NEXT_V;
+  }
+
+  private int otherEnd(int e, int id) {
+    int u = edges.get(field(e, U));
+    return u == id ? edges.get(field(e, V)) : u;
+  }
+
+  /**
+   * link() pushes edge e onto the front of vertex id's list.
+   */
+
+  private void link(int e, int id) {
+    int next = nextField(e, id);
+    int head = heads[id];
+    edges.set(field(e, next), head);
+    edges.set(field(e, next + 1), NIL);
+    if (head != NIL) {
+      edges.set(field(head, nextField(head, id) + 1), e);
+    }
+    heads[id] = e;
+    degrees[id]++;
+  }
+
+  /**
+   * unlink() takes edge e out of vertex id's list.
+   */
+
+  private void unlink(int e, int id) {
+    int nextLink = nextField(e, id);
+    int next = edges.get(field(e, nextLink));
+    int prev = edges.get(field(e, nextLink + 1));
+    if (prev == NIL) {
+      heads[id] = next;
+    } else {
+      edges.set(field(prev, nextField(prev, id)), next);
+    }
+    if (next != NIL) {
+      edges.set(field(next, nextField(next, id) + 1), prev);
+    }
+    degrees[id]--;
+  }
+
+  private int allocateRecord() {
+    if (freeEdge != NIL) {
+      int e = freeEdge;
+      freeEdge = edges.get(field(e, NEXT_U));
+      return e;
+    }
+    edges.ensureCapacity(field(nextEdge + 1, 0));
+    nextEdge++;
+    return nextEdge - 1;
+  }
+
+  private void freeRecord(int e) {
+    edges.set(field(e, NEXT_U), freeEdge);
+    freeEdge = e;
+    edgeCount--;
+  }
+
+  /**
+   * key() packs an unordered pair of ids into one long, smaller id first.
+   */
+
+  private static long key(int uId, int vId) {
+    if (uId > vId) {
+      return ((long) vId << 32) | uId;
+    }
+    return ((long) uId << 32) | vId;
+  }
+
+  private static long hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    return key;
+  }
+
+  private static long indexCapacityFor(long edges) {
+    long capacity = INITIAL_CAPACITY;
+    while (capacity * 3 < edges * 4) {
+      capacity *= 2;
+    }
+    return capacity;
+  }
+
+  /**
+   * indexSlot() returns the slot holding "key", or the empty slot that ends
+   * its probe sequence if it is absent.
+   */
+
+  private long indexSlot(long key) {
+    long slot = hash(key) & indexMask;
+    while (true) {
+      long k = indexKeys.get(slot);
+      if (k == key || k == EMPTY) {
+        return slot;
+      }
+      slot = (slot + 1) & indexMask;
+    }
+  }
+
+  private void indexRemove(long key) {
+    long slot = indexSlot(key);
+    if (indexKeys.get(slot) != EMPTY) {
+      deleteSlot(slot);
+    }
+  }
+
+  /**
+   * deleteSlot() empties a slot and shifts later members of the probe run
+   * back into the hole, so lookups never need tombstones.
+   */
+
+  private void deleteSlot(long hole) {
+    long slot = hole;
+    while (true) {
+      slot = (slot + 1) & indexMask;
+      long k = indexKeys.get(slot);
+      if (k == EMPTY) {
+        break;
+      }
+      long home = hash(k) & indexMask;
+      // Move k back unless its home lies cyclically in (hole, slot].
+      if (((slot - home) & indexMask) >= ((slot - hole) & indexMask)) {
+        indexKeys.set(hole, k);
+        indexValues.set(hole, indexValues.get(slot));
+        hole = slot;
+      }
+    }
+    indexKeys.set(hole, EMPTY);
+  }
+
+  /**
+   * allocateIndex() replaces the index with an empty one of "capacity"
+   * slots (a power of two) and reinserts every live edge into it.
+   */
+
+  private void allocateIndex(long capacity) {
+    DirectLongArray oldKeys = indexKeys;
+    DirectIntArray oldValues = indexValues;
+    indexKeys = new DirectLongArray(capacity);
+    indexKeys.fill(EMPTY);
+    indexValues = new DirectIntArray(capacity);
+    indexMask = capacity - 1;
+
+    if (oldKeys != null) {
+      for (long slot = 0; slot < oldKeys.capacity(); slot++) {
+        long k = oldKeys.get(slot);
+        if (k != EMPTY) {
+          long newSlot = indexSlot(k);
+          indexKeys.set(newSlot, k);
+          indexValues.set(newSlot, oldValues.get(slot));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,748 @@
+/* PartitionedWUGraph.java */
+
+package graph;
+
+import dict.Entry;
+import dict.HashTableChained;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import list.DList;
+import list.DListNode;
+
+/**
+ * The PartitionedWUGraph class is a weighted, undirected graph split into
+ * shards by vertex hash code, each shard owned by one worker thread.  A
+ * shard's vertices, their edge lists and its counts are only ever touched by
+ * its own worker, so no graph data is locked; callers hand work to a shard
+ * by posting a message to its mailbox.  Updates to vertices in different
+ * shards run on different cores.  Self-edges are permitted.
+ *
+ * Updates are asynchronous:  addVertex(), addEdge() and the rest post a
+ * message and return at once.  Each shard applies its messages in the order
+ * they arrive.  An edge whose endpoints live in two shards is kept as one
+ * record in each, and every change to it travels from the lower-numbered
+ * shard to the higher one and back:
+ *
+ *   - addEdge() asks the lower shard whether its endpoint exists, the
+ *     higher shard then links (or reweights) its record, and the lower
+ *     shard links its own.  If the lower endpoint was removed meanwhile,
+ *     the lower shard tells the higher one to unlink again, unless a later
+ *     addEdge() from the endpoint's new incarnation has relinked it.
+ *   - removeEdge() follows the same path, unlinking instead.
+ *
+ * Because every change to one edge takes the same path, and each mailbox is
+ * first-in first-out, the changes are applied in the order they were made.
+ * The higher shard of a cross-shard edge is the one that counts it.
+ *
+ * Queries post a message and wait for the answer.  They see every update
+ * the shards have applied so far; call flush() first to wait for all
+ * updates posted earlier.  Call shutdown() to stop the workers.
+ *
+ * An update that throws, for instance because a vertex's equals() method
+ * does, cannot report to its caller, who has already returned.  The shard
+ * skips it and keeps the first such failure, and the next flush() or query
+ * throws an IllegalStateException caused by it, once.  Later failures
+ * before that are dropped.
+ */
+
+public class PartitionedWUGraph implements GraphView {
+
+  //Message operations.
+  private static final int ADD_VERTEX = 0;
+  private static final int REMOVE_VERTEX = 1;
+  private static final int LOCAL_ADD = 2;
+  private static final int LOCAL_REMOVE = 3;
+  private static final int PROBE = 4;
+  private static final int LINK = 5;
+  private static final int CONFIRM = 6;
+  private static final int REMOVE_PROBE = 7;
+  private static final int REMOVE_LINK = 8;
+  private static final int REMOVE_CONFIRM = 9;
+  private static final int UNLINK_HALF = 10;
+  private static final int QUERY = 11;
+  private static final int STOP = 12;
+
+  //Query kinds.
+  private static final int VERTEX_COUNT = 0;
+  private static final int EDGE_COUNT = 1;
+  private static final int VERTICES = 2;
+  private static final int IS_VERTEX = 3;
+  private static final int DEGREE = 4;
+  private static final int NEIGHBORS = 5;
+  private static final int WEIGHT = 6;
+
+  private final Shard[] shards;
+
+  //Messages posted but not yet fully applied, for flush().
+  private final AtomicLong pending = new AtomicLong();
+  private final Object idle = new Object();
+
+  //First update that failed since the last one was reported.
+  private final AtomicReference<RuntimeException> failure =
+    new AtomicReference<RuntimeException>();
+
+  /**
+   * A Message is one unit of work for a shard.  "u" is the endpoint that
+   * lives in the receiving shard, and "v" the other one.
+   */
+
+  private static class Message {
+    private final int op;
+    private final Object u;
+    private final Object v;
+    private final int weight;
+    private final ShardVertex vertex;
+    private final CompletableFuture<Object> reply;
+
+    private Message(int op, Object u, Object v, int weight, ShardVertex vertex,
+                    CompletableFuture<Object> reply) {
+      this.op = op;
+      this.u = u;
+      this.v = v;
+      this.weight = weight;
+      this.vertex = vertex;
+      this.reply = reply;
+    }
+  }
+
+  /**
+   * A ShardVertex is a vertex and the list of its ShardEdges.
+   */
+
+  private static class ShardVertex {
+    private final Object vertex;
+    private final DList edgeList = new DList();
+    private DListNode parentDlistNode;
+
+    private ShardVertex(Object vertex) {
+      this.vertex = vertex;
+    }
+  }
+
+  /**
+   * A ShardEdge is one shard's record of an edge.  An endpoint that lives in
+   * another shard has a null ShardVertex and no list node; a self-edge is
+   * linked once, through u.
+   */
+
+  private static class ShardEdge {
+    private Object u;
+    private Object v;
+    private ShardVertex uVertex;
+    private ShardVertex vVertex;
+    private DListNode uNode;
+    private DListNode vNode;
+    private int weight;
+    //In the higher shard, the lower endpoint that last linked this edge.
+    private ShardVertex linkedBy;
+
+    private Object other(ShardVertex end) {
+      return uVertex == end ? v : u;
+    }
+  }
+
+  /**
+   * A Shard owns a share of the vertices, the edge records touching them, and
+   * the worker thread that applies its mailbox.
+   */
+
+  private class Shard implements Runnable {
+    private final int index;
+    private final LinkedBlockingQueue<Message> mailbox = new LinkedBlockingQueue<Message>();
+    private final Thread worker;
+
+    //Real vertex -> ShardVertex, and VertexPair -> ShardEdge.
+    private final HashTableChained vertexHashTable = new HashTableChained();
+    private final HashTableChained edgeHashTable = new HashTableChained();
+    private final DList shardVertices = new DList();
+    private int edgeCount;
+
+    private Shard(int index) {
+      this.index = index;
+      worker = new Thread(this, "wugraph-shard-" + index);
+      worker.setDaemon(true);
+    }
+
+    public void run() {
+      while (true) {
+        Message message;
+        try {
+          message = mailbox.take();
+        } catch (InterruptedException e) {
+          return;
+        }
+        if (message.op == STOP) {
+          finished();
+          return;
+        }
+        try {
+          apply(message);
+        } catch (RuntimeException e) {
+          if (message.reply != null) {
+            message.reply.completeExceptionally(e);
+          } else {
+            failure.compareAndSet(null, e);
+          }
+        }
+        finished();
+      }
+    }
+
+    private void apply(Message m) {
+      switch (m.op) {
+      case ADD_VERTEX:
+        if (findVertex(m.u) == null) {
+          ShardVertex vertex = new ShardVertex(m.u);
+          vertexHashTable.insert(m.u, vertex);
+          shardVertices.insertFront(vertex);
+          vertex.parentDlistNode = shardVertices.front();
+        }
+        break;
+      case REMOVE_VERTEX:
+        removeVertex(m.u);
+        break;
+      case LOCAL_ADD: {
+        ShardVertex uVertex = findVertex(m.u);
+        ShardVertex vVertex = findVertex(m.v);
+        if (uVertex != null && vVertex != null) {
+          link(uVertex, m.v, vVertex, m.weight);
+        }
+        break;
+      }
+      case LOCAL_REMOVE:
+        if (unlink(m.u, m.v)) {
+          edgeCount--;
+        }
+        break;
+      case PROBE: {
+        ShardVertex uVertex = findVertex(m.u);
+        if (uVertex != null) {
+          post(shardOf(m.v), new Message(LINK, m.v, m.u, m.weight, uVertex, null));
+        }
+        break;
+      }
+      case LINK: {
+        ShardVertex uVertex = findVertex(m.u);
+        if (uVertex != null) {
+          link(uVertex, m.v, null, m.weight).linkedBy = m.vertex;
+          post(shardOf(m.v), new Message(CONFIRM, m.v, m.u, m.weight, m.vertex, null));
+        }
+        break;
+      }
+      case CONFIRM:
+        // The probe's vertex may have been removed, or removed and added
+        // again, since it was probed; then the higher shard unlinks, if no
+        // probe from the new vertex has linked the edge since.
+        if (findVertex(m.u) == m.vertex) {
+          link(m.vertex, m.v, null, m.weight);
+        } else {
+          post(shardOf(m.v), new Message(UNLINK_HALF, m.v, m.u, 0, m.vertex, null));
+        }
+        break;
+      case REMOVE_PROBE:
+        post(shardOf(m.v), new Message(REMOVE_LINK, m.v, m.u, 0, null, null));
+        break;
+      case REMOVE_LINK:
+        if (unlink(m.u, m.v)) {
+          edgeCount--;
+        }
+        post(shardOf(m.v), new Message(REMOVE_CONFIRM, m.v, m.u, 0, null, null));
+        break;
+      case REMOVE_CONFIRM:
+        unlink(m.u, m.v);
+        break;
+      case UNLINK_HALF: {
+        // A lower shard names the vertex whose link it is undoing.
+        ShardEdge edge = findEdge(m.u, m.v);
+        if (edge != null && (m.vertex == null || edge.linkedBy == m.vertex)) {
+          unlink(m.u, m.v);
+          if (counts(m.v)) {
+            edgeCount--;
+          }
+        }
+        break;
+      }
+      default:
+        m.reply.complete(answer(m));
+        break;
+      }
+    }
+
+    /**
+     * counts() returns true if this shard is the one that counts an edge
+     * between one of its vertices and "other".
+     */
+
+    private boolean counts(Object other) {
+      return shardOf(other).index <= index;
+    }
+
+    private ShardVertex findVertex(Object vertex) {
+      Entry entry = vertexHashTable.find(vertex);
+      if (entry == null) {
+        return null;
+      }
+      return (ShardVertex) entry.value();
+    }
+
+    private ShardEdge findEdge(Object u, Object v) {
+      Entry entry = edgeHashTable.find(new VertexPair(u, v));
+      if (entry == null) {
+        return null;
+      }
+      return (ShardEdge) entry.value();
+    }
+
+    /**
+     * link() adds or reweights this shard's record of edge (u, v), and
+     * returns it.  vVertex is null when v lives in another shard.
+     */
+
+    private ShardEdge link(ShardVertex uVertex, Object v, ShardVertex vVertex, int weight) {
+      ShardEdge edge = findEdge(uVertex.vertex, v);
+      if (edge != null) {
+        edge.weight = weight;
+        return edge;
+      }
+
+      edge = new ShardEdge();
+      edge.u = uVertex.vertex;
+      edge.v = v;
+      edge.uVertex = uVertex;
+      edge.vVertex = vVertex;
+      edge.weight = weight;
+      uVertex.edgeList.insertFront(edge);
+      edge.uNode = uVertex.edgeList.front();
+      if (vVertex != null && vVertex != uVertex) {
+        vVertex.edgeList.insertFront(edge);
+        edge.vNode = vVertex.edgeList.front();
+      }
+      edgeHashTable.insert(new VertexPair(uVertex.vertex, v), edge);
+      if (vVertex != null || counts(v)) {
+        edgeCount++;
+      }
+      return edge;
+    }
+
+    /**
+     * unlink() removes this shard's record of edge (u, v), and returns true
+     * if there was one.  Counts are left to the caller.
+     */
+
+    private boolean unlink(Object u, Object v) {
+      Entry entry = edgeHashTable.remove(new VertexPair(u, v));
+      if (entry == null) {
+        return false;
+      }
+      ShardEdge edge = (ShardEdge) entry.value();
+      edge.uVertex.edgeList.remove(edge.uNode);
+      if (edge.vNode != null) {
+        edge.vVertex.edgeList.remove(edge.vNode);
+      }
+      return true;
+    }
+
+    private void removeVertex(Object vertex) {
+      ShardVertex target = findVertex(vertex);
+      if (target == null) {
+        return;
+      }
+
+      DListNode node = target.edgeList.front();
+      while (node != null) {
+        DListNode next = target.edgeList.next(node);
+        ShardEdge edge = (ShardEdge) node.item;
+        Object other = edge.other(target);
+        unlink(edge.u, edge.v);
+        if (edge.vVertex != null) {
+          edgeCount--;
+        } else {
+          if (counts(other)) {
+            edgeCount--;
+          }
+          post(shardOf(other), new Message(UNLINK_HALF, other, vertex, 0,
+                                           counts(other) ? null : target, null));
+        }
+        node = next;
+      }
+
+      vertexHashTable.remove(vertex);
+      shardVertices.remove(target.parentDlistNode);
+    }
+
+    private Object answer(Message m) {
+      switch (m.weight) {
+      case VERTEX_COUNT:
+        return Integer.valueOf(shardVertices.length());
+      case EDGE_COUNT:
+        return Integer.valueOf(edgeCount);
+      case VERTICES: {
+        Object[] result = new Object[shardVertices.length()];
+        DListNode node = shardVertices.front();
+        for (int i = 0; i < result.length; i++) {
+          result[i] = ((ShardVertex) node.item).vertex;
+          node = shardVertices.next(node);
+        }
+        return result;
+      }
+      case IS_VERTEX:
+        return Boolean.valueOf(findVertex(m.u) != null);
+      case DEGREE: {
+        ShardVertex vertex = findVertex(m.u);
+        return Integer.valueOf(vertex == null ? 0 : vertex.edgeList.length());
+      }
+      case NEIGHBORS: {
+        ShardVertex vertex = findVertex(m.u);
+        if (vertex == null || vertex.edgeList.length() == 0) {
+          return null;
+        }
+        Neighbors neighbors = new Neighbors();
+        neighbors.neighborList = new Object[vertex.edgeList.length()];
+        neighbors.weightList = new int[vertex.edgeList.length()];
+        DListNode node = vertex.edgeList.front();
+        for (int i = 0; i < neighbors.weightList.length; i++) {
+          ShardEdge edge = (ShardEdge) node.item;
+          neighbors.neighborList[i] = edge.other(vertex);
+          neighbors.weightList[i] = edge.weight;
+          node = vertex.edgeList.next(node);
+        }
+        return neighbors;
+      }
+      default: {
+        // null, not zero, for a missing edge, since weights may be zero.
+        ShardEdge edge = findVertex(m.u) == null ? null : findEdge(m.u, m.v);
+        return edge == null ? null : Integer.valueOf(edge.weight);
+      }
+      }
+    }
+  }
+
+  /**
+   * PartitionedWUGraph() constructs a graph having no vertices or edges,
+   * with one shard per available processor.
+   */
+
+  public PartitionedWUGraph() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * PartitionedWUGraph() constructs a graph having no vertices or edges,
+   * split into "shardCount" shards, and starts their worker threads.
+   */
+
+  public PartitionedWUGraph(int shardCount) {
+    shards = new Shard[Math.max(shardCount, 1)];
+    for (int i = 0; i < shards.length; i++) {
+      shards[i] = new Shard(i);
+    }
+    for (int i = 0; i < shards.length; i++) {
+      shards[i].worker.start();
+    }
+  }
+
+  /**
+   * shardCount() returns the number of shards.
+   */
+
+  public int shardCount() {
+    return shards.length;
+  }
+
+  /**
+   * flush() waits until every update posted so far, including the messages
+   * shards send each other on its behalf, has been applied.
+   *
+   * @throws IllegalStateException if an update failed since the last
+   *         failure was reported.
+   */
+
+  public void flush() {
+    if (awaitIdle()) {
+      checkFailure();
+    }
+  }
+
+  /**
+   * shutdown() applies every pending update, then stops the worker threads.
+   * The graph cannot be used afterward.
+   *
+   * @throws IllegalStateException if an update failed since the last
+   *         failure was reported; the workers are stopped regardless.
+   */
+
+  public void shutdown() {
+    if (!awaitIdle()) {
+      return;
+    }
+    for (int i = 0; i < shards.length; i++) {
+      post(shards[i], new Message(STOP, null, null, 0, null, null));
+    }
+    for (int i = 0; i < shards.length; i++) {
+      try {
+        shards[i].worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    checkFailure();
+  }
+
+  /**
+   * awaitIdle() waits until no messages are pending, and returns false if
+   * the calling thread was interrupted first.
+   */
+
+  private boolean awaitIdle() {
+    synchronized (idle) {
+      while (pending.get() != 0) {
+        try {
+          idle.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * vertexCount() returns the number of vertices in the graph.
+   * Running time:  O(s), where s is the number of shards.
+   */
+
+  public int vertexCount() {
+    return sum(VERTEX_COUNT);
+  }
+
+  /**
+   * edgeCount() returns the total number of edges in the graph.
+   * Running time:  O(s), where s is the number of shards.
+   */
+
+  public int edgeCount() {
+    return sum(EDGE_COUNT);
+  }
+
+  /**
+   * getVertices() returns an array containing all the objects that serve
+   * as vertices of the graph, shard by shard.
+   *
+   * Running time:  O(|V| + s), where s is the number of shards.
+   */
+
+  public Object[] getVertices() {
+    Object[][] parts = new Object[shards.length][];
+    CompletableFuture<?>[] replies = askAll(VERTICES);
+    int length = 0;
+    for (int i = 0; i < shards.length; i++) {
+      parts[i] = (Object[]) await(replies[i]);
+      length += parts[i].length;
+    }
+    checkFailure();
+    Object[] result = new Object[length];
+    int position = 0;
+    for (int i = 0; i < shards.length; i++) {
+      System.arraycopy(parts[i], 0, result, position, parts[i].length);
+      position += parts[i].length;
+    }
+    return result;
+  }
+
+  /**
+   * addVertex() adds a vertex (with no incident edges) to the graph.
+   * If this object is already a vertex of the graph, the graph is unchanged.
+   * The change is applied asynchronously.
+   */
+
+  public void addVertex(Object vertex) {
+    post(shardOf(vertex), new Message(ADD_VERTEX, vertex, null, 0, null, null));
+  }
+
+  /**
+   * removeVertex() removes a vertex from the graph, with all its edges.  If
+   * "vertex" is not a vertex of the graph, the graph is unchanged.  The
+   * change is applied asynchronously.
+   */
+
+  public void removeVertex(Object vertex) {
+    post(shardOf(vertex), new Message(REMOVE_VERTEX, vertex, null, 0, null, null));
+  }
+
+  /**
+   * addEdge() adds an edge (u, v) of weight "weight" to the graph, or
+   * updates its weight if it is already an edge.  If either of u and v is
+   * not a vertex when the change reaches its shard, the graph is unchanged.
+   * The change is applied asynchronously.
+   */
+
+  public void addEdge(Object u, Object v, int weight) {
+    Shard uShard = shardOf(u);
+    Shard vShard = shardOf(v);
+    if (uShard == vShard) {
+      post(uShard, new Message(LOCAL_ADD, u, v, weight, null, null));
+    } else if (uShard.index < vShard.index) {
+      post(uShard, new Message(PROBE, u, v, weight, null, null));
+    } else {
+      post(vShard, new Message(PROBE, v, u, weight, null, null));
+    }
+  }
+
+  /**
+   * removeEdge() removes the edge (u, v) from the graph, if there is one.
+   * The change is applied asynchronously.
+   */
+
+  public void removeEdge(Object u, Object v) {
+    Shard uShard = shardOf(u);
+    Shard vShard = shardOf(v);
+    if (uShard == vShard) {
+      post(uShard, new Message(LOCAL_REMOVE, u, v, 0, null, null));
+    } else if (uShard.index < vShard.index) {
+      post(uShard, new Message(REMOVE_PROBE, u, v, 0, null, null));
+    } else {
+      post(vShard, new Message(REMOVE_PROBE, v, u, 0, null, null));
+    }
+  }
+
+  /**
+   * isVertex() returns true if the parameter "vertex" represents a vertex of
+   * the graph.
+   */
+
+  public boolean isVertex(Object vertex) {
+    return ((Boolean) ask(vertex, null, IS_VERTEX)).booleanValue();
+  }
+
+  /**
+   * degree() returns the degree of a vertex, or zero if "vertex" is not a
+   * vertex of the graph.  Self-edges add only one to the degree.
+   */
+
+  public int degree(Object vertex) {
+    return ((Integer) ask(vertex, null, DEGREE)).intValue();
+  }
+
+  /**
+   * getNeighbors() returns a new Neighbors object listing the neighbors of
+   * "vertex" and the weights of the corresponding edges.  If the vertex has
+   * degree zero, or if "vertex" is not a vertex of the graph, null is
+   * returned.
+   */
+
+  public Neighbors getNeighbors(Object vertex) {
+    return (Neighbors) ask(vertex, null, NEIGHBORS);
+  }
+
+  /**
+   * forEachNeighbor() calls visitor.visit() once for each edge incident on
+   * "vertex".  The neighbors are copied out of the shard first, so the
+   * visitor runs on the calling thread.
+   */
+
+  public void forEachNeighbor(Object vertex, NeighborVisitor visitor) {
+    Neighbors neighbors = getNeighbors(vertex);
+    if (neighbors == null) {
+      return;
+    }
+    for (int i = 0; i < neighbors.neighborList.length; i++) {
+      visitor.visit(neighbors.neighborList[i], neighbors.weightList[i]);
+    }
+  }
+
+  /**
+   * isEdge() returns true if (u, v) is an edge of the graph.
+   */
+
+  public boolean isEdge(Object u, Object v) {
+    return ask(u, v, WEIGHT) != null;
+  }
+
+  /**
+   * weight() returns the weight of (u, v), or zero if (u, v) is not an edge.
+   */
+
+  public int weight(Object u, Object v) {
+    Object weight = ask(u, v, WEIGHT);
+    if (weight == null) {
+      return 0;
+    }
+    return ((Integer) weight).intValue();
+  }
+
+  private Shard shardOf(Object vertex) {
+    int h = vertex.hashCode();
+    h ^= (h >>> 16);
+    h ^= (h >>> 7);
+    return shards[Math.floorMod(h, shards.length)];
+  }
+
+  private void post(Shard shard, Message message) {
+    pending.incrementAndGet();
+    shard.mailbox.add(message);
+  }
+
+  private void finished() {
+    if (pending.decrementAndGet() == 0) {
+      synchronized (idle) {
+        idle.notifyAll();
+      }
+    }
+  }
+
+  private Object ask(Object u, Object v, int kind) {
+    CompletableFuture<Object> reply = new CompletableFuture<Object>();
+    post(shardOf(u), new Message(QUERY, u, v, kind, null, reply));
+    Object result = await(reply);
+    checkFailure();
+    return result;
+  }
+
+  private CompletableFuture<?>[] askAll(int kind) {
+    CompletableFuture<?>[] replies = new CompletableFuture<?>[shards.length];
+    for (int i = 0; i < shards.length; i++) {
+      CompletableFuture<Object> reply = new CompletableFuture<Object>();
+      replies[i] = reply;
+      post(shards[i], new Message(QUERY, null, null, kind, null, reply));
+    }
+    return replies;
+  }
+
+  private int sum(int kind) {
+    CompletableFuture<?>[] replies = askAll(kind);
+    int total = 0;
+    for (int i = 0; i < shards.length; i++) {
+      total += ((Integer) await(replies[i])).intValue();
+    }
+    checkFailure();
+    return total;
+  }
+
+  /**
+   * checkFailure() throws the first update failure not yet reported, if
+   * there is one, and clears it.
+   */
+
+  private void checkFailure() {
+    RuntimeException e = failure.getAndSet(null);
+    if (e != null) {
+      throw new IllegalStateException("shard update failed", e);
+    }
+  }
+
+  private static Object await(CompletableFuture<?> reply) {
+    try {
+      return reply.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while waiting for a shard", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("shard query failed", e.getCause());
+    }
+  }
+}
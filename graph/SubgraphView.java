@@ -0,0 +1,344 @@
+/* SubgraphView.java */
+
+package graph;
+
+import java.util.BitSet;
+
+/**
+ * The SubgraphView class is the subgraph of a GraphView induced by a set of
+ * its vertices:  the chosen vertices, and every edge whose endpoints are
+ * both chosen.  Nothing is copied.  Each query goes to the underlying graph
+ * and filters the answer, so a view over a WUGraph follows later changes to
+ * the graph, and a view costs no memory beyond the filter itself.  Any
+ * algorithm that takes a GraphView, such as Kruskal.minSpanTree(), runs on
+ * a view directly.
+ *
+ * The vertices are chosen either by a VertexFilter, or, for a CSRGraph, by a
+ * BitSet of dense ids; the BitSet form tests each neighbor with one bit
+ * lookup and walks the CSR rows directly.
+ *
+ * vertexCount(), edgeCount() and degree() are counted on every call, since
+ * the underlying graph may have changed; their running times are those of
+ * a scan, not O(1).
+ *
+ * A BitSet view answers degree(), edgeCount() and forEachNeighbor() from
+ * the CSR arrays without allocating anything.  A VertexFilter view can only
+ * reach the neighbors through the underlying graph, so each of those calls
+ * allocates one small visitor to filter or count them, and edgeCount() also
+ * allocates the array getVertices() returns.
+ */
+
+public class SubgraphView implements GraphView {
+
+  private final GraphView base;
+  private final VertexFilter filter;
+
+  //Set only for a view of a CSRGraph chosen by dense id.
+  private final CSRGraph csr;
+  private final BitSet ids;
+
+  /**
+   * SubgraphView() constructs the subgraph of "base" induced by the vertices
+   * "filter" accepts.
+   */
+
+  public SubgraphView(GraphView base, VertexFilter filter) {
+    this.base = base;
+    this.filter = filter;
+    this.csr = null;
+    this.ids = null;
+  }
+
+  /**
+   * SubgraphView() constructs the subgraph of "base" induced by the vertices
+   * whose dense ids are set in "ids".  The BitSet is used, not copied, and
+   * must not change while the view is in use.
+   */
+
+  public SubgraphView(CSRGraph base, BitSet ids) {
+    this.base = base;
+    this.csr = base;
+    this.ids = ids;
+    this.filter = null;
+  }
+
+  /**
+   * accept() returns true if "vertex" is a vertex of the underlying graph
+   * chosen for the subgraph.
+   */
+
+  private boolean accept(Object vertex) {
+    if (csr != null) {
+      int id = csr.id(vertex);
+      return id != -1 && ids.get(id);
+    }
+    return base.isVertex(vertex) && filter.accept(vertex);
+  }
+
+  /**
+   * vertexCount() returns the number of vertices in the subgraph.
+   * Running time:  O(|V|) of the underlying graph; O(|V| / 64) for a BitSet
+   * view.
+   */
+
+  public int vertexCount() {
+    if (csr != null) {
+      return ids.get(0, csr.vertexCount()).cardinality();
+    }
+    int count = 0;
+    Object[] vertices = base.getVertices();
+    for (int i = 0; i < vertices.length; i++) {
+      if (filter.accept(vertices[i])) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * edgeCount() returns the number of edges in the subgraph.
+   * Running time:  O(|V| + |E|) of the underlying graph.
+   */
+
+  public int edgeCount() {
+    if (csr != null) {
+      int selfEdges = 0;
+      int halfEdges = 0;
+      for (int id = ids.nextSetBit(0); id >= 0 && id < csr.vertexCount(); id = ids.nextSetBit(id + 1)) {
+        int end = csr.offset(id + 1);
+        for (int slot = csr.offset(id); slot < end; slot++) {
+          int target = csr.target(slot);
+          if (target == id) {
+            selfEdges++;
+          } else if (ids.get(target)) {
+            halfEdges++;
+          }
+        }
+      }
+      // Every edge but a self-edge was seen from both ends.
+      return selfEdges + halfEdges / 2;
+    }
+
+    EdgeCounter counter = new EdgeCounter();
+    Object[] vertices = getVertices();
+    for (int i = 0; i < vertices.length; i++) {
+      counter.source = vertices[i];
+      forEachNeighbor(vertices[i], counter);
+    }
+    // Every edge but a self-edge was seen from both ends.
+    return counter.selfEdges + counter.halfEdges / 2;
+  }
+
+  /**
+   * getVertices() returns a new array of the vertices of the subgraph, in the
+   * order the underlying graph lists them.
+   *
+   * Running time:  O(|V|) of the underlying graph.
+   */
+
+  public Object[] getVertices() {
+    if (csr != null) {
+      Object[] result = new Object[vertexCount()];
+      int i = 0;
+      for (int id = ids.nextSetBit(0); id >= 0 && id < csr.vertexCount(); id = ids.nextSetBit(id + 1)) {
+        result[i] = csr.vertex(id);
+        i++;
+      }
+      return result;
+    }
+
+    Object[] vertices = base.getVertices();
+    int count = 0;
+    for (int i = 0; i < vertices.length; i++) {
+      if (filter.accept(vertices[i])) {
+        vertices[count] = vertices[i];
+        count++;
+      }
+    }
+    Object[] result = new Object[count];
+    System.arraycopy(vertices, 0, result, 0, count);
+    return result;
+  }
+
+  /**
+   * isVertex() returns true if "vertex" is a vertex of the subgraph.
+   * Running time:  that of the underlying isVertex(), plus one filter test.
+   */
+
+  public boolean isVertex(Object vertex) {
+    return accept(vertex);
+  }
+
+  /**
+   * degree() returns the number of edges of the subgraph incident on
+   * "vertex", or zero if "vertex" is not a vertex of the subgraph.
+   * Self-edges add only one.
+   *
+   * Running time:  O(d), where d is the degree of "vertex" in the
+   * underlying graph.
+   */
+
+  public int degree(Object vertex) {
+    if (csr != null) {
+      int id = csr.id(vertex);
+      if (id == -1 || !ids.get(id)) {
+        return 0;
+      }
+      int count = 0;
+      int end = csr.offset(id + 1);
+      for (int slot = csr.offset(id); slot < end; slot++) {
+        if (ids.get(csr.target(slot))) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    NeighborCounter counter = new NeighborCounter();
+    forEachNeighbor(vertex, counter);
+    return counter.count;
+  }
+
+  /**
+   * getNeighbors() returns a new Neighbors object listing the neighbors of
+   * "vertex" in the subgraph, in the order of the underlying graph, and the
+   * weights of the corresponding edges.  If the vertex has no edges in the
+   * subgraph, or is not a vertex of the subgraph, null is returned.
+   *
+   * Running time:  O(d), where d is the degree of "vertex" in the
+   * underlying graph.
+   */
+
+  public Neighbors getNeighbors(Object vertex) {
+    if (!accept(vertex)) {
+      return null;
+    }
+    Neighbors all = base.getNeighbors(vertex);
+    if (all == null) {
+      return null;
+    }
+
+    int count = 0;
+    for (int i = 0; i < all.neighborList.length; i++) {
+      if (acceptNeighbor(all.neighborList[i])) {
+        all.neighborList[count] = all.neighborList[i];
+        all.weightList[count] = all.weightList[i];
+        count++;
+      }
+    }
+    if (count == 0) {
+      return null;
+    }
+    Neighbors neighbors = new Neighbors();
+    neighbors.neighborList = new Object[count];
+    neighbors.weightList = new int[count];
+    System.arraycopy(all.neighborList, 0, neighbors.neighborList, 0, count);
+    System.arraycopy(all.weightList, 0, neighbors.weightList, 0, count);
+    return neighbors;
+  }
+
+  /**
+   * forEachNeighbor() calls visitor.visit() once for each edge of the
+   * subgraph incident on "vertex".  If "vertex" is not a vertex of the
+   * subgraph, the visitor is never called.
+   *
+   * Running time:  O(d), where d is the degree of "vertex" in the
+   * underlying graph.
+   */
+
+  public void forEachNeighbor(Object vertex, NeighborVisitor visitor) {
+    if (csr != null) {
+      int id = csr.id(vertex);
+      if (id == -1 || !ids.get(id)) {
+        return;
+      }
+      int end = csr.offset(id + 1);
+      for (int slot = csr.offset(id); slot < end; slot++) {
+        int target = csr.target(slot);
+        if (ids.get(target)) {
+          visitor.visit(csr.vertex(target), csr.targetWeight(slot));
+        }
+      }
+      return;
+    }
+
+    if (accept(vertex)) {
+      base.forEachNeighbor(vertex, new FilteringVisitor(visitor));
+    }
+  }
+
+  /**
+   * isEdge() returns true if (u, v) is an edge of the subgraph.
+   * Running time:  that of the underlying isEdge(), plus two filter tests.
+   */
+
+  public boolean isEdge(Object u, Object v) {
+    return accept(u) && accept(v) && base.isEdge(u, v);
+  }
+
+  /**
+   * weight() returns the weight of (u, v), or zero if (u, v) is not an edge
+   * of the subgraph.
+   *
+   * Running time:  that of the underlying weight(), plus two filter tests.
+   */
+
+  public int weight(Object u, Object v) {
+    if (!accept(u) || !accept(v)) {
+      return 0;
+    }
+    return base.weight(u, v);
+  }
+
+  /**
+   * acceptNeighbor() tests a vertex already known to be in the underlying
+   * graph, so the VertexFilter path can skip isVertex().
+   */
+
+  private boolean acceptNeighbor(Object vertex) {
+    if (csr != null) {
+      return ids.get(csr.id(vertex));
+    }
+    return filter.accept(vertex);
+  }
+
+  /**
+   * A FilteringVisitor passes on only the neighbors the filter accepts.
+   */
+
+  private class FilteringVisitor implements NeighborVisitor {
+    private final NeighborVisitor visitor;
+
+    private FilteringVisitor(NeighborVisitor visitor) {
+      this.visitor = visitor;
+    }
+
+    public void visit(Object neighbor, int weight) {
+      if (filter.accept(neighbor)) {
+        visitor.visit(neighbor, weight);
+      }
+    }
+  }
+
+  private static class NeighborCounter implements NeighborVisitor {
+    private int count;
+
+    public void visit(Object neighbor, int weight) {
+      count++;
+    }
+  }
+
+  private static class EdgeCounter implements NeighborVisitor {
+    private Object source;
+    private int selfEdges;
+    private int halfEdges;
+
+    public void visit(Object neighbor, int weight) {
+      if (neighbor.equals(source)) {
+        selfEdges++;
+      } else {
+        halfEdges++;
+      }
+    }
+  }
+}
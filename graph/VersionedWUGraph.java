@@ -0,0 +1,789 @@
+/* VersionedWUGraph.java */
+
+package graph;
+
+import dict.Entry;
+import dict.HashTableChained;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import list.DList;
+import list.DListNode;
+
+/**
+ * The VersionedWUGraph class is a thread-safe weighted, undirected graph
+ * with the same operations as WUGraph, plus snapshot(), which returns a
+ * consistent read-only view of the graph in O(1).  Later changes to the graph
+ * do not show through a snapshot, so a long analysis (say, Kruskal) can run
+ * on a snapshot while other threads keep updating the graph.
+ *
+ * Every change to the graph bumps a version counter.  Each vertex and edge
+ * record is stamped with the version it was added in and the version it was
+ * removed in, and each edge keeps a short history of its weights.  A
+ * snapshot is just a version number:  it sees exactly the records alive at
+ * that version.  Removed records stay linked in while some open snapshot
+ * can still see them, and are unlinked as soon as the last such snapshot is
+ * released, so a graph with no open snapshots holds no history at all.
+ *
+ * Updates are serialized by a write lock; reads, on the graph or on any
+ * snapshot, take a read lock for the length of a single call only.
+ */
+
+public class VersionedWUGraph implements GraphView {
+
+  private static final long NEVER = Long.MAX_VALUE;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  //Version of the most recent change.
+  private long version;
+
+  //Counts as of the current version.
+  private int vertexCount;
+  private int edgeCount;
+
+  //Real vertex -> newest VersionedVertex; older ones hang off its older link.
+  private HashTableChained vertexHashTable;
+
+  //Every VersionedVertex still retained, live or removed.
+  private DList internalVertices;
+
+  //VertexPair -> newest VersionedEdge; older ones hang off its older link.
+  private HashTableChained edgeHashTable;
+
+  //Open snapshots, oldest version first.
+  private DList openSnapshots;
+
+  //Removed records, in the order they were removed.
+  private DList removedRecords;
+
+  /**
+   * A VersionedVertex is one lifetime of a vertex:  removing and re-adding
+   * the same vertex object makes a new record, linked to the old one.
+   */
+
+  private static class VersionedVertex {
+    private Object realVertex;
+    private long added;
+    private long removed = NEVER;
+
+    //VersionedEdges incident on this record, live or removed.
+    private DList edgeList = new DList();
+
+    //Degree as of the current version.
+    private int degree;
+
+    private DListNode parentDlistNode;
+    private VersionedVertex older;
+    private VersionedVertex newer;
+
+    private VersionedVertex(Object vertex, long added) {
+      realVertex = vertex;
+      this.added = added;
+    }
+  }
+
+  /**
+   * A VersionedEdge is one lifetime of an edge.  It is listed once in each
+   * endpoint's edgeList (once in all for a self-edge).
+   */
+
+  private static class VersionedEdge {
+    private VersionedVertex vertex1;
+    private VersionedVertex vertex2;
+    private long added;
+    private long removed = NEVER;
+
+    //Newest weight first.
+    private WeightVersion weights;
+
+    private DListNode node1;
+    private DListNode node2;
+    private VersionedEdge older;
+    private VersionedEdge newer;
+
+    private VersionedEdge(VersionedVertex vertex1, VersionedVertex vertex2, int weight, long added) {
+      this.vertex1 = vertex1;
+      this.vertex2 = vertex2;
+      this.added = added;
+      weights = new WeightVersion(weight, added, null);
+    }
+  }
+
+  /**
+   * A WeightVersion is the weight an edge has had since version "since".
+   */
+
+  private static class WeightVersion {
+    private int weight;
+    private long since;
+    private WeightVersion older;
+
+    private WeightVersion(int weight, long since, WeightVersion older) {
+      this.weight = weight;
+      this.since = since;
+      this.older = older;
+    }
+  }
+
+  /**
+   * A Snapshot is a read-only view of the graph as it was when snapshot()
+   * was called.  Call release() when done with it, so the history it pins
+   * can be freed; an unreleased snapshot keeps every later removal in
+   * memory.
+   */
+
+  public class Snapshot implements GraphView {
+    private final long snapshotVersion;
+    private final int snapshotVertexCount;
+    private final int snapshotEdgeCount;
+    private DListNode parentDlistNode;
+
+    private Snapshot(long snapshotVersion, int snapshotVertexCount, int snapshotEdgeCount) {
+      this.snapshotVersion = snapshotVersion;
+      this.snapshotVertexCount = snapshotVertexCount;
+      this.snapshotEdgeCount = snapshotEdgeCount;
+    }
+
+    public int vertexCount() {
+      return snapshotVertexCount;
+    }
+
+    public int edgeCount() {
+      return snapshotEdgeCount;
+    }
+
+    public Object[] getVertices() {
+      lock.readLock().lock();
+      try {
+        return verticesAt(snapshotVersion, snapshotVertexCount);
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    public boolean isVertex(Object vertex) {
+      lock.readLock().lock();
+      try {
+        return vertexAt(vertex, snapshotVersion) != null;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    public int degree(Object vertex) {
+      lock.readLock().lock();
+      try {
+        return degreeAt(vertex, snapshotVersion);
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    public Neighbors getNeighbors(Object vertex) {
+      lock.readLock().lock();
+      try {
+        return neighborsAt(vertex, snapshotVersion);
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    public void forEachNeighbor(Object vertex, NeighborVisitor visitor) {
+      lock.readLock().lock();
+      try {
+        visitNeighborsAt(vertex, snapshotVersion, visitor);
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    public boolean isEdge(Object u, Object v) {
+      lock.readLock().lock();
+      try {
+        return edgeAt(u, v, snapshotVersion) != null;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    public int weight(Object u, Object v) {
+      lock.readLock().lock();
+      try {
+        return weightAt(edgeAt(u, v, snapshotVersion), snapshotVersion);
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    /**
+     * release() closes the snapshot and frees any history only it needed.
+     * A released snapshot must not be used again.  Releasing twice is
+     * harmless.
+     */
+
+    public void release() {
+      lock.writeLock().lock();
+      try {
+        if (parentDlistNode != null) {
+          openSnapshots.remove(parentDlistNode);
+          parentDlistNode = null;
+          collect();
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * VersionedWUGraph() constructs a graph having no vertices or edges.
+   * Running time:  O(1).
+   */
+
+  public VersionedWUGraph() {
+    vertexHashTable = new HashTableChained();
+    edgeHashTable = new HashTableChained();
+    internalVertices = new DList();
+    openSnapshots = new DList();
+    removedRecords = new DList();
+  }
+
+  /**
+   * snapshot() returns a read-only view of the graph as it is now.  The view
+   * is unaffected by later changes to the graph, and must be released with
+   * Snapshot.release() once it is no longer needed.
+   *
+   * Running time:  O(1).
+   */
+
+  public Snapshot snapshot() {
+    lock.writeLock().lock();
+    try {
+      Snapshot snapshot = new Snapshot(version, vertexCount, edgeCount);
+      openSnapshots.insertBack(snapshot);
+      snapshot.parentDlistNode = openSnapshots.back();
+      return snapshot;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * vertexCount() returns the number of vertices in the graph.
+   * Running time:  O(1).
+   */
+
+  public int vertexCount() {
+    lock.readLock().lock();
+    try {
+      return vertexCount;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * edgeCount() returns the total number of edges in the graph.
+   * Running time:  O(1).
+   */
+
+  public int edgeCount() {
+    lock.readLock().lock();
+    try {
+      return edgeCount;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * getVertices() returns an array containing all the objects that serve as
+   * vertices of the graph.
+   *
+   * Running time:  O(|V| + r), where r is the number of removed vertices
+   * still kept for open snapshots.
+   */
+
+  public Object[] getVertices() {
+    lock.readLock().lock();
+    try {
+      return verticesAt(version, vertexCount);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * addVertex() adds a vertex (with no incident edges) to the graph.  If this
+   * object is already a vertex of the graph, the graph is unchanged.
+   *
+   * Running time:  O(1).
+   */
+
+  public void addVertex(Object vertex) {
+    lock.writeLock().lock();
+    try {
+      VersionedVertex newest = newestVertex(vertex);
+      if (newest != null && newest.removed == NEVER) {
+        return;
+      }
+
+      version++;
+      VersionedVertex newVertex = new VersionedVertex(vertex, version);
+      if (newest != null) {
+        newVertex.older = newest;
+        newest.newer = newVertex;
+        vertexHashTable.remove(vertex);
+      }
+      vertexHashTable.insert(vertex, newVertex);
+      internalVertices.insertBack(newVertex);
+      newVertex.parentDlistNode = internalVertices.back();
+      vertexCount++;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * removeVertex() removes a vertex from the graph.  All edges incident on
+   * the deleted vertex are removed.  If "vertex" is not a vertex of the
+   * graph, the graph is unchanged.
+   *
+   * Running time:  O(d), where d is the number of edge records of "vertex".
+   */
+
+  public void removeVertex(Object vertex) {
+    lock.writeLock().lock();
+    try {
+      VersionedVertex target = vertexAt(vertex, version);
+      if (target == null) {
+        return;
+      }
+
+      version++;
+      DListNode currentEdge = target.edgeList.front();
+      while (currentEdge != null) {
+        VersionedEdge edge = (VersionedEdge) currentEdge.item;
+        if (edge.removed == NEVER) {
+          retireEdge(edge);
+        }
+        currentEdge = target.edgeList.next(currentEdge);
+      }
+
+      target.removed = version;
+      removedRecords.insertBack(target);
+      vertexCount--;
+      collect();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * isVertex() returns true if the parameter "vertex" represents a vertex of
+   * the graph.
+   *
+   * Running time:  O(1).
+   */
+
+  public boolean isVertex(Object vertex) {
+    lock.readLock().lock();
+    try {
+      return vertexAt(vertex, version) != null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * degree() returns the degree of a vertex.  Self-edges add only one to the
+   * degree of a vertex.  If "vertex" is not a vertex of the graph, zero is
+   * returned.
+   *
+   * Running time:  O(1).
+   */
+
+  public int degree(Object vertex) {
+    lock.readLock().lock();
+    try {
+      return degreeAt(vertex, version);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * getNeighbors() returns a new Neighbors object listing the neighbors of
+   * "vertex" and the weights of the corresponding edges.  If the vertex has
+   * degree zero, or if "vertex" is not a vertex of the graph, null is
+   * returned.
+   *
+   * Running time:  O(d), where d is the number of edge records of "vertex".
+   */
+
+  public Neighbors getNeighbors(Object vertex) {
+    lock.readLock().lock();
+    try {
+      return neighborsAt(vertex, version);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * forEachNeighbor() calls visitor.visit() once for each edge incident on
+   * "vertex".  A read lock is held while the visitor runs, so the visitor
+   * must not change this graph.
+   *
+   * Running time:  O(d), where d is the number of edge records of "vertex".
+   */
+
+  public void forEachNeighbor(Object vertex, NeighborVisitor visitor) {
+    lock.readLock().lock();
+    try {
+      visitNeighborsAt(vertex, version, visitor);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * addEdge() adds an edge (u, v) to the graph.  If either of u and v is not
+   * a vertex of the graph, the graph is unchanged.  If the graph already
+   * contains edge (u, v), the weight is updated to reflect the new value.
+   * Self-edges are allowed.
+   *
+   * Running time:  O(1).
+   */
+
+  public void addEdge(Object u, Object v, int weight) {
+    lock.writeLock().lock();
+    try {
+      VersionedVertex vertex_u = vertexAt(u, version);
+      VersionedVertex vertex_v = vertexAt(v, version);
+      if (vertex_u == null || vertex_v == null) {
+        return;
+      }
+
+      VertexPair vertexPair = new VertexPair(u, v);
+      VersionedEdge newest = newestEdge(vertexPair);
+      if (newest != null && newest.removed == NEVER) {
+        if (newest.weights.weight != weight) {
+          version++;
+          newest.weights = new WeightVersion(weight, version, newest.weights);
+          trimWeights(newest);
+        }
+        return;
+      }
+
+      version++;
+      VersionedEdge newEdge = new VersionedEdge(vertex_u, vertex_v, weight, version);
+      vertex_u.edgeList.insertBack(newEdge);
+      newEdge.node1 = vertex_u.edgeList.back();
+      vertex_u.degree++;
+      if (vertex_u != vertex_v) {
+        vertex_v.edgeList.insertBack(newEdge);
+        newEdge.node2 = vertex_v.edgeList.back();
+        vertex_v.degree++;
+      }
+
+      if (newest != null) {
+        newEdge.older = newest;
+        newest.newer = newEdge;
+        edgeHashTable.remove(vertexPair);
+      }
+      edgeHashTable.insert(vertexPair, newEdge);
+      edgeCount++;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * removeEdge() removes an edge (u, v) from the graph.  If either of u and v
+   * is not a vertex of the graph, or (u, v) is not an edge, the graph is
+   * unchanged.
+   *
+   * Running time:  O(1).
+   */
+
+  public void removeEdge(Object u, Object v) {
+    lock.writeLock().lock();
+    try {
+      VersionedEdge edge = edgeAt(u, v, version);
+      if (edge == null) {
+        return;
+      }
+
+      version++;
+      retireEdge(edge);
+      collect();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * isEdge() returns true if (u, v) is an edge of the graph.
+   * Running time:  O(1).
+   */
+
+  public boolean isEdge(Object u, Object v) {
+    lock.readLock().lock();
+    try {
+      return edgeAt(u, v, version) != null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * weight() returns the weight of (u, v).  Returns zero if (u, v) is not an
+   * edge.
+   *
+   * Running time:  O(1).
+   */
+
+  public int weight(Object u, Object v) {
+    lock.readLock().lock();
+    try {
+      return weightAt(edgeAt(u, v, version), version);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * alive() returns true if a record added at "added" and removed at
+   * "removed" exists at version "at".
+   */
+
+  private static boolean alive(long added, long removed, long at) {
+    return added <= at && at < removed;
+  }
+
+  private VersionedVertex newestVertex(Object vertex) {
+    Entry entry = vertexHashTable.find(vertex);
+    if (entry == null) {
+      return null;
+    }
+    return (VersionedVertex) entry.value();
+  }
+
+  private VersionedEdge newestEdge(VertexPair vertexPair) {
+    Entry entry = edgeHashTable.find(vertexPair);
+    if (entry == null) {
+      return null;
+    }
+    return (VersionedEdge) entry.value();
+  }
+
+  /**
+   * vertexAt() returns the record of "vertex" alive at version "at", or null.
+   */
+
+  private VersionedVertex vertexAt(Object vertex, long at) {
+    VersionedVertex record = newestVertex(vertex);
+    while (record != null && !alive(record.added, record.removed, at)) {
+      record = record.older;
+    }
+    return record;
+  }
+
+  /**
+   * edgeAt() returns the record of edge (u, v) alive at version "at", or null.
+   */
+
+  private VersionedEdge edgeAt(Object u, Object v, long at) {
+    VersionedEdge record = newestEdge(new VertexPair(u, v));
+    while (record != null && !alive(record.added, record.removed, at)) {
+      record = record.older;
+    }
+    return record;
+  }
+
+  /**
+   * weightAt() returns the weight "edge" had at version "at", or zero if
+   * "edge" is null.
+   */
+
+  private static int weightAt(VersionedEdge edge, long at) {
+    if (edge == null) {
+      return 0;
+    }
+    WeightVersion weight = edge.weights;
+    while (weight.since > at) {
+      weight = weight.older;
+    }
+    return weight.weight;
+  }
+
+  private Object[] verticesAt(long at, int count) {
+    Object[] result = new Object[count];
+    int i = 0;
+    DListNode currentVertex = internalVertices.front();
+    while (currentVertex != null) {
+      VersionedVertex record = (VersionedVertex) currentVertex.item;
+      if (alive(record.added, record.removed, at)) {
+        result[i] = record.realVertex;
+        i++;
+      }
+      currentVertex = internalVertices.next(currentVertex);
+    }
+    return result;
+  }
+
+  private int degreeAt(Object vertex, long at) {
+    VersionedVertex record = vertexAt(vertex, at);
+    if (record == null) {
+      return 0;
+    }
+    if (at == version) {
+      return record.degree;
+    }
+
+    int degree = 0;
+    DListNode currentEdge = record.edgeList.front();
+    while (currentEdge != null) {
+      VersionedEdge edge = (VersionedEdge) currentEdge.item;
+      if (alive(edge.added, edge.removed, at)) {
+        degree++;
+      }
+      currentEdge = record.edgeList.next(currentEdge);
+    }
+    return degree;
+  }
+
+  private Neighbors neighborsAt(Object vertex, long at) {
+    int degree = degreeAt(vertex, at);
+    if (degree == 0) {
+      return null;
+    }
+
+    VersionedVertex record = vertexAt(vertex, at);
+    Neighbors neighbors = new Neighbors();
+    neighbors.neighborList = new Object[degree];
+    neighbors.weightList = new int[degree];
+    int i = 0;
+    DListNode currentEdge = record.edgeList.front();
+    while (currentEdge != null) {
+      VersionedEdge edge = (VersionedEdge) currentEdge.item;
+      if (alive(edge.added, edge.removed, at)) {
+        neighbors.neighborList[i] = otherEnd(edge, record).realVertex;
+        neighbors.weightList[i] = weightAt(edge, at);
+        i++;
+      }
+      currentEdge = record.edgeList.next(currentEdge);
+    }
+    return neighbors;
+  }
+
+  private void visitNeighborsAt(Object vertex, long at, NeighborVisitor visitor) {
+    VersionedVertex record = vertexAt(vertex, at);
+    if (record == null) {
+      return;
+    }
+
+    DListNode currentEdge = record.edgeList.front();
+    while (currentEdge != null) {
+      VersionedEdge edge = (VersionedEdge) currentEdge.item;
+      if (alive(edge.added, edge.removed, at)) {
+        visitor.visit(otherEnd(edge, record).realVertex, weightAt(edge, at));
+      }
+      currentEdge = record.edgeList.next(currentEdge);
+    }
+  }
+
+  private static VersionedVertex otherEnd(VersionedEdge edge, VersionedVertex record) {
+    if (edge.vertex1 == record) {
+      return edge.vertex2;
+    }
+    return edge.vertex1;
+  }
+
+  /**
+   * retireEdge() marks a live edge removed at the current version.  It stays
+   * linked in until collect() finds no snapshot can see it.
+   */
+
+  private void retireEdge(VersionedEdge edge) {
+    edge.removed = version;
+    edge.vertex1.degree--;
+    if (edge.vertex1 != edge.vertex2) {
+      edge.vertex2.degree--;
+    }
+    removedRecords.insertBack(edge);
+    edgeCount--;
+  }
+
+  /**
+   * oldestSnapshot() returns the version of the oldest open snapshot, or
+   * NEVER if there is none.
+   */
+
+  private long oldestSnapshot() {
+    if (openSnapshots.isEmpty()) {
+      return NEVER;
+    }
+    return ((Snapshot) openSnapshots.front().item).snapshotVersion;
+  }
+
+  /**
+   * trimWeights() drops the weights of "edge" that no open snapshot can see:
+   * everything older than the newest weight set at or before the oldest
+   * snapshot.
+   */
+
+  private void trimWeights(VersionedEdge edge) {
+    long oldest = oldestSnapshot();
+    WeightVersion weight = edge.weights;
+    while (weight.since > oldest && weight.older != null) {
+      weight = weight.older;
+    }
+    weight.older = null;
+  }
+
+  /**
+   * collect() unlinks every removed record that no open snapshot can see.  A
+   * record removed at version r is visible only to snapshots older than r,
+   * and removedRecords is in removal order, so it stops at the first record
+   * the oldest snapshot still needs.  Older lifetimes of the same vertex or
+   * edge were removed earlier, so each record unlinked here is the oldest
+   * of its chain.
+   */
+
+  private void collect() {
+    long oldest = oldestSnapshot();
+    DListNode currentRecord = removedRecords.front();
+    while (currentRecord != null) {
+      Object item = currentRecord.item;
+      if (item instanceof VersionedEdge) {
+        VersionedEdge edge = (VersionedEdge) item;
+        if (edge.removed > oldest) {
+          return;
+        }
+        edge.vertex1.edgeList.remove(edge.node1);
+        if (edge.node2 != null) {
+          edge.vertex2.edgeList.remove(edge.node2);
+        }
+        if (edge.newer != null) {
+          edge.newer.older = null;
+        } else {
+          edgeHashTable.remove(new VertexPair(edge.vertex1.realVertex, edge.vertex2.realVertex));
+        }
+      } else {
+        VersionedVertex vertex = (VersionedVertex) item;
+        if (vertex.removed > oldest) {
+          return;
+        }
+        internalVertices.remove(vertex.parentDlistNode);
+        if (vertex.newer != null) {
+          vertex.newer.older = null;
+        } else {
+          vertexHashTable.remove(vertex.realVertex);
+        }
+      }
+      removedRecords.remove(currentRecord);
+      currentRecord = removedRecords.front();
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/* VertexCodec.java */
+
+package graph;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A VertexCodec turns vertex objects into bytes and back, so GraphJournal
+ * can write them to disk.  INTEGER and STRING handle the common cases.
+ */
+
+public interface VertexCodec {
+
+  /**
+   * write() writes "vertex" to "out".
+   */
+
+  public void write(Object vertex, DataOutput out) throws IOException;
+
+  /**
+   * read() reads back a vertex written by write().
+   */
+
+  public Object read(DataInput in) throws IOException;
+
+  /**
+   * INTEGER writes Integer vertices as four bytes.
+   */
+
+  public static final VertexCodec INTEGER = new VertexCodec() {
+    public void write(Object vertex, DataOutput out) throws IOException {
+      out.writeInt(((Integer) vertex).intValue());
+    }
+
+    public Object read(DataInput in) throws IOException {
+      return Integer.valueOf(in.readInt());
+    }
+  };
+
+  /**
+   * STRING writes String vertices in modified UTF-8.
+   */
+
+  public static final VertexCodec STRING = new VertexCodec() {
+    public void write(Object vertex, DataOutput out) throws IOException {
+      out.writeUTF((String) vertex);
+    }
+
+    public Object read(DataInput in) throws IOException {
+      return in.readUTF();
+    }
+  };
+}
@@ -0,0 +1,18 @@
+/* VertexFilter.java */
+
+package graph;
+
+/**
+ * A VertexFilter picks out the vertices that belong to a SubgraphView.
+ */
+
+public interface VertexFilter {
+
+  /**
+   * accept() returns true if "vertex" belongs to the subgraph.  It must give
+   * the same answer every time it is asked about the same vertex, for as
+   * long as the view is in use.
+   */
+
+  public boolean accept(Object vertex);
+}
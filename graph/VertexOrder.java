@@ -0,0 +1,19 @@
+/* VertexOrder.java */
+
+package graph;
+
+/**
+ * The vertex orders CSRGraph.reorder() can lay a graph out in.  Each puts
+ * vertices that are scanned together close together in memory.
+ *
+ *   BFS                    breadth-first order, one component after
+ *                          another, starting from the lowest id of each.
+ *   REVERSE_CUTHILL_MCKEE  breadth-first from a minimum-degree vertex of
+ *                          each component, visiting neighbors by increasing
+ *                          degree, then reversed.  Keeps the neighbors of
+ *                          each vertex within a narrow band of ids.
+ *   DEGREE_DESCENDING      highest degree first, so hub rows, which most
+ *                          scans touch, share the first pages.
+ */
+
+public enum VertexOrder { BFS, REVERSE_CUTHILL_MCKEE, DEGREE_DESCENDING }
@@ -4,6 +4,7 @@ package graph;
 
 import dict.Entry;
 import dict.HashTableChained;
+import dict.LongHashTable;
 import list.DList;
 import list.DListNode;
 
@@ -12,18 +13,31 @@ import list.DListNode;
  * permitted.
  */
 
-public class WUGraph {
+public class WUGraph implements GraphView {
    
   //Keeps track of the amount of edges. Is incremented when we add an edge, decremented when we delete one.
   private int edgeCount;
 
 
-  //Vertex and Edge HashTable that hold the references to the actual vertex and the vertex pair object (for the edges).
+  //Vertex HashTable that holds the references to the actual vertex.
   private HashTableChained vertexHashTable;
-  private HashTableChained edgeHashTable;
+
+  //Edge table keyed by the packed ids of the two endpoints (see edgeKey()), holding the first half-edge.
+  private LongHashTable edgeHashTable;
 
   private DList internalVertices;
 
+  //Ids given up by removed vertices, handed out again before new ones so ids stay dense.
+  private int[] freeIds;
+  private int freeIdCount;
+  private int nextId;
+
+  //Receives every change when set; null (the default) costs one test per change.
+  private GraphChangeLog changeLog;
+
+  //Hot-path counters when enabled; null (the default) costs one test per operation.
+  private GraphMetrics metrics;
+
   /**
    * WUGraph() constructs a graph having no vertices or edges.
    * Running time:  O(1).
@@ -32,11 +46,29 @@ public class WUGraph {
   public WUGraph() {
     //Initializes the hashTables for the vertices and the edges.
     vertexHashTable = new HashTableChained();
-    edgeHashTable = new HashTableChained();
+    edgeHashTable = new LongHashTable();
 
     //Sets edgeCount to 0.
     edgeCount = 0;
     internalVertices = new DList();
+    freeIds = new int[16];
+  }
+
+  /**
+   * WUGraph() constructs a graph having no vertices or edges, with its hash
+   * tables sized up front to hold roughly vertexEstimate vertices and
+   * edgeEstimate edges without rehashing.  Use this constructor when the
+   * size of the graph to be loaded is known.
+   * Running time:  O(vertexEstimate + edgeEstimate).
+   */
+
+  public WUGraph(int vertexEstimate, int edgeEstimate) {
+    vertexHashTable = new HashTableChained(vertexEstimate);
+    edgeHashTable = new LongHashTable(edgeEstimate);
+
+    edgeCount = 0;
+    internalVertices = new DList();
+    freeIds = new int[16];
   }
 
   
@@ -73,6 +105,88 @@ public class WUGraph {
 
   
   
+  /**
+   * setChangeLog() makes the graph append every later change to "log", or
+   * stops recording changes if "log" is null.  Changes made before the call
+   * are not recorded; consumers that attach late should build their state
+   * from the graph first, then drain a cursor opened at the same time.
+   *
+   * Running time:  O(1).
+   */
+
+  public void setChangeLog(GraphChangeLog log) {
+    changeLog = log;
+  }
+
+
+
+
+  /**
+   * getChangeLog() returns the log set by setChangeLog(), or null.
+   * Running time:  O(1).
+   */
+
+  public GraphChangeLog getChangeLog() {
+    return changeLog;
+  }
+
+
+  
+  
+  /**
+   * enableMetrics() starts counting and timing addEdge(), removeEdge(),
+   * getNeighbors() and isEdge(), and the chain probes and resizes of the
+   * vertex hash table, and returns the GraphMetrics that holds the counts.
+   * If metrics are already enabled, the existing GraphMetrics is returned.
+   *
+   * Running time:  O(1).
+   */
+
+  public GraphMetrics enableMetrics() {
+    if (metrics == null) {
+      metrics = new GraphMetrics(this);
+      vertexHashTable.setMetrics(metrics.vertexTable());
+    }
+    return metrics;
+  }
+
+  /**
+   * disableMetrics() stops counting.  The GraphMetrics last returned by
+   * enableMetrics() keeps its counts but no longer changes.
+   *
+   * Running time:  O(1).
+   */
+
+  public void disableMetrics() {
+    metrics = null;
+    vertexHashTable.setMetrics(null);
+  }
+
+  /**
+   * vertexTableLoadFactor() returns the load factor of the table mapping
+   * vertices to their internal vertices:  entries per bucket.
+   *
+   * Running time:  O(1).
+   */
+
+  float vertexTableLoadFactor() {
+    return vertexHashTable.loadFactor();
+  }
+
+  /**
+   * edgeTableLoadFactor() returns the load factor of the table mapping
+   * packed vertex ids to edges:  entries per slot.
+   *
+   * Running time:  O(1).
+   */
+
+  float edgeTableLoadFactor() {
+    return edgeHashTable.loadFactor();
+  }
+
+
+  
+  
   /**
    * getVertices() returns an array containing all the objects that serve
    * as vertices of the graph.  The array's length is exactly equal to the
@@ -131,6 +245,7 @@ public class WUGraph {
     if (!isVertex(vertex)) {
       // New internal representative
       InternalVertex newVertex = new InternalVertex(vertex);
+      newVertex.id = allocateId();
 
       //into hash table
       vertexHashTable.insert(vertex, newVertex);
@@ -140,25 +255,45 @@ public class WUGraph {
       
       //pointer to dlistnode containing this internalvertex, grab pointer to what was just put in
       newVertex.parentDlistNode = internalVertices.front();
+
+      if (changeLog != null) {
+        changeLog.vertexAdded(vertex);
+      }
     }
   }
   
   
   
   
+  /**
+   * addVertices() adds every object in "vertices" to the graph, exactly as if
+   * addVertex() were called on each in turn.  The vertex hash table is grown
+   * once for the whole batch, so it is never rehashed partway through.
+   *
+   * Running time:  O(n), where n is the length of "vertices".
+   */
+
+  public void addVertices(Object[] vertices) {
+    vertexHashTable.ensureCapacity(vertexHashTable.size() + vertices.length);
+    for (int i = 0; i < vertices.length; i++) {
+      addVertex(vertices[i]);
+    }
+  }
+
+
+
+
   /**
    * removeVertex() removes a vertex from the graph. All edges incident on the
    * deleted vertex are removed. If the parameter "vertex" does not
    * represent a vertex of the graph, the graph is unchanged. Takes in a vertex as
    * an argument. The method begins by setting the InternalVertex targetVertex to be
    * the internalVertex that matches the argument vertex, using the getInternalVertex
-   * method. If the targetVertex is not null, we set neighbors to be all the neighbors
-   * of the argument vertex. If neighbors is not null, we create an Object array called
-   * vertexNeighbors and set it to be neighbor's neighborList. For every vertexNeighbor
-   * in vertexNeighors, we call removeEdge to remove the edge between the realVertex in
-   * targetVertex and vertexNeighbor. We then use the DListNode pointer to remove itself from
-   * the graph, without having to iterate through the DList. We then remove the vertex
-   * from the hashTable. 
+   * method. If the targetVertex is not null, detachVertex() walks its half-edges,
+   * unlinking each sibling half-edge from the neighbor's list through its DListNode
+   * pointer and dropping the edge from the edge table. We then use the DListNode
+   * pointer to remove the vertex itself from the graph, without having to iterate
+   * through the DList, and remove the vertex from the hashTable.
    *
    * Running time:  O(d), where d is the degree of "vertex".
    */
@@ -167,25 +302,124 @@ public class WUGraph {
     // only continue on valid vertex
     InternalVertex targetVertex = getInternalVertex(vertex);
     if (targetVertex != null) {
+      detachVertex(targetVertex);
+    }
+  }
+
 
-      // Only continue when there's neighbors to remove
-      Neighbors neighbors = getNeighbors(vertex);
-      if (neighbors != null) {
 
-        // Delete neighbors
-        Object[] vertexNeighbors = neighbors.neighborList;
 
-        for (Object vertexNeighbor : vertexNeighbors) {
-          removeEdge(targetVertex.realVertex, vertexNeighbor);
+  /**
+   * removeVertices() removes every object in "vertices" from the graph,
+   * exactly as if removeVertex() were called on each in turn; objects that
+   * are not vertices are skipped.  The vertex and edge hash tables are not
+   * allowed to shrink until the whole batch is gone, so pruning a large
+   * share of the graph rebuilds each table at most once instead of at every
+   * halving.
+   *
+   * Running time:  O(n + d), where n is the length of "vertices" and d is
+   * the sum of their degrees.
+   */
+
+  public void removeVertices(Object[] vertices) {
+    vertexHashTable.suspendShrink();
+    edgeHashTable.suspendShrink();
+    try {
+      for (int i = 0; i < vertices.length; i++) {
+        InternalVertex targetVertex = getInternalVertex(vertices[i]);
+        if (targetVertex != null) {
+          detachVertex(targetVertex);
         }
       }
+    } finally {
+      vertexHashTable.resumeShrink();
+      edgeHashTable.resumeShrink();
+    }
+  }
+
+
+
+
+  /**
+   * detachVertex() removes an existing internal vertex and all its edges.
+   * Only the neighbors' half-edges are unlinked; the vertex's own edge list
+   * is dropped along with the vertex.
+   */
+
+  private void detachVertex(InternalVertex targetVertex) {
+    DList edgeList = targetVertex.edgeList;
+    DListNode currentEdge = edgeList.front();
+    while (currentEdge != null) {
+      HalfEdge halfEdge = (HalfEdge) currentEdge.item;
+      InternalVertex other = halfEdge.internalVert1 == targetVertex
+                           ? halfEdge.internalVert2 : halfEdge.internalVert1;
+
+      // A self-edge has only the one half-edge, in our own list.
+      if (other != targetVertex) {
+        other.edgeList.remove(halfEdge.siblingEdge.getParentDListNode());
+      }
+      edgeHashTable.remove(edgeKey(targetVertex, other));
+      edgeCount--;
+
+      if (changeLog != null) {
+        changeLog.edgeRemoved(targetVertex.realVertex, other.realVertex, halfEdge.weight);
+      }
+      currentEdge = edgeList.next(currentEdge);
+    }
+
+    // use dlistnode pointer to remove itself from graph w.out having to iterate through dlist
+    internalVertices.remove(targetVertex.parentDlistNode);
+
+    // remove from hashtable, all done!
+    vertexHashTable.remove(targetVertex.realVertex);
+    releaseId(targetVertex.id);
+
+    if (changeLog != null) {
+      changeLog.vertexRemoved(targetVertex.realVertex);
+    }
+  }
+
+
+
+
+  /**
+   * allocateId() returns an unused vertex id:  a recycled one if any vertex
+   * has been removed, otherwise the next fresh one.
+   */
 
-      // use dlistnode pointer to remove itself from graph w.out having to iterate through dlist
-      internalVertices.remove(targetVertex.parentDlistNode);
+  private int allocateId() {
+    if (freeIdCount > 0) {
+      freeIdCount--;
+      return freeIds[freeIdCount];
+    }
+    nextId++;
+    return nextId - 1;
+  }
 
-      // remove from hashtable, all done!
-      vertexHashTable.remove(vertex);
+  private void releaseId(int id) {
+    if (freeIdCount == freeIds.length) {
+      int[] grown = new int[freeIds.length * 2];
+      System.arraycopy(freeIds, 0, grown, 0, freeIdCount);
+      freeIds = grown;
     }
+    freeIds[freeIdCount] = id;
+    freeIdCount++;
+  }
+
+
+
+
+  /**
+   * edgeKey() packs the ids of two internal vertices into the long that keys
+   * their edge in edgeHashTable, smaller id in the high half, so (u, v) and
+   * (v, u) give the same key.
+   */
+
+  private static long edgeKey(InternalVertex u, InternalVertex v) {
+    if (u.id > v.id) {
+      return ((long) v.id << 32) | u.id;
+    }
+    return ((long) u.id << 32) | v.id;
   }
 
   
@@ -253,6 +487,23 @@ public class WUGraph {
    */
   
   public Neighbors getNeighbors(Object vertex) {
+    if (metrics == null) {
+      return collectNeighbors(vertex);
+    }
+    long start = System.nanoTime();
+    Neighbors neighbors = collectNeighbors(vertex);
+    metrics.record(GraphMetrics.GET_NEIGHBORS, System.nanoTime() - start);
+    return neighbors;
+  }
+
+
+
+
+  /**
+   * collectNeighbors() is the body of getNeighbors(), apart from timing.
+   */
+
+  private Neighbors collectNeighbors(Object vertex) {
 
     //Assigns refInternalVertex with the internalVertex associated with vertex.
     InternalVertex refInternalVertex = getInternalVertex(vertex);
@@ -300,6 +551,39 @@ public class WUGraph {
     return neighbors;
   }
 
+
+
+
+
+  /**
+   * forEachNeighbor() calls visitor.visit() once for each edge incident on
+   * "vertex", with the neighbor at the other end and the edge's weight, in
+   * the same order getNeighbors() would list them.  Unlike getNeighbors(),
+   * it walks the vertex's half-edges directly and allocates nothing.  If
+   * "vertex" is not a vertex of the graph, the visitor is never called.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+
+  public void forEachNeighbor(Object vertex, NeighborVisitor visitor) {
+    InternalVertex refInternalVertex = getInternalVertex(vertex);
+    if (refInternalVertex == null) {
+      return;
+    }
+
+    DList edgeList = refInternalVertex.edgeList;
+    DListNode currentEdgeDLNode = edgeList.front();
+    while (currentEdgeDLNode != null) {
+      HalfEdge halfEdge = (HalfEdge) currentEdgeDLNode.item;
+      if (halfEdge.internalVert1 == refInternalVertex) {
+        visitor.visit(halfEdge.internalVert2.realVertex, halfEdge.weight);
+      } else {
+        visitor.visit(halfEdge.internalVert1.realVertex, halfEdge.weight);
+      }
+      currentEdgeDLNode = edgeList.next(currentEdgeDLNode);
+    }
+  }
+
   
   
   
@@ -317,47 +601,106 @@ public class WUGraph {
    */
   
   public void addEdge(Object u, Object v, int weight) {
+    long start = metrics == null ? 0 : System.nanoTime();
     
     // Check if verticies exist, first
     InternalVertex internalVertex_u = getInternalVertex(u);
     InternalVertex internalVertex_v = getInternalVertex(v);
 
     if(internalVertex_u != null && internalVertex_v != null){
-      VertexPair vertexPair = new VertexPair(u, v);
-      Entry vertexPairEntry = edgeHashTable.find(vertexPair);
-
-      //Checks if preexisting edge exists
-      if (vertexPairEntry == null) { 	  
-        //We initialize firstHalfEdge and secondHalfEdge as two HalfEdges, with
-        //the same weight yet and same vertices u and v.
-        HalfEdge firstHalfEdge = new HalfEdge(internalVertex_u, internalVertex_v, weight);
-        HalfEdge secondHalfEdge = new HalfEdge(internalVertex_u, internalVertex_v, weight);
-        
-        //We set the two half edges to be siblings through the setSiblingEdge() method.
-        firstHalfEdge.setSiblingEdge(secondHalfEdge);
-        secondHalfEdge.setSiblingEdge(firstHalfEdge);
-        
-        //We then insert both edges into the edgeList corresponding to either u or v.
-        //the parentDListNode of the halfEdge to be the first item in the edgeList.
-        internalVertex_u.edgeList.insertFront(firstHalfEdge);
-        firstHalfEdge.parentDListNode = internalVertex_u.edgeList.front();
-
-        // Only add 2nd half edge to 2nd Vertex if it's not a self-edge: otherwise duplicates.
-        if (u.hashCode() != v.hashCode()){
-          internalVertex_v.edgeList.insertFront(secondHalfEdge);
-          secondHalfEdge.parentDListNode = internalVertex_v.edgeList.front();
+      insertEdge(internalVertex_u, internalVertex_v, weight);
+    }
+
+    if (metrics != null) {
+      metrics.record(GraphMetrics.ADD_EDGE, System.nanoTime() - start);
+    }
+  }
+
+
+
+
+  /**
+   * addEdges() adds the edges (us[i], vs[i]) with weights weights[i] to the
+   * graph, exactly as if addEdge() were called on each in turn:  edges whose
+   * endpoints are not both vertices of the graph are skipped, and repeated
+   * edges update the weight.  The three arrays are parallel and must have
+   * the same length.  The edge hash table is grown once for the whole batch,
+   * so it is never rehashed partway through.  With metrics enabled, the
+   * batch counts as one addEdge() call per edge, timed as a whole.
+   *
+   * Running time:  O(n), where n is the length of the arrays.
+   */
+
+  public void addEdges(Object[] us, Object[] vs, int[] weights) {
+    if (us.length != weights.length || vs.length != weights.length) {
+      throw new IllegalArgumentException("addEdges() needs arrays of equal length");
+    }
+
+    long start = metrics == null ? 0 : System.nanoTime();
+    edgeHashTable.ensureCapacity(edgeHashTable.size() + weights.length);
+    for (int i = 0; i < weights.length; i++) {
+      InternalVertex internalVertex_u = getInternalVertex(us[i]);
+      InternalVertex internalVertex_v = getInternalVertex(vs[i]);
+      if (internalVertex_u != null && internalVertex_v != null) {
+        insertEdge(internalVertex_u, internalVertex_v, weights[i]);
+      }
+    }
+    if (metrics != null) {
+      metrics.recordBatch(GraphMetrics.ADD_EDGE, weights.length, System.nanoTime() - start);
+    }
+  }
+
+
+
+
+  /**
+   * insertEdge() adds or reweights the edge between two existing internal
+   * vertices; it is the body of addEdge() once both endpoints are known.
+   */
+
+  private void insertEdge(InternalVertex internalVertex_u, InternalVertex internalVertex_v, int weight) {
+    long key = edgeKey(internalVertex_u, internalVertex_v);
+    HalfEdge existingEdge = (HalfEdge) edgeHashTable.find(key);
+
+    //Checks if preexisting edge exists
+    if (existingEdge == null) { 	  
+      //We initialize firstHalfEdge and secondHalfEdge as two HalfEdges, with
+      //the same weight yet and same vertices u and v.
+      HalfEdge firstHalfEdge = new HalfEdge(internalVertex_u, internalVertex_v, weight);
+      HalfEdge secondHalfEdge = new HalfEdge(internalVertex_u, internalVertex_v, weight);
+      
+      //We set the two half edges to be siblings through the setSiblingEdge() method.
+      firstHalfEdge.setSiblingEdge(secondHalfEdge);
+      secondHalfEdge.setSiblingEdge(firstHalfEdge);
+      
+      //We then insert both edges into the edgeList corresponding to either u or v.
+      //the parentDListNode of the halfEdge to be the first item in the edgeList.
+      internalVertex_u.edgeList.insertFront(firstHalfEdge);
+      firstHalfEdge.parentDListNode = internalVertex_u.edgeList.front();
+
+      // Only add 2nd half edge to 2nd Vertex if it's not a self-edge: otherwise duplicates.
+      if (internalVertex_u != internalVertex_v){
+        internalVertex_v.edgeList.insertFront(secondHalfEdge);
+        secondHalfEdge.parentDListNode = internalVertex_v.edgeList.front();
     
-        }
-        
-        //We then increment the edgeCount class member and insert the vertexPair alongside the firstHalfEdge.
-        edgeCount++;
-        edgeHashTable.insert(vertexPair, firstHalfEdge);
-
-      } else { 
-        // In this case, the edge already exists, so just update it's values.
-        HalfEdge halfEdge= (HalfEdge)vertexPairEntry.value();
-        halfEdge.weight = weight;
-        halfEdge.siblingEdge.weight = weight;
+      }
+      
+      //We then increment the edgeCount class member and insert the packed key alongside the firstHalfEdge.
+      edgeCount++;
+      edgeHashTable.insert(key, firstHalfEdge);
+
+      if (changeLog != null) {
+        changeLog.edgeAdded(internalVertex_u.realVertex, internalVertex_v.realVertex, weight);
+      }
+
+    } else { 
+      // In this case, the edge already exists, so just update it's values.
+      int oldWeight = existingEdge.weight;
+      existingEdge.weight = weight;
+      existingEdge.siblingEdge.weight = weight;
+
+      if (changeLog != null && oldWeight != weight) {
+        changeLog.weightChanged(internalVertex_u.realVertex, internalVertex_v.realVertex, oldWeight, weight);
       }
     }
   }
@@ -376,30 +719,42 @@ public class WUGraph {
    */
   
   public void removeEdge(Object u, Object v) {
+    long start = metrics == null ? 0 : System.nanoTime();
+
     // Check if verticies exist, first
     InternalVertex internalVertex_u = getInternalVertex(u);
     InternalVertex internalVertex_v = getInternalVertex(v);
-    VertexPair vertexPair = new VertexPair(u, v);
 
-    //Removes edge only if it exists. Checks the two internal vertices for null and calls isEdge on both.
-    if(internalVertex_u != null && internalVertex_v != null && isEdge(u, v)){
-        
-      HalfEdge firstHalfEdge = ((HalfEdge)edgeHashTable.find(vertexPair).value());
+    //Removes edge only if both vertices exist and the edge between them does.
+    HalfEdge firstHalfEdge = null;
+    long key = 0;
+    if(internalVertex_u != null && internalVertex_v != null){
+      key = edgeKey(internalVertex_u, internalVertex_v);
+      firstHalfEdge = (HalfEdge) edgeHashTable.find(key);
+    }
+    if(firstHalfEdge != null){
 
-      internalVertex_u.edgeList.remove(firstHalfEdge.getParentDListNode());
-      getNeighbors(u);
+      // The first half-edge lives in internalVert1's list and its sibling in
+      // internalVert2's, whichever order u and v were passed in.
+      firstHalfEdge.internalVert1.edgeList.remove(firstHalfEdge.getParentDListNode());
 
-      // Only add 2nd half-edge to 2nd vert when u & v are not the same instance (a self-reference).
-      if (u.hashCode() != v.hashCode()){
+      // Only a non-self-edge has its 2nd half-edge linked into the 2nd vertex.
+      if (internalVertex_u != internalVertex_v){
         HalfEdge secondHalfEdge = firstHalfEdge.siblingEdge;
-
-        internalVertex_v.edgeList.remove(secondHalfEdge.getParentDListNode());
-        getNeighbors(v);
+        firstHalfEdge.internalVert2.edgeList.remove(secondHalfEdge.getParentDListNode());
       }
 
       edgeCount--;
-      edgeHashTable.remove(vertexPair);
+      edgeHashTable.remove(key);
+
+      if (changeLog != null) {
+        changeLog.edgeRemoved(internalVertex_u.realVertex, internalVertex_v.realVertex, firstHalfEdge.weight);
+      }
     } 
+
+    if (metrics != null) {
+      metrics.record(GraphMetrics.REMOVE_EDGE, System.nanoTime() - start);
+    }
   }
 
   
@@ -439,10 +794,15 @@ public class WUGraph {
    * Running time:  O(1).
    */
 
-  //Build a key out of real vertices u & v for checking Edge hash table; then check it
+  //Look up the internal vertices of u & v, pack their ids into a key, and probe the edge table once
   public boolean isEdge(Object u, Object v){
-    VertexPair edge = new VertexPair(u, v);
-    return edgeHashTable.find(edge) != null;
+    if (metrics == null) {
+      return findEdge(u, v) != null;
+    }
+    long start = System.nanoTime();
+    boolean found = findEdge(u, v) != null;
+    metrics.record(GraphMetrics.IS_EDGE, System.nanoTime() - start);
+    return found;
   }
 
   
@@ -459,15 +819,90 @@ public class WUGraph {
    */
   
   public int weight(Object u, Object v) {
-    // create new key to search Edge hash table with
-    VertexPair edge = new VertexPair(u, v);
-    Entry hashResult = edgeHashTable.find(edge);
+    HalfEdge halfEdge = findEdge(u, v);
     
-    // If there's a match, unpack hashResult's internal halfEdge and return it's weight
-    if(hashResult == null){
+    // If there's a match, return the half-edge's weight
+    if(halfEdge == null){
       return 0;
     } else {
-      return ((HalfEdge) hashResult.value()).weight;
+      return halfEdge.weight;
+    }
+  }
+
+
+
+
+  /**
+   * findEdge() returns the first half-edge of (u, v), or null if (u, v) is
+   * not an edge.  It allocates nothing:  the key is a primitive long.
+   */
+
+  private HalfEdge findEdge(Object u, Object v) {
+    InternalVertex internalVertex_u = getInternalVertex(u);
+    if (internalVertex_u == null) {
+      return null;
+    }
+    InternalVertex internalVertex_v = getInternalVertex(v);
+    if (internalVertex_v == null) {
+      return null;
+    }
+    return (HalfEdge) edgeHashTable.find(edgeKey(internalVertex_u, internalVertex_v));
+  }
+
+
+
+
+  /**
+   * freeze() returns an immutable compressed-sparse-row snapshot of the graph.
+   * Vertices are numbered densely in getVertices() order, and the snapshot's
+   * rows come out sorted by neighbor id because each row is filled by
+   * scanning the vertices in id order.  Later changes to this graph do not
+   * affect the snapshot.
+   *
+   * Running time:  O(|V| + |E|).
+   */
+
+  public CSRGraph freeze() {
+    int n = internalVertices.length();
+    Object[] vertices = new Object[n];
+    InternalVertex[] internal = new InternalVertex[n];
+    HashTableChained ids = new HashTableChained(Math.max(n, 1));
+
+    // First pass: number the vertices and size every row.
+    // dense[] maps each internal id to its snapshot id without a hash lookup.
+    int[] offsets = new int[n + 1];
+    int[] dense = new int[nextId];
+    DListNode currentVertex = internalVertices.front();
+    for (int i = 0; i < n; i++) {
+      internal[i] = (InternalVertex) currentVertex.item;
+      vertices[i] = internal[i].realVertex;
+      dense[internal[i].id] = i;
+      ids.insert(vertices[i], Integer.valueOf(i));
+      offsets[i + 1] = offsets[i] + internal[i].edgeList.length();
+      currentVertex = internalVertices.next(currentVertex);
     }
+
+    // Second pass: u is appended to the row of each of its neighbors, so rows
+    // fill in increasing id order and need no sorting afterwards.
+    int[] cursor = new int[n];
+    System.arraycopy(offsets, 0, cursor, 0, n);
+    int[] targets = new int[offsets[n]];
+    int[] weights = new int[offsets[n]];
+    for (int u = 0; u < n; u++) {
+      DList edgeList = internal[u].edgeList;
+      DListNode currentEdge = edgeList.front();
+      while (currentEdge != null) {
+        HalfEdge halfEdge = (HalfEdge) currentEdge.item;
+        InternalVertex other = halfEdge.internalVert1 == internal[u]
+                             ? halfEdge.internalVert2 : halfEdge.internalVert1;
+        int w = dense[other.id];
+        targets[cursor[w]] = u;
+        weights[cursor[w]] = halfEdge.weight;
+        cursor[w]++;
+        currentEdge = edgeList.next(currentEdge);
+      }
+    }
+
+    return new CSRGraph(vertices, ids, offsets, targets, weights, edgeCount);
   }
 }
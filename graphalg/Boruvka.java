@@ -0,0 +1,217 @@
+/* Boruvka.java */
+
+package graphalg;
+
+import graph.*;
+import set.DisjointSets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The Boruvka class computes minimum spanning trees with Boruvka's
+ * algorithm, spreading each round over a ForkJoinPool.
+ *
+ * Each round finds, for every tree of the forest built so far, the lightest
+ * edge leaving it, and adds all of those edges at once.  Every round at
+ * least halves the number of trees, so there are at most log |V| rounds,
+ * and no round sorts anything.  The scan for lightest edges runs in
+ * parallel, one block of edges per task; each task also drops the edges of
+ * its block that no longer leave their tree, so the rounds get cheaper as
+ * trees merge.  Only the unions, one per tree, run on the calling thread.
+ *
+ * Edges of equal weight are ordered by their position in the edge list, so
+ * every tree's choice is unique and the edges chosen in a round never form
+ * a cycle.  The result is the same tree Kruskal.minSpanEdges() finds, but
+ * its edges are listed round by round rather than by weight.
+ */
+
+public class Boruvka {
+
+  //Edges or vertices handled by one task.
+  private static final int BLOCK_SIZE = 1 << 13;
+
+  //Task phases.
+  private static final int LABEL = 0;
+  private static final int SCAN = 1;
+
+  private final ForkJoinPool pool;
+  private final int[] sources;
+  private final int[] targets;
+  //Sort keys:  weight in the high half, edge index in the low half.
+  private final long[] order;
+  private int liveEdges;
+
+  private final DisjointSets forest;
+  //Root of each vertex's tree, as of the start of the round.
+  private final int[] component;
+  //Key of the lightest edge leaving each tree, or Long.MAX_VALUE.
+  private final AtomicLongArray lightest;
+  //Edges kept by each SCAN block.
+  private int[] keptCounts;
+
+  private final int[] us;
+  private final int[] vs;
+  private final int[] weights;
+  private int treeEdges;
+  private long totalWeight;
+
+  private Boruvka(ForkJoinPool pool, Kruskal.EdgeCollector edges, int vertexCount) {
+    this.pool = pool;
+    sources = edges.sources;
+    targets = edges.targets;
+    order = edges.order;
+    liveEdges = edges.edges;
+    forest = new DisjointSets(vertexCount);
+    component = new int[vertexCount];
+    lightest = new AtomicLongArray(vertexCount);
+    int treeSize = Math.max(vertexCount - 1, 0);
+    us = new int[treeSize];
+    vs = new int[treeSize];
+    weights = new int[treeSize];
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the graph g, computed on the common ForkJoinPool.  The original graph
+   * g is NOT changed.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @return A newly constructed WUGraph representing the MST of g.
+   */
+
+  public static WUGraph minSpanTree(GraphView g) {
+    return minSpanEdges(g, ForkJoinPool.commonPool()).toWUGraph();
+  }
+
+  /**
+   * minSpanEdges() returns the edges of the minimum spanning tree of the
+   * graph g, computed with the threads of "pool".  The original graph g is
+   * NOT changed, and is read only by the calling thread.
+   *
+   * Running time:  O((|V| + |E|) log |V|) work in all.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @param pool The pool that runs each round.
+   * @return The tree edges of g.
+   */
+
+  public static MSTResult minSpanEdges(GraphView g, ForkJoinPool pool) {
+    Object[] realVerts = g.getVertices();
+    Kruskal.EdgeCollector edges = Kruskal.collectEdges(g, realVerts);
+
+    Boruvka run = new Boruvka(pool, edges, realVerts.length);
+    run.run();
+    return new MSTResult(realVerts, run.us, run.vs, run.weights, run.treeEdges,
+                         run.totalWeight);
+  }
+
+  /**
+   * run() performs rounds until the forest spans the graph or no edge
+   * leaves any tree.
+   */
+
+  private void run() {
+    int vertexCount = component.length;
+    while (treeEdges != us.length && liveEdges > 0) {
+      pool.invoke(new Round(LABEL, 0, vertexCount));
+
+      int blocks = (liveEdges + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      keptCounts = new int[blocks];
+      pool.invoke(new Round(SCAN, 0, liveEdges));
+
+      // Close the gaps the blocks left behind.
+      int kept = keptCounts[0];
+      for (int b = 1; b < blocks; b++) {
+        System.arraycopy(order, b * BLOCK_SIZE, order, kept, keptCounts[b]);
+        kept += keptCounts[b];
+      }
+      liveEdges = kept;
+
+      // Add the lightest edge out of every tree.  Two trees may choose the
+      // same edge; the second finds its endpoints already joined.
+      for (int v = 0; v < vertexCount; v++) {
+        long key = lightest.get(v);
+        if (component[v] != v || key == Long.MAX_VALUE) {
+          continue;
+        }
+        int edge = (int) key;
+        int root1 = forest.find(sources[edge]);
+        int root2 = forest.find(targets[edge]);
+        if (root1 != root2) {
+          forest.union(root1, root2);
+          us[treeEdges] = sources[edge];
+          vs[treeEdges] = targets[edge];
+          weights[treeEdges] = (int) (key >> 32);
+          totalWeight += weights[treeEdges];
+          treeEdges++;
+        }
+      }
+    }
+  }
+
+  /**
+   * A Round task runs one phase of a round over items lo ... hi-1, forking
+   * halves until one block is left.  LABEL records each vertex's tree and
+   * clears its lightest edge; SCAN offers each live edge to the trees at
+   * both ends and packs the edges that still leave their tree to the front
+   * of the block.
+   */
+
+  @SuppressWarnings("serial")
+  private class Round extends RecursiveAction {
+    private final int phase;
+    private final int lo;
+    private final int hi;
+
+    private Round(int phase, int lo, int hi) {
+      this.phase = phase;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    protected void compute() {
+      if (hi - lo > BLOCK_SIZE) {
+        // Split on a block boundary, so SCAN blocks line up with keptCounts.
+        int blocks = (hi - lo + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int middle = lo + blocks / 2 * BLOCK_SIZE;
+        invokeAll(new Round(phase, lo, middle), new Round(phase, middle, hi));
+        return;
+      }
+
+      if (phase == LABEL) {
+        for (int v = lo; v < hi; v++) {
+          component[v] = forest.root(v);
+          lightest.set(v, Long.MAX_VALUE);
+        }
+        return;
+      }
+
+      int kept = lo;
+      for (int k = lo; k < hi; k++) {
+        long key = order[k];
+        int edge = (int) key;
+        int c1 = component[sources[edge]];
+        int c2 = component[targets[edge]];
+        if (c1 != c2) {
+          offer(c1, key);
+          offer(c2, key);
+          order[kept++] = key;
+        }
+      }
+      keptCounts[lo / BLOCK_SIZE] = kept - lo;
+    }
+  }
+
+  /**
+   * offer() makes "key" the lightest edge of tree c if it is lighter than
+   * the one recorded.
+   */
+
+  private void offer(int c, long key) {
+    long current = lightest.get(c);
+    while (key < current && !lightest.compareAndSet(c, current, key)) {
+      current = lightest.get(c);
+    }
+  }
+}
@@ -0,0 +1,613 @@
+/* DynamicMST.java */
+
+package graphalg;
+
+import dict.Entry;
+import dict.HashTableChained;
+import dict.LongHashTable;
+import graph.*;
+import set.DisjointSets;
+import java.util.Arrays;
+
+/**
+ * A DynamicMST keeps the minimum spanning forest of a WUGraph up to date as
+ * the graph changes, so weight() and edges() never recompute it from
+ * scratch.  It follows the graph through a cursor on the graph's
+ * GraphChangeLog (installing one if the graph has none), and catches up
+ * with the changes in one batch at the next query.
+ *
+ * A batch is applied in two steps.  First every tree edge the batch touched
+ * is cut out of the tree.  The untouched tree edges all stay in the tree;
+ * the pieces the cuts left are joined again with the lightest untouched
+ * graph edges between them, found by exploring all pieces in step and
+ * scanning the adjacency of every piece but the largest.  Then each touched
+ * edge still in the graph is inserted:  if its endpoints are already joined
+ * and it is lighter than the heaviest edge on the tree path between them,
+ * it replaces that edge.  Finding that path searches the tree from one
+ * endpoint, so a small batch costs about the size of the smaller side of
+ * each cut plus one search of the tree holding each touched edge; that is
+ * linear in the forest, but not a sort of the whole graph.  If more
+ * changes pile up between queries than the change log holds, the forest is
+ * rebuilt with Kruskal.
+ *
+ * Like WUGraph, a DynamicMST is not thread-safe; query it on the thread
+ * that changes the graph.
+ */
+
+public class DynamicMST {
+
+  private static final int DEFAULT_LOG_CAPACITY = 1 << 16;
+
+  private final WUGraph graph;
+  private final GraphChangeLog log;
+  private final boolean ownsLog;
+  private final GraphChangeLog.Cursor cursor;
+
+  //The forest, over vertex ids.
+  private IntWUGraph tree;
+  private long totalWeight;
+
+  //Vertex object <-> id.  Ids of removed vertices are reused.
+  private final HashTableChained vertexIds = new HashTableChained();
+  private Object[] vertices = new Object[16];
+  private int[] freeIds = new int[16];
+  private int freeCount;
+  private int nextId;
+
+  //Edges and vertices touched by the batch being applied.
+  private final Batch batch = new Batch();
+
+  //Per-id scratch for exploring the tree; mark[id] == stamp means "seen".
+  private int[] mark = new int[16];
+  private int[] label = new int[16];
+  private int[] parent = new int[16];
+  private int[] parentWeight = new int[16];
+  private int[] queue = new int[16];
+  private int stamp;
+
+  /**
+   * DynamicMST() computes the minimum spanning forest of "graph" and starts
+   * following its changes.
+   *
+   * Running time:  O(|V| + |E| log |E|).
+   */
+
+  public DynamicMST(WUGraph graph) {
+    this.graph = graph;
+    if (graph.getChangeLog() == null) {
+      log = new GraphChangeLog(DEFAULT_LOG_CAPACITY);
+      graph.setChangeLog(log);
+      ownsLog = true;
+    } else {
+      log = graph.getChangeLog();
+      ownsLog = false;
+    }
+    cursor = log.newCursor();
+    rebuild();
+  }
+
+  /**
+   * weight() returns the total weight of the minimum spanning forest.
+   */
+
+  public long weight() {
+    update();
+    return totalWeight;
+  }
+
+  /**
+   * edgeCount() returns the number of edges in the minimum spanning forest.
+   */
+
+  public int edgeCount() {
+    update();
+    return tree.edgeCount();
+  }
+
+  /**
+   * edges() returns the edges of the minimum spanning forest, in no
+   * particular order.
+   *
+   * Running time:  O(|V|).
+   */
+
+  public MSTResult edges() {
+    update();
+    int[] ids = tree.getVertices();
+    int[] dense = new int[nextId];
+    Object[] realVerts = new Object[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      dense[ids[i]] = i;
+      realVerts[i] = vertices[ids[i]];
+    }
+
+    int treeSize = tree.edgeCount();
+    int[] us = new int[treeSize];
+    int[] vs = new int[treeSize];
+    int[] weights = new int[treeSize];
+    int k = 0;
+    for (int i = 0; i < ids.length; i++) {
+      int u = ids[i];
+      for (int j = 0; j < tree.degree(u); j++) {
+        int v = tree.neighbor(u, j);
+        if (u < v) {
+          us[k] = dense[u];
+          vs[k] = dense[v];
+          weights[k] = tree.neighborWeight(u, j);
+          k++;
+        }
+      }
+    }
+    return new MSTResult(realVerts, us, vs, weights, k, totalWeight);
+  }
+
+  /**
+   * close() stops following the graph.  If this DynamicMST installed the
+   * graph's change log, it is removed.
+   */
+
+  public void close() {
+    if (ownsLog && graph.getChangeLog() == log) {
+      graph.setChangeLog(null);
+    }
+  }
+
+  /**
+   * update() applies every change made to the graph since the last update.
+   * Queries call it first, so there is seldom a need to call it directly.
+   */
+
+  public void update() {
+    int changes = cursor.drain(batch);
+    if (changes < 0) {
+      batch.clear();
+      rebuild();
+      return;
+    }
+    if (changes == 0) {
+      return;
+    }
+
+    cutTouchedEdges();
+    reconnect();
+    insertTouchedEdges();
+    releaseRemovedVertices();
+    batch.clear();
+  }
+
+  /**
+   * rebuild() throws the forest away and computes it again with Kruskal.
+   */
+
+  private void rebuild() {
+    Object[] realVerts = graph.getVertices();
+    vertexIds.makeEmpty();
+    vertices = new Object[Math.max(16, realVerts.length)];
+    freeCount = 0;
+    nextId = 0;
+    tree = new IntWUGraph(realVerts.length);
+    for (int i = 0; i < realVerts.length; i++) {
+      tree.addVertex(id(realVerts[i]));
+    }
+
+    // Kruskal numbers vertices by their position in realVerts, as id() did.
+    MSTResult result = Kruskal.minSpanEdges(graph);
+    for (int i = 0; i < result.edgeCount; i++) {
+      tree.addEdge(result.us[i], result.vs[i], result.weights[i]);
+    }
+    totalWeight = result.totalWeight;
+  }
+
+  /**
+   * cutTouchedEdges() removes every touched edge from the tree, and brings
+   * the tree's vertex set up to date.  The endpoints of the cut edges
+   * become the seeds of reconnect().
+   */
+
+  private void cutTouchedEdges() {
+    batch.seedCount = 0;
+    for (int i = 0; i < batch.edgeCount; i++) {
+      int a = batch.edgeU[i];
+      int b = batch.edgeV[i];
+      if (a != b && tree.isEdge(a, b)) {
+        totalWeight -= tree.weight(a, b);
+        tree.removeEdge(a, b);
+        batch.addSeed(a);
+        batch.addSeed(b);
+      }
+    }
+
+    for (int i = 0; i < batch.vertexCount; i++) {
+      int id = batch.vertexList[i];
+      if (graph.isVertex(vertices[id])) {
+        tree.addVertex(id);
+      } else {
+        // Every edge it had was touched, so it has no tree edges left.
+        tree.removeVertex(id);
+      }
+    }
+  }
+
+  /**
+   * reconnect() joins the pieces left by cutTouchedEdges() with the lightest
+   * untouched graph edges between them.
+   *
+   * The pieces are explored from the seeds in step, one vertex per piece in
+   * turn, merging pieces that turn out to be one.  Once at most one piece
+   * is still growing, every other piece is known completely; that last
+   * piece, together with every vertex never reached, is treated as one
+   * "rest" piece.  No untouched edge joins a reached piece to a tree the
+   * batch never cut, so an edge out of a finished piece to an unlabeled
+   * vertex always leads into the rest.
+   */
+
+  private void reconnect() {
+    int pieces = batch.seedCount;
+    if (pieces == 0) {
+      return;
+    }
+    ensureScratch(nextId);
+    stamp++;
+
+    // Each piece keeps its own queue; every vertex it reached stays in it.
+    int[][] queues = new int[pieces][];
+    int[] heads = new int[pieces];
+    int[] tails = new int[pieces];
+    DisjointSets merged = new DisjointSets(pieces);
+    for (int p = 0; p < pieces; p++) {
+      queues[p] = new int[4];
+      int seed = batch.seeds[p];
+      if (tree.isVertex(seed) && mark[seed] != stamp) {
+        mark[seed] = stamp;
+        label[seed] = p;
+        queues[p][tails[p]++] = seed;
+      }
+    }
+
+    int growing = growingPieces(merged, heads, tails);
+    while (growing > 1) {
+      for (int p = 0; p < pieces; p++) {
+        if (heads[p] == tails[p]) {
+          continue;
+        }
+        int x = queues[p][heads[p]++];
+        for (int j = 0; j < tree.degree(x); j++) {
+          int y = tree.neighbor(x, j);
+          if (mark[y] != stamp) {
+            mark[y] = stamp;
+            label[y] = p;
+            if (tails[p] == queues[p].length) {
+              queues[p] = Arrays.copyOf(queues[p], tails[p] * 2);
+            }
+            queues[p][tails[p]++] = y;
+          } else {
+            int root1 = merged.find(label[y]);
+            int root2 = merged.find(p);
+            if (root1 != root2) {
+              merged.union(root1, root2);
+            }
+          }
+        }
+      }
+      growing = growingPieces(merged, heads, tails);
+    }
+
+    // The piece still growing, if any, joins the rest.
+    int rest = pieces;
+    for (int p = 0; p < pieces; p++) {
+      if (heads[p] != tails[p]) {
+        rest = merged.find(p);
+      }
+    }
+
+    // Collect the untouched edges leaving each finished piece.
+    CrossingEdges crossing = new CrossingEdges(merged, rest);
+    for (int p = 0; p < pieces; p++) {
+      if (merged.find(p) == rest) {
+        continue;
+      }
+      for (int k = 0; k < tails[p]; k++) {
+        crossing.source = queues[p][k];
+        crossing.sourcePiece = merged.find(p);
+        graph.forEachNeighbor(vertices[crossing.source], crossing);
+      }
+    }
+
+    // Kruskal over the pieces.
+    Arrays.sort(crossing.order, 0, crossing.count);
+    DisjointSets joined = new DisjointSets(pieces + 1);
+    for (int k = 0; k < crossing.count; k++) {
+      int edge = (int) crossing.order[k];
+      int root1 = joined.find(crossing.fromPieces[edge]);
+      int root2 = joined.find(crossing.toPieces[edge]);
+      if (root1 != root2) {
+        joined.union(root1, root2);
+        int weight = (int) (crossing.order[k] >> 32);
+        tree.addEdge(crossing.froms[edge], crossing.tos[edge], weight);
+        totalWeight += weight;
+      }
+    }
+  }
+
+  /**
+   * growingPieces() returns the number of distinct pieces that still have
+   * vertices to explore.
+   */
+
+  private static int growingPieces(DisjointSets merged, int[] heads, int[] tails) {
+    int growing = 0;
+    int first = -1;
+    for (int p = 0; p < heads.length; p++) {
+      if (heads[p] != tails[p]) {
+        int root = merged.find(p);
+        if (first == -1) {
+          first = root;
+          growing = 1;
+        } else if (root != first) {
+          return 2;
+        }
+      }
+    }
+    return growing;
+  }
+
+  /**
+   * CrossingEdges collects the untouched graph edges from "source", in the
+   * finished piece "sourcePiece", to any other piece.
+   */
+
+  private class CrossingEdges implements NeighborVisitor {
+    private final DisjointSets merged;
+    private final int rest;
+    private int source;
+    private int sourcePiece;
+
+    private int[] froms = new int[16];
+    private int[] tos = new int[16];
+    private int[] fromPieces = new int[16];
+    private int[] toPieces = new int[16];
+    //Weight in the high half, edge index in the low half.
+    private long[] order = new long[16];
+    private int count;
+
+    private CrossingEdges(DisjointSets merged, int rest) {
+      this.merged = merged;
+      this.rest = rest;
+    }
+
+    public void visit(Object neighbor, int weight) {
+      Entry entry = vertexIds.find(neighbor);
+      if (entry == null) {
+        return;
+      }
+      int target = (int) entry.value();
+      int targetPiece = mark[target] == stamp ? merged.find(label[target]) : rest;
+      if (targetPiece == sourcePiece || batch.isTouched(source, target)) {
+        return;
+      }
+      // An edge between two finished pieces is seen from both; keep one.
+      if (targetPiece != rest && target < source) {
+        return;
+      }
+
+      if (count == order.length) {
+        int capacity = count * 2;
+        froms = Arrays.copyOf(froms, capacity);
+        tos = Arrays.copyOf(tos, capacity);
+        fromPieces = Arrays.copyOf(fromPieces, capacity);
+        toPieces = Arrays.copyOf(toPieces, capacity);
+        order = Arrays.copyOf(order, capacity);
+      }
+      froms[count] = source;
+      tos[count] = target;
+      fromPieces[count] = sourcePiece;
+      toPieces[count] = targetPiece;
+      order[count] = ((long) weight << 32) | count;
+      count++;
+    }
+  }
+
+  /**
+   * insertTouchedEdges() inserts every touched edge that is still in the
+   * graph, with its current weight.
+   */
+
+  private void insertTouchedEdges() {
+    for (int i = 0; i < batch.edgeCount; i++) {
+      int a = batch.edgeU[i];
+      int b = batch.edgeV[i];
+      Object u = vertices[a];
+      Object v = vertices[b];
+      if (a != b && graph.isEdge(u, v)) {
+        insert(a, b, graph.weight(u, v));
+      }
+    }
+  }
+
+  /**
+   * insert() adds the edge (a, b) to the forest if it joins two trees, or
+   * swaps it for the heaviest edge on the tree path from a to b if that
+   * edge is heavier.
+   *
+   * Running time:  O(size of the tree holding a).
+   */
+
+  private void insert(int a, int b, int weight) {
+    ensureScratch(nextId);
+    stamp++;
+
+    // Breadth-first search from a, until b is reached.
+    int head = 0;
+    int tail = 0;
+    mark[a] = stamp;
+    queue[tail++] = a;
+    while (head < tail && mark[b] != stamp) {
+      int x = queue[head++];
+      for (int j = 0; j < tree.degree(x); j++) {
+        int y = tree.neighbor(x, j);
+        if (mark[y] != stamp) {
+          mark[y] = stamp;
+          parent[y] = x;
+          parentWeight[y] = tree.neighborWeight(x, j);
+          queue[tail++] = y;
+        }
+      }
+    }
+
+    if (mark[b] != stamp) {
+      tree.addEdge(a, b, weight);
+      totalWeight += weight;
+      return;
+    }
+
+    int heaviest = b;
+    for (int x = b; x != a; x = parent[x]) {
+      if (parentWeight[x] > parentWeight[heaviest]) {
+        heaviest = x;
+      }
+    }
+    if (parentWeight[heaviest] > weight) {
+      totalWeight -= parentWeight[heaviest];
+      tree.removeEdge(heaviest, parent[heaviest]);
+      tree.addEdge(a, b, weight);
+      totalWeight += weight;
+    }
+  }
+
+  /**
+   * releaseRemovedVertices() frees the ids of touched vertices that are no
+   * longer in the graph.
+   */
+
+  private void releaseRemovedVertices() {
+    for (int i = 0; i < batch.vertexCount; i++) {
+      int id = batch.vertexList[i];
+      Object vertex = vertices[id];
+      if (vertex != null && !graph.isVertex(vertex)) {
+        tree.removeVertex(id);
+        vertexIds.remove(vertex);
+        vertices[id] = null;
+        if (freeCount == freeIds.length) {
+          freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+      }
+    }
+  }
+
+  /**
+   * id() returns the id of "vertex", giving it one if it has none.
+   */
+
+  private int id(Object vertex) {
+    Entry entry = vertexIds.find(vertex);
+    if (entry != null) {
+      return (int) entry.value();
+    }
+
+    int id;
+    if (freeCount > 0) {
+      id = freeIds[--freeCount];
+    } else {
+      id = nextId++;
+      if (id == vertices.length) {
+        vertices = Arrays.copyOf(vertices, id * 2);
+      }
+    }
+    vertices[id] = vertex;
+    vertexIds.insert(vertex, id);
+    return id;
+  }
+
+  private void ensureScratch(int capacity) {
+    if (capacity > mark.length) {
+      int size = Math.max(capacity, mark.length * 2);
+      mark = Arrays.copyOf(mark, size);
+      label = Arrays.copyOf(label, size);
+      parent = Arrays.copyOf(parent, size);
+      parentWeight = Arrays.copyOf(parentWeight, size);
+      queue = Arrays.copyOf(queue, size);
+    }
+  }
+
+  /**
+   * A Batch collects the vertices and edges named by a run of changes, each
+   * once, as ids.
+   */
+
+  private class Batch implements GraphListener {
+    private int[] edgeU = new int[16];
+    private int[] edgeV = new int[16];
+    private int edgeCount;
+    //Packed (smaller id, larger id) -> Boolean.TRUE for each touched edge.
+    private final LongHashTable touched = new LongHashTable();
+
+    private int[] vertexList = new int[16];
+    private int vertexCount;
+
+    private int[] seeds = new int[16];
+    private int seedCount;
+
+    public void vertexAdded(Object vertex) {
+      addVertex(id(vertex));
+    }
+
+    public void vertexRemoved(Object vertex) {
+      addVertex(id(vertex));
+    }
+
+    public void edgeAdded(Object u, Object v, int weight) {
+      addEdge(id(u), id(v));
+    }
+
+    public void edgeRemoved(Object u, Object v, int weight) {
+      addEdge(id(u), id(v));
+    }
+
+    public void weightChanged(Object u, Object v, int oldWeight, int newWeight) {
+      addEdge(id(u), id(v));
+    }
+
+    private boolean isTouched(int a, int b) {
+      return touched.find(key(a, b)) != null;
+    }
+
+    private void addEdge(int a, int b) {
+      if (touched.insert(key(a, b), Boolean.TRUE) != null) {
+        return;
+      }
+      if (edgeCount == edgeU.length) {
+        edgeU = Arrays.copyOf(edgeU, edgeCount * 2);
+        edgeV = Arrays.copyOf(edgeV, edgeCount * 2);
+      }
+      edgeU[edgeCount] = a;
+      edgeV[edgeCount] = b;
+      edgeCount++;
+    }
+
+    private void addVertex(int id) {
+      if (vertexCount == vertexList.length) {
+        vertexList = Arrays.copyOf(vertexList, vertexCount * 2);
+      }
+      vertexList[vertexCount++] = id;
+    }
+
+    private void addSeed(int id) {
+      if (seedCount == seeds.length) {
+        seeds = Arrays.copyOf(seeds, seedCount * 2);
+      }
+      seeds[seedCount++] = id;
+    }
+
+    private void clear() {
+      edgeCount = 0;
+      vertexCount = 0;
+      seedCount = 0;
+      touched.makeEmpty();
+    }
+
+    private long key(int a, int b) {
+      return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+  }
+}
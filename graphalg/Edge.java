@@ -13,6 +13,20 @@ public class Edge implements Comparable<Edge> {
         internalVert1 = u;
         internalVert2 = v;
     }
+
+    // first endpoint
+    public Object u() {
+        return internalVert1;
+    }
+
+    // second endpoint
+    public Object v() {
+        return internalVert2;
+    }
+
+    public int weight() {
+        return weight;
+    }
     
     //Implements comparareTo to enable sorting of Edges by weight
     @Override
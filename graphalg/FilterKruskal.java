@@ -0,0 +1,281 @@
+/* FilterKruskal.java */
+
+package graphalg;
+
+import graph.*;
+import set.DisjointSets;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The FilterKruskal class computes minimum spanning trees with the
+ * Filter-Kruskal algorithm, spreading the work over a ForkJoinPool.
+ *
+ * Plain Kruskal sorts every edge, though on a dense graph most heavy edges
+ * join vertices the lighter edges have already connected.  Filter-Kruskal
+ * instead splits the edges around a pivot weight, solves the light half
+ * first, then throws away every heavy edge whose endpoints are already in
+ * one tree before going on with the heavy half.  Small pieces are finished
+ * with ordinary Kruskal.  Splitting and filtering are done in parallel, one
+ * block of edges per task; the union-find steps stay on the calling thread.
+ * The result is the same tree Kruskal.minSpanEdges() finds.
+ */
+
+public class FilterKruskal {
+
+  //Pieces this small are sorted and finished with plain Kruskal.
+  private static final int KRUSKAL_THRESHOLD = 1 << 12;
+  //Ranges this small are split or filtered on the calling thread.
+  private static final int PARALLEL_THRESHOLD = 1 << 15;
+  //Edges handled by one task when a range is split or filtered.
+  private static final int BLOCK_SIZE = 1 << 13;
+
+  private final ForkJoinPool pool;
+  private final int[] sources;
+  private final int[] targets;
+  //Sort keys:  weight in the high half, edge index in the low half.
+  private final long[] order;
+  private final long[] scratch;
+  private final DisjointSets forest;
+
+  private final int[] us;
+  private final int[] vs;
+  private final int[] weights;
+  private int treeEdges;
+  private long totalWeight;
+
+  private FilterKruskal(ForkJoinPool pool, Kruskal.EdgeCollector edges, int vertexCount) {
+    this.pool = pool;
+    sources = edges.sources;
+    targets = edges.targets;
+    order = edges.order;
+    scratch = new long[edges.edges];
+    forest = new DisjointSets(vertexCount);
+    int treeSize = Math.max(vertexCount - 1, 0);
+    us = new int[treeSize];
+    vs = new int[treeSize];
+    weights = new int[treeSize];
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the graph g, computed on the common ForkJoinPool.  The original graph
+   * g is NOT changed.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @return A newly constructed WUGraph representing the MST of g.
+   */
+
+  public static WUGraph minSpanTree(GraphView g) {
+    return minSpanEdges(g, ForkJoinPool.commonPool()).toWUGraph();
+  }
+
+  /**
+   * minSpanEdges() returns the edges of the minimum spanning tree of the
+   * graph g, in order of increasing weight, computed with the threads of
+   * "pool".  The original graph g is NOT changed, and is read only by the
+   * calling thread.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @param pool The pool that splits and filters edges.
+   * @return The tree edges of g.
+   */
+
+  public static MSTResult minSpanEdges(GraphView g, ForkJoinPool pool) {
+    Object[] realVerts = g.getVertices();
+    Kruskal.EdgeCollector edges = Kruskal.collectEdges(g, realVerts);
+
+    FilterKruskal run = new FilterKruskal(pool, edges, realVerts.length);
+    run.filterKruskal(0, edges.edges);
+    return new MSTResult(realVerts, run.us, run.vs, run.weights, run.treeEdges,
+                         run.totalWeight);
+  }
+
+  /**
+   * filterKruskal() adds to the tree every edge of order[lo ... hi-1] that
+   * belongs in it.  Every lighter edge must already have been considered.
+   */
+
+  private void filterKruskal(int lo, int hi) {
+    while (treeEdges != us.length && hi - lo > KRUSKAL_THRESHOLD) {
+      int mid = split(lo, hi, pivot(lo, hi));
+      if (mid == lo || mid == hi) {
+        //Every key fell on one side; sorting the piece is the sure way out.
+        break;
+      }
+      filterKruskal(lo, mid);
+      hi = filter(mid, hi);
+      lo = mid;
+    }
+    kruskal(lo, hi);
+  }
+
+  /**
+   * kruskal() sorts order[lo ... hi-1] and runs plain Kruskal over it.
+   */
+
+  private void kruskal(int lo, int hi) {
+    Arrays.sort(order, lo, hi);
+    for (int k = lo; k < hi && treeEdges != us.length; k++) {
+      int edge = (int) order[k];
+      int root1 = forest.find(sources[edge]);
+      int root2 = forest.find(targets[edge]);
+
+      if (root1 != root2) {
+        forest.union(root1, root2);
+        us[treeEdges] = sources[edge];
+        vs[treeEdges] = targets[edge];
+        weights[treeEdges] = (int) (order[k] >> 32);
+        totalWeight += weights[treeEdges];
+        treeEdges++;
+      }
+    }
+  }
+
+  /**
+   * pivot() returns the median of three keys sampled from order[lo ... hi-1].
+   */
+
+  private long pivot(int lo, int hi) {
+    long a = order[lo];
+    long b = order[lo + (hi - lo) / 2];
+    long c = order[hi - 1];
+    if (a > b) {
+      long t = a;
+      a = b;
+      b = t;
+    }
+    if (b > c) {
+      b = c;
+    }
+    return Math.max(a, b);
+  }
+
+  /**
+   * split() reorders order[lo ... hi-1] so that keys below "pivot" come
+   * first, and returns the index of the first key that is not.
+   */
+
+  private int split(int lo, int hi, long pivot) {
+    return pack(lo, hi, pivot, false);
+  }
+
+  /**
+   * filter() moves the edges of order[lo ... hi-1] whose endpoints are not
+   * yet connected to the front of the range, and returns the index just
+   * past them.  The others can never join the tree and are dropped.
+   */
+
+  private int filter(int lo, int hi) {
+    return pack(lo, hi, 0, true);
+  }
+
+  /**
+   * keep() tells pack() which side a key belongs on.
+   */
+
+  private boolean keep(long key, long pivot, boolean filtering) {
+    if (filtering) {
+      int edge = (int) key;
+      return forest.root(sources[edge]) != forest.root(targets[edge]);
+    }
+    return key < pivot;
+  }
+
+  /**
+   * pack() moves the keys of order[lo ... hi-1] that keep() accepts to the
+   * front of the range, the rest behind them, and returns the index of the
+   * first key not accepted.  Large ranges are cut into blocks, each of which
+   * a task sorts into kept and rejected keys in "scratch"; the blocks are
+   * then copied back in order.
+   */
+
+  private int pack(int lo, int hi, long pivot, boolean filtering) {
+    if (hi - lo < PARALLEL_THRESHOLD) {
+      int kept = lo;
+      int rejected = hi;
+      for (int k = lo; k < hi; k++) {
+        if (keep(order[k], pivot, filtering)) {
+          scratch[kept++] = order[k];
+        } else {
+          scratch[--rejected] = order[k];
+        }
+      }
+      System.arraycopy(scratch, lo, order, lo, hi - lo);
+      return kept;
+    }
+
+    int blocks = (hi - lo + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    int[] keptCounts = new int[blocks];
+    pool.invoke(new PackBlocks(lo, hi, 0, blocks, pivot, filtering, keptCounts));
+
+    // Kept keys of each block first, then the rejected keys of each block.
+    int mid = lo;
+    for (int b = 0; b < blocks; b++) {
+      mid += keptCounts[b];
+    }
+    int kept = lo;
+    int rejected = mid;
+    for (int b = 0; b < blocks; b++) {
+      int blockLo = lo + b * BLOCK_SIZE;
+      int blockHi = Math.min(blockLo + BLOCK_SIZE, hi);
+      int count = keptCounts[b];
+      System.arraycopy(scratch, blockLo, order, kept, count);
+      System.arraycopy(scratch, blockLo + count, order, rejected, blockHi - blockLo - count);
+      kept += count;
+      rejected += blockHi - blockLo - count;
+    }
+    return mid;
+  }
+
+  /**
+   * A PackBlocks task packs blocks firstBlock ... lastBlock-1 of a range,
+   * forking halves until one block is left.  Each block's kept keys go to
+   * the front of its own part of "scratch", its rejected keys to the back.
+   */
+
+  @SuppressWarnings("serial")
+  private class PackBlocks extends RecursiveAction {
+    private final int lo;
+    private final int hi;
+    private final int firstBlock;
+    private final int lastBlock;
+    private final long pivot;
+    private final boolean filtering;
+    private final int[] keptCounts;
+
+    private PackBlocks(int lo, int hi, int firstBlock, int lastBlock, long pivot,
+                       boolean filtering, int[] keptCounts) {
+      this.lo = lo;
+      this.hi = hi;
+      this.firstBlock = firstBlock;
+      this.lastBlock = lastBlock;
+      this.pivot = pivot;
+      this.filtering = filtering;
+      this.keptCounts = keptCounts;
+    }
+
+    protected void compute() {
+      if (lastBlock - firstBlock > 1) {
+        int middle = (firstBlock + lastBlock) >>> 1;
+        invokeAll(new PackBlocks(lo, hi, firstBlock, middle, pivot, filtering, keptCounts),
+                  new PackBlocks(lo, hi, middle, lastBlock, pivot, filtering, keptCounts));
+        return;
+      }
+
+      int blockLo = lo + firstBlock * BLOCK_SIZE;
+      int blockHi = Math.min(blockLo + BLOCK_SIZE, hi);
+      int kept = blockLo;
+      int rejected = blockHi;
+      for (int k = blockLo; k < blockHi; k++) {
+        if (keep(order[k], pivot, filtering)) {
+          scratch[kept++] = order[k];
+        } else {
+          scratch[--rejected] = order[k];
+        }
+      }
+      keptCounts[firstBlock] = kept - blockLo;
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/* IndexedDaryHeap.java */
+
+package graphalg;
+
+/**
+ * An IndexedDaryHeap is a min-heap of the ints 0 ... capacity-1, each with
+ * an int priority.  It knows where every item sits, so an item's priority
+ * can be lowered in place (decrease-key) instead of inserting it again.
+ * Each node has D children, which makes the heap shallower than a binary
+ * heap:  decreaseKey() climbs fewer levels, and removeMin() compares more
+ * children per level but touches fewer cache lines overall.
+ *
+ * All storage is in three int arrays allocated once, so no operation
+ * allocates.
+ */
+
+class IndexedDaryHeap {
+
+  private static final int D = 4;
+
+  //heap[i] is the item at heap position i.
+  private final int[] heap;
+  //position[item] is the item's heap position, or -1 if it is not in the heap.
+  private final int[] position;
+  private final int[] priority;
+  private int size;
+
+  /**
+   * IndexedDaryHeap() constructs an empty heap for items 0 ... capacity-1.
+   */
+
+  IndexedDaryHeap(int capacity) {
+    heap = new int[capacity];
+    position = new int[capacity];
+    priority = new int[capacity];
+    for (int i = 0; i < capacity; i++) {
+      position[i] = -1;
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  boolean contains(int item) {
+    return position[item] >= 0;
+  }
+
+  /**
+   * priority() returns the priority "item" was last given.
+   */
+
+  int priority(int item) {
+    return priority[item];
+  }
+
+  /**
+   * insert() adds "item", which must not be in the heap, with priority "p".
+   *
+   * Running time:  O(log V / log D).
+   */
+
+  void insert(int item, int p) {
+    priority[item] = p;
+    position[item] = size;
+    heap[size] = item;
+    size++;
+    siftUp(size - 1);
+  }
+
+  /**
+   * decreaseKey() lowers the priority of "item", which must be in the heap,
+   * to "p".  "p" must not be greater than its current priority.
+   *
+   * Running time:  O(log V / log D).
+   */
+
+  void decreaseKey(int item, int p) {
+    priority[item] = p;
+    siftUp(position[item]);
+  }
+
+  /**
+   * removeMin() removes and returns the item of least priority.  The heap
+   * must not be empty.
+   *
+   * Running time:  O(D log V / log D).
+   */
+
+  int removeMin() {
+    int min = heap[0];
+    position[min] = -1;
+    size--;
+    if (size > 0) {
+      heap[0] = heap[size];
+      position[heap[0]] = 0;
+      siftDown(0);
+    }
+    return min;
+  }
+
+  private void siftUp(int i) {
+    int item = heap[i];
+    int p = priority[item];
+    while (i > 0) {
+      int parent = (i - 1) / D;
+      int parentItem = heap[parent];
+      if (priority[parentItem] <= p) {
+        break;
+      }
+      heap[i] = parentItem;
+      position[parentItem] = i;
+      i = parent;
+    }
+    heap[i] = item;
+    position[item] = i;
+  }
+
+  private void siftDown(int i) {
+    int item = heap[i];
+    int p = priority[item];
+    while (true) {
+      int first = i * D + 1;
+      if (first >= size) {
+        break;
+      }
+      int last = Math.min(first + D, size);
+      int best = first;
+      for (int c = first + 1; c < last; c++) {
+        if (priority[heap[c]] < priority[heap[best]]) {
+          best = c;
+        }
+      }
+      if (priority[heap[best]] >= p) {
+        break;
+      }
+      heap[i] = heap[best];
+      position[heap[i]] = i;
+      i = best;
+    }
+    heap[i] = item;
+    position[item] = i;
+  }
+}
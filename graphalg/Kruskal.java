@@ -2,12 +2,12 @@
 
 package graphalg;
 
+import dict.Entry;
 import dict.HashTableChained;
 import graph.*;
-import list.LinkedQueue;
-import list.QueueEmptyException;
-import static list.sorts.mergeSort;
+import static list.sorts.radixSortHigh;
 import set.DisjointSets;
+import java.util.Arrays;
 
 /**
  * The Kruskal class contains the method minSpanTree(), which implements
@@ -18,97 +18,201 @@ public class Kruskal {
 
   /**
    * minSpanTree() returns a WUGraph that represents the minimum spanning tree
-   * of the WUGraph g.  The original WUGraph g is NOT changed.
+   * of the graph g.  The original graph g is NOT changed.  g may be a WUGraph
+   * or any other GraphView, such as a snapshot of a graph that is still
+   * being updated.
    *
    * @param g The weighted, undirected graph whose MST we want to compute.
    * @return A newly constructed WUGraph representing the MST of g.
    */
 
-  public static WUGraph minSpanTree(WUGraph g) {
+  public static WUGraph minSpanTree(GraphView g) {
+    return minSpanEdges(g).toWUGraph();
+  }
+
+  /**
+   * minSpanEdges() computes the minimum spanning tree of the graph g, like
+   * minSpanTree(), but returns only its edges and total weight as flat
+   * arrays, without building a graph.  Callers that just walk the tree
+   * edges should use this; it needs no hash table entries or list nodes for
+   * the tree.  The original graph g is NOT changed.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @return The tree edges of g, in order of increasing weight.
+   */
+
+  public static MSTResult minSpanEdges(GraphView g) {
 
-    // New graph to fill with MST & return
-    WUGraph newGraph = new WUGraph();
-    
     // real verticies from old graph
     Object[] realVerts = g.getVertices();
 
+    // unsorted edges, each non-self edge once
+    EdgeCollector collector = collectEdges(g, realVerts);
+
+    //sort the edges by weight; indices already ascend, so a radix sort on
+    //the weight alone leaves the keys fully sorted
+    int edges = collector.edges;
+    long[] order = collector.order;
+    radixSortHigh(order, 0, edges);
+
+    DisjointSets forest = new DisjointSets(realVerts.length);
+
+    int treeSize = Math.max(realVerts.length - 1, 0);
+    int[] us = new int[treeSize];
+    int[] vs = new int[treeSize];
+    int[] weights = new int[treeSize];
+    int treeEdges = 0;
+    long totalWeight = 0;
+
+    // while tree not spanning and unprocessed edges remain; keep iterating
+    for (int k = 0; k < edges && treeEdges != treeSize; k++) {
+      int edge = (int) order[k];
+      int root1 = forest.find(collector.sources[edge]);
+      int root2 = forest.find(collector.targets[edge]);
+
+      // roots are unique, combine sets and add edge
+      if (root1 != root2) {
+        forest.union(root1, root2);
+        us[treeEdges] = collector.sources[edge];
+        vs[treeEdges] = collector.targets[edge];
+        weights[treeEdges] = (int) (order[k] >> 32);
+        totalWeight += weights[treeEdges];
+        treeEdges++;
+      }
+    }
+
+    return new MSTResult(realVerts, us, vs, weights, treeEdges, totalWeight);
+  }
+
+  /**
+   * collectEdges() numbers the vertices of g by their position in
+   * "realVerts" and records each non-self edge of g once.
+   */
+
+  static EdgeCollector collectEdges(GraphView g, Object[] realVerts) {
+
     //hashtable to map back and forth from realVerts list : uniqueInt <-> vert
-    HashTableChained vertexHashTable = new HashTableChained();
+    HashTableChained vertexHashTable = new HashTableChained(realVerts.length);
+
+    EdgeCollector collector = new EdgeCollector(vertexHashTable, g.edgeCount());
 
-    // unsorted edges init
-    LinkedQueue edgeQueue = new LinkedQueue(); 
-    
-    // for each vertex, check its neighbors, and add those edges to queue
+    // for each vertex, check its neighbors, and add those edges to the arrays
     for (int i = 0; i < realVerts.length; i++) {
-        
-      Object realVert = realVerts[i];
 
-      // transfer to vert to result graph, no matter what vertex count will be same
-      newGraph.addVertex(realVert);  
+      Object realVert = realVerts[i];
 
-      // add to hashtable too, keep up to date for preventing redundant adds in next inner loop
+      // add to hashtable first, keep up to date for preventing redundant adds
       vertexHashTable.insert(realVert, i);
-      
 
       // for each vertex's neighbor, add edge from parent vert + neighbor, weight
-      Neighbors vertNeighborWrapper = g.getNeighbors(realVert);
-
-      int[] vertNeighborWeights = vertNeighborWrapper.weightList;
-      Object[] vertNeighborList = vertNeighborWrapper.neighborList;
-
-      for (int j = 0; j < vertNeighborWeights.length; j++) {
-          
-        Object vertNeighbor = vertNeighborList[j];
-
-        // Check against existing hashtable of verts and dont add if it exists
-        // if a vertexNeighbor was already added to newGraph, we don't need to add it again; its been thoroughly added 
-        if (vertexHashTable.find(vertNeighbor) != null) {
-          
-          Edge newEdge = new Edge(realVert, vertNeighbor, vertNeighborWeights[j]);
-          edgeQueue.enqueue(newEdge);
-        }     
+      collector.source = i;
+      g.forEachNeighbor(realVert, collector);
+    }
+    return collector;
+  }
+
+  /**
+   * EdgeCollector records an edge for each neighbor of "source" that was
+   * already numbered, so each undirected edge is recorded exactly once.
+   * Edges go into parallel arrays, with a sort key packing each edge's
+   * weight above its index.
+   */
+
+  static class EdgeCollector implements NeighborVisitor {
+    private final HashTableChained vertexHashTable;
+    int[] sources;
+    int[] targets;
+    long[] order;
+    int edges;
+    private int source;
+
+    private EdgeCollector(HashTableChained vertexHashTable, int edgeEstimate) {
+      this.vertexHashTable = vertexHashTable;
+      sources = new int[edgeEstimate];
+      targets = new int[edgeEstimate];
+      order = new long[edgeEstimate];
+    }
+
+    public void visit(Object neighbor, int weight) {
+      // if a vertexNeighbor was already numbered, this edge was seen from there
+      Entry entry = vertexHashTable.find(neighbor);
+      if (entry == null) {
+        return;
+      }
+      int target = (int) entry.value();
+      // never add a self-edge, in MST it's always redundant
+      if (target == source) {
+        return;
       }
+
+      if (edges == order.length) {
+        int capacity = Math.max(16, edges * 2);
+        sources = Arrays.copyOf(sources, capacity);
+        targets = Arrays.copyOf(targets, capacity);
+        order = Arrays.copyOf(order, capacity);
+      }
+      sources[edges] = source;
+      targets[edges] = target;
+      // weight in the high half sorts signed weights correctly; the low
+      // half carries the edge index back out
+      order[edges] = ((long) weight << 32) | edges;
+      edges++;
     }
+  }
 
-    //sort the edgequeue by weight
-    mergeSort(edgeQueue);
+  /**
+   * minSpanTree() returns an IntWUGraph that represents the minimum spanning
+   * tree of the IntWUGraph g.  The original IntWUGraph g is NOT changed.
+   * Vertex ids are used directly as union-find elements, and edges are
+   * ordered by sorting primitive (weight, edge index) keys, so no Edge or
+   * queue node is allocated per edge.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @return A newly constructed IntWUGraph representing the MST of g.
+   */
 
+  public static IntWUGraph minSpanTree(IntWUGraph g) {
+
+    IntWUGraph newGraph = new IntWUGraph(g.idCapacity());
+    int[] verts = g.getVertices();
+
+    // each non-self edge once, taken from its smaller endpoint
+    int[] sources = new int[g.edgeCount()];
+    int[] targets = new int[g.edgeCount()];
+    long[] order = new long[g.edgeCount()];
+    int edges = 0;
+
+    for (int i = 0; i < verts.length; i++) {
+      int u = verts[i];
+      newGraph.addVertex(u);
+
+      for (int j = 0; j < g.degree(u); j++) {
+        int v = g.neighbor(u, j);
+        if (u < v) {
+          sources[edges] = u;
+          targets[edges] = v;
+          // weight in the high half sorts signed weights correctly; the low
+          // half carries the edge index back out
+          order[edges] = ((long) g.neighborWeight(u, j) << 32) | edges;
+          edges++;
+        }
+      }
+    }
 
-    DisjointSets forest = new DisjointSets(realVerts.length);
+    radixSortHigh(order, 0, edges);
+
+    DisjointSets forest = new DisjointSets(g.idCapacity());
 
     // while tree not spanning and unprocessed edges remain; keep iterating
-    while (newGraph.edgeCount() != realVerts.length-1 && !edgeQueue.isEmpty()) {
-       
-      try {
-        Edge lowestEdge = (Edge) edgeQueue.dequeue();
-
-        // get parent verts of lowest edge
-        Object realVert1 = lowestEdge.internalVert1;
-        Object realVert2 = lowestEdge.internalVert2;
- 
-        // get unique int representations
-        int realInt1 = (int) vertexHashTable.find(realVert1).value();
-        int realInt2 = (int) vertexHashTable.find(realVert2).value(); 
-       
-        // never add a self-edge, in MST it's always redundant
-        if (realInt1 != realInt2){ 
-
-          // get two verticies int roots
-          int root1 = forest.find(realInt1);
-          int root2 = forest.find(realInt2); 
-
-          // roots are unique, combine sets and add edge
-          if (root1 != root2) {
-            forest.union(root1, root2);
-            newGraph.addEdge(realVert1, realVert2, lowestEdge.weight);
-            
-          }
-        } 
- 
-      } catch (QueueEmptyException e) {
-        break;
+    for (int k = 0; k < edges && newGraph.edgeCount() != verts.length - 1; k++) {
+      int edge = (int) order[k];
+      int root1 = forest.find(sources[edge]);
+      int root2 = forest.find(targets[edge]);
+
+      if (root1 != root2) {
+        forest.union(root1, root2);
+        newGraph.addEdge(sources[edge], targets[edge], (int) (order[k] >> 32));
       }
-
     }
 
     return newGraph;
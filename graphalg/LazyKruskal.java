@@ -0,0 +1,179 @@
+/* LazyKruskal.java */
+
+package graphalg;
+
+import graph.*;
+import set.DisjointSets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A LazyKruskal runs Kruskal's algorithm one tree edge at a time, as an
+ * Iterator over the edges of the minimum spanning tree in order of
+ * increasing weight.
+ *
+ * Instead of sorting every edge up front, it arranges the edge keys into a
+ * binary min-heap in place, which takes O(|E|) time, and pops the lightest
+ * edge only when the next tree edge is asked for.  On a dense graph the
+ * tree is usually complete after a small prefix of the lightest edges, and
+ * the heavy edges are never ordered at all; a consumer that stops early,
+ * or only wants the lightest few tree edges, saves even more.  Iteration
+ * ends when the tree spans the graph or the edges run out.
+ *
+ * The iterator reads only the arrays it built when it was constructed, so
+ * later changes to the graph do not affect it.
+ */
+
+public class LazyKruskal implements Iterator<Edge> {
+
+  private final Object[] realVerts;
+  private final int[] sources;
+  private final int[] targets;
+  //Heap of sort keys:  weight in the high half, edge index in the low half.
+  private final long[] heap;
+  private int heapSize;
+
+  private final DisjointSets forest;
+  private final int treeSize;
+  private int treeEdges;
+
+  //Key of the tree edge found by hasNext() and not yet returned.
+  private long pending;
+  private boolean hasPending;
+
+  /**
+   * LazyKruskal() collects the edges of the graph g and heapifies them.
+   * The original graph g is NOT changed.
+   *
+   * Running time:  O(|V| + |E|).
+   */
+
+  public LazyKruskal(GraphView g) {
+    realVerts = g.getVertices();
+    Kruskal.EdgeCollector edges = Kruskal.collectEdges(g, realVerts);
+    sources = edges.sources;
+    targets = edges.targets;
+    heap = edges.order;
+    heapSize = edges.edges;
+    forest = new DisjointSets(realVerts.length);
+    treeSize = Math.max(realVerts.length - 1, 0);
+
+    // Bottom-up heap construction.
+    for (int i = heapSize / 2 - 1; i >= 0; i--) {
+      siftDown(i, heap[i]);
+    }
+  }
+
+  /**
+   * minSpanEdges() returns the edges of the minimum spanning tree of the
+   * graph g, in order of increasing weight, ordering only as many edges as
+   * it takes to complete the tree.  The original graph g is NOT changed.
+   *
+   * Running time:  O(|V| + |E| + k log |E|), where k is the number of edges
+   * popped before the tree is complete.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @return The tree edges of g.
+   */
+
+  public static MSTResult minSpanEdges(GraphView g) {
+    LazyKruskal run = new LazyKruskal(g);
+    int[] us = new int[run.treeSize];
+    int[] vs = new int[run.treeSize];
+    int[] weights = new int[run.treeSize];
+    int count = 0;
+    long totalWeight = 0;
+    while (run.advance()) {
+      int edge = (int) run.pending;
+      us[count] = run.sources[edge];
+      vs[count] = run.targets[edge];
+      weights[count] = (int) (run.pending >> 32);
+      totalWeight += weights[count];
+      count++;
+      run.hasPending = false;
+    }
+    return new MSTResult(run.realVerts, us, vs, weights, count, totalWeight);
+  }
+
+  /**
+   * hasNext() returns true if the tree has another edge.  It may pop edges
+   * from the heap to find out.
+   *
+   * Running time:  O(k log |E|), for the k edges popped.
+   */
+
+  public boolean hasNext() {
+    return advance();
+  }
+
+  /**
+   * next() returns the next edge of the minimum spanning tree.
+   *
+   * @throws NoSuchElementException if the tree has no more edges.
+   */
+
+  public Edge next() {
+    if (!advance()) {
+      throw new NoSuchElementException();
+    }
+    int edge = (int) pending;
+    Edge result = new Edge(realVerts[sources[edge]], realVerts[targets[edge]],
+                           (int) (pending >> 32));
+    hasPending = false;
+    return result;
+  }
+
+  /**
+   * advance() pops edges until one joins two trees, and leaves its key in
+   * "pending" until it is returned.  Returns false if the tree is complete
+   * or no edges remain.
+   */
+
+  private boolean advance() {
+    if (hasPending) {
+      return true;
+    }
+
+    // while tree not spanning and unprocessed edges remain; keep popping
+    while (treeEdges != treeSize && heapSize > 0) {
+      long key = heap[0];
+      heapSize--;
+      if (heapSize > 0) {
+        siftDown(0, heap[heapSize]);
+      }
+
+      int edge = (int) key;
+      int root1 = forest.find(sources[edge]);
+      int root2 = forest.find(targets[edge]);
+      if (root1 != root2) {
+        forest.union(root1, root2);
+        treeEdges++;
+        pending = key;
+        hasPending = true;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * siftDown() places "key" at heap position i, or below it, moving smaller
+   * children up.
+   */
+
+  private void siftDown(int i, long key) {
+    int half = heapSize / 2;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+        child++;
+      }
+      if (key <= heap[child]) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = key;
+  }
+}
@@ -0,0 +1,101 @@
+/* MSTEngine.java */
+
+package graphalg;
+
+import graph.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * MSTEngine names the minimum spanning tree algorithms, so a caller can pick
+ * one by configuration, for instance with MSTEngine.valueOf() on a property
+ * value.  Every engine returns a minimum spanning tree of the same total
+ * weight in the same MSTResult format.  KRUSKAL, FILTER_KRUSKAL, BORUVKA and
+ * LAZY_KRUSKAL break ties between equal weights by edge index, so they
+ * return the same tree; PRIM (and AUTO, when it picks PRIM) breaks them by
+ * the order it reaches the edges, so where weights tie its tree may use
+ * different edges.  The parallel engines run on the common ForkJoinPool.
+ *
+ *   KRUSKAL         sorts every edge on the calling thread.
+ *   FILTER_KRUSKAL  sorts only edges that might join the tree; best on
+ *                   dense graphs.
+ *   BORUVKA         merges trees in O(log |V|) parallel rounds without
+ *                   sorting; best on large sparse graphs.
+ *   PRIM            grows one tree with an indexed heap and never collects
+ *                   the edges; best on dense graphs.
+ *   LAZY_KRUSKAL    heapifies the edges and orders only the prefix the
+ *                   tree needs; see LazyKruskal for streaming the edges.
+ *   AUTO            picks PRIM or KRUSKAL by the graph's density.
+ */
+
+public enum MSTEngine {
+
+  KRUSKAL {
+    public MSTResult minSpanEdges(GraphView g) {
+      return Kruskal.minSpanEdges(g);
+    }
+  },
+
+  FILTER_KRUSKAL {
+    public MSTResult minSpanEdges(GraphView g) {
+      return FilterKruskal.minSpanEdges(g, ForkJoinPool.commonPool());
+    }
+  },
+
+  BORUVKA {
+    public MSTResult minSpanEdges(GraphView g) {
+      return Boruvka.minSpanEdges(g, ForkJoinPool.commonPool());
+    }
+  },
+
+  PRIM {
+    public MSTResult minSpanEdges(GraphView g) {
+      return Prim.minSpanEdges(g);
+    }
+  },
+
+  LAZY_KRUSKAL {
+    public MSTResult minSpanEdges(GraphView g) {
+      return LazyKruskal.minSpanEdges(g);
+    }
+  },
+
+  AUTO {
+    public MSTResult minSpanEdges(GraphView g) {
+      return forGraph(g).minSpanEdges(g);
+    }
+  };
+
+  //Edges per vertex from which Prim beats sorting every edge.
+  private static final int PRIM_DEGREE = 16;
+
+  /**
+   * forGraph() returns the engine AUTO uses for the graph g:  PRIM if g
+   * averages at least 16 edges per vertex (or a quarter of all possible
+   * edges, for small graphs), KRUSKAL otherwise.
+   */
+
+  public static MSTEngine forGraph(GraphView g) {
+    long vertices = g.vertexCount();
+    long edges = g.edgeCount();
+    if (edges >= vertices * Math.min(PRIM_DEGREE, Math.max(vertices / 8, 1))) {
+      return PRIM;
+    }
+    return KRUSKAL;
+  }
+
+  /**
+   * minSpanEdges() returns the edges of the minimum spanning tree of the
+   * graph g.  The original graph g is NOT changed.
+   */
+
+  public abstract MSTResult minSpanEdges(GraphView g);
+
+  /**
+   * minSpanTree() returns a new WUGraph that represents the minimum spanning
+   * tree of the graph g.  The original graph g is NOT changed.
+   */
+
+  public WUGraph minSpanTree(GraphView g) {
+    return minSpanEdges(g).toWUGraph();
+  }
+}
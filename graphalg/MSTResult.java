@@ -0,0 +1,75 @@
+/* MSTResult.java */
+
+package graphalg;
+
+import graph.WUGraph;
+
+/**
+ * An MSTResult is a minimum spanning tree (or forest) held in flat arrays
+ * rather than as a graph.  Vertices are numbered 0 ... vertices.length - 1
+ * in the order of "vertices", and tree edge i joins vertices[us[i]] and
+ * vertices[vs[i]] with weight weights[i].  Edges appear in the order the
+ * algorithm chose them, which for Kruskal is by increasing weight.
+ *
+ * The arrays may be longer than edgeCount; entries past it mean nothing.
+ * Since an MSTResult is a simple data structure, all fields are public.
+ */
+
+public class MSTResult {
+  public Object[] vertices;
+  public int[] us;
+  public int[] vs;
+  public int[] weights;
+  public int edgeCount;
+  public long totalWeight;
+
+  public MSTResult(Object[] vertices, int[] us, int[] vs, int[] weights, int edgeCount,
+                   long totalWeight) {
+    this.vertices = vertices;
+    this.us = us;
+    this.vs = vs;
+    this.weights = weights;
+    this.edgeCount = edgeCount;
+    this.totalWeight = totalWeight;
+  }
+
+  /**
+   * u() returns the first endpoint of tree edge i.
+   */
+
+  public Object u(int i) {
+    return vertices[us[i]];
+  }
+
+  /**
+   * v() returns the second endpoint of tree edge i.
+   */
+
+  public Object v(int i) {
+    return vertices[vs[i]];
+  }
+
+  /**
+   * isSpanning() returns true if the tree connects every vertex, false if
+   * the graph was disconnected and this is a forest.
+   */
+
+  public boolean isSpanning() {
+    return edgeCount == vertices.length - 1 || vertices.length == 0;
+  }
+
+  /**
+   * toWUGraph() returns a new WUGraph holding every vertex and tree edge.
+   *
+   * Running time:  O(|V| + edgeCount).
+   */
+
+  public WUGraph toWUGraph() {
+    WUGraph tree = new WUGraph(vertices.length, edgeCount);
+    tree.addVertices(vertices);
+    for (int i = 0; i < edgeCount; i++) {
+      tree.addEdge(vertices[us[i]], vertices[vs[i]], weights[i]);
+    }
+    return tree;
+  }
+}
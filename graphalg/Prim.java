@@ -0,0 +1,187 @@
+/* Prim.java */
+
+package graphalg;
+
+import dict.Entry;
+import dict.HashTableChained;
+import graph.*;
+
+/**
+ * The Prim class computes minimum spanning trees with Prim's algorithm:  it
+ * grows one tree from a start vertex, always adding the lightest edge from
+ * the tree to a vertex outside it.  Vertices outside the tree wait in an
+ * IndexedDaryHeap keyed by the lightest edge that reaches them, which is
+ * lowered in place as the tree grows.
+ *
+ * Unlike Kruskal, Prim never collects or sorts the edges; it looks at each
+ * edge once, from each end, as the tree reaches it.  On a dense graph, with
+ * |E| close to |V|^2, that saves the whole edge list and its sort.  If the
+ * graph is disconnected, a new tree is started in each component, and the
+ * result is a minimum spanning forest.
+ */
+
+public class Prim {
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the graph g.  The original graph g is NOT changed.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @return A newly constructed WUGraph representing the MST of g.
+   */
+
+  public static WUGraph minSpanTree(GraphView g) {
+    return minSpanEdges(g).toWUGraph();
+  }
+
+  /**
+   * minSpanEdges() returns the edges of the minimum spanning tree of the
+   * graph g, in the order Prim adds them.  The original graph g is NOT
+   * changed.  A CSRGraph is walked through its id arrays directly; any
+   * other graph is walked with forEachNeighbor().
+   *
+   * Running time:  O(|E| log |V| / log D + |V| D log |V| / log D), for the
+   * heap arity D.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @return The tree edges of g.
+   */
+
+  public static MSTResult minSpanEdges(GraphView g) {
+    Object[] realVerts = g.getVertices();
+    int n = realVerts.length;
+
+    Tree tree = new Tree(n);
+    if (g instanceof CSRGraph) {
+      CSRGraph csr = (CSRGraph) g;
+      for (int start = 0; start < n; start++) {
+        if (tree.reached[start]) {
+          continue;
+        }
+        tree.start(start);
+        while (!tree.heap.isEmpty()) {
+          int u = tree.next();
+          for (int slot = csr.offset(u); slot < csr.offset(u + 1); slot++) {
+            tree.offer(u, csr.target(slot), csr.targetWeight(slot));
+          }
+        }
+      }
+    } else {
+      //hashtable to map back and forth from realVerts list : uniqueInt <-> vert
+      HashTableChained vertexHashTable = new HashTableChained(n);
+      for (int i = 0; i < n; i++) {
+        vertexHashTable.insert(realVerts[i], i);
+      }
+
+      // one visitor reused for every vertex, so scanning adjacency allocates nothing
+      Relaxer relaxer = new Relaxer(vertexHashTable, tree);
+      for (int start = 0; start < n; start++) {
+        if (tree.reached[start]) {
+          continue;
+        }
+        tree.start(start);
+        while (!tree.heap.isEmpty()) {
+          relaxer.source = tree.next();
+          g.forEachNeighbor(realVerts[relaxer.source], relaxer);
+        }
+      }
+    }
+
+    return new MSTResult(realVerts, tree.us, tree.vs, tree.weights, tree.treeEdges,
+                         tree.totalWeight);
+  }
+
+  /**
+   * A Tree holds the state of Prim's algorithm over vertex ids 0 ... n-1.
+   */
+
+  private static class Tree {
+    private final IndexedDaryHeap heap;
+    //reached[v] is true once v is in the heap or the tree.
+    private final boolean[] reached;
+    //inTree[v] is true once v has left the heap.
+    private final boolean[] inTree;
+    //parent[v] is the tree end of the lightest edge known to reach v.
+    private final int[] parent;
+
+    private final int[] us;
+    private final int[] vs;
+    private final int[] weights;
+    private int treeEdges;
+    private long totalWeight;
+
+    private Tree(int n) {
+      heap = new IndexedDaryHeap(n);
+      reached = new boolean[n];
+      inTree = new boolean[n];
+      parent = new int[n];
+      int treeSize = Math.max(n - 1, 0);
+      us = new int[treeSize];
+      vs = new int[treeSize];
+      weights = new int[treeSize];
+    }
+
+    /**
+     * start() begins a new tree at vertex "root".
+     */
+
+    private void start(int root) {
+      reached[root] = true;
+      parent[root] = -1;
+      heap.insert(root, 0);
+    }
+
+    /**
+     * next() moves the closest vertex into the tree, records the edge that
+     * reached it, and returns it.
+     */
+
+    private int next() {
+      int v = heap.removeMin();
+      inTree[v] = true;
+      if (parent[v] >= 0) {
+        us[treeEdges] = parent[v];
+        vs[treeEdges] = v;
+        weights[treeEdges] = heap.priority(v);
+        totalWeight += weights[treeEdges];
+        treeEdges++;
+      }
+      return v;
+    }
+
+    /**
+     * offer() tells the heap about the edge (u, v) from the tree vertex u.
+     */
+
+    private void offer(int u, int v, int weight) {
+      if (!reached[v]) {
+        reached[v] = true;
+        parent[v] = u;
+        heap.insert(v, weight);
+      } else if (!inTree[v] && weight < heap.priority(v)) {
+        parent[v] = u;
+        heap.decreaseKey(v, weight);
+      }
+    }
+  }
+
+  /**
+   * Relaxer offers each neighbor of "source" to the tree, by id.
+   */
+
+  private static class Relaxer implements NeighborVisitor {
+    private final HashTableChained vertexHashTable;
+    private final Tree tree;
+    private int source;
+
+    private Relaxer(HashTableChained vertexHashTable, Tree tree) {
+      this.vertexHashTable = vertexHashTable;
+      this.tree = tree;
+    }
+
+    public void visit(Object neighbor, int weight) {
+      Entry entry = vertexHashTable.find(neighbor);
+      tree.offer(source, (int) entry.value(), weight);
+    }
+  }
+}
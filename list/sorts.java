@@ -4,10 +4,12 @@ package list;
 /* ListSorts.java */
 
 import list.*;
+import java.util.Arrays;
 
 public class sorts {
 
   private final static int SORTSIZE = 1000000;
+  private final static int RADIX_CUTOFF = 256;
 
   /**
    *  makeQueueOfQueues() makes a queue of queues, each containing one item
@@ -153,6 +155,78 @@ public class sorts {
 	  q.append(Large);
   }
 
+  /**
+   *  radixSortHigh() sorts a[from...to-1] by the high 32 bits of each long,
+   *  read as a signed int, using a stable least-significant-digit radix sort
+   *  over four 8-bit digits.  Keys with equal high halves keep their order,
+   *  so if each key packs an int weight above an index, and the indices
+   *  already increase, the result is fully sorted.  Digits that are the
+   *  same in every key are skipped, so small weight ranges take one pass.
+   *  Short ranges are handed to Arrays.sort(), which also sorts fully.
+   *
+   *  Running time:  O(n), where n = to - from.
+   *
+   *  @param a is the array to sort.
+   *  @param from is the first index to sort.
+   *  @param to is one past the last index to sort.
+   **/
+  public static void radixSortHigh(long[] a, int from, int to) {
+    int n = to - from;
+    if (n < RADIX_CUTOFF) {
+      Arrays.sort(a, from, to);
+      return;
+    }
+
+    // One histogram per digit, all counted in a single pass.  Flipping the
+    // sign bit makes negative weights sort below positive ones.
+    int[][] counts = new int[4][256];
+    for (int i = from; i < to; i++) {
+      int key = (int) (a[i] >>> 32) ^ 0x80000000;
+      counts[0][key & 0xff]++;
+      counts[1][(key >>> 8) & 0xff]++;
+      counts[2][(key >>> 16) & 0xff]++;
+      counts[3][key >>> 24]++;
+    }
+
+    long[] src = a;
+    long[] dst = new long[n];
+    int srcFrom = from;
+    int dstFrom = 0;
+    for (int digit = 0; digit < 4; digit++) {
+      int[] count = counts[digit];
+      int shift = 32 + digit * 8;
+      if (count[(int) ((src[srcFrom] >>> shift) & 0xff) ^ (digit == 3 ? 0x80 : 0)] == n) {
+        continue;
+      }
+
+      // Turn counts into starting positions.
+      int position = dstFrom;
+      for (int d = 0; d < 256; d++) {
+        int c = count[d];
+        count[d] = position;
+        position += c;
+      }
+      for (int i = srcFrom; i < srcFrom + n; i++) {
+        int d = (int) ((src[i] >>> shift) & 0xff);
+        if (digit == 3) {
+          d ^= 0x80;
+        }
+        dst[count[d]++] = src[i];
+      }
+
+      long[] t = src;
+      src = dst;
+      dst = t;
+      int f = srcFrom;
+      srcFrom = dstFrom;
+      dstFrom = f;
+    }
+
+    if (src != a) {
+      System.arraycopy(src, srcFrom, a, from, n);
+    }
+  }
+
   /**
    *  makeRandom() builds a LinkedQueue of the indicated size containing
    *  Integer items.  The items are randomly chosen between 0 and size - 1.
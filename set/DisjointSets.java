@@ -53,12 +53,10 @@ public class DisjointSets {
     // }
     if (array[root2] < array[root1]) {                 // root2 has larger tree
       array[root2] += array[root1];        // update # of items in root2's tree
-      System.out.println(" new root of " + root1+ " is" + root2);
       array[root1] = root2;                              // make root2 new root
       return true;
     } else {                                  // root1 has equal or larger tree
       array[root1] += array[root2];        // update # of items in root1's tree
-      System.out.println(" new root of " + root2+ " is" + root1);
       array[root2] = root1;                              // make root1 new root
       return true;
     }
@@ -87,6 +85,22 @@ public class DisjointSets {
     }
   }
 
+  /**
+   *  root() finds the (int) name of the set containing a given element, like
+   *  find(), but without path compression.  Since it changes nothing, any
+   *  number of threads may call root() at once, as long as no thread calls
+   *  find() or union() meanwhile.
+   *
+   *  @param x the element sought.
+   *  @return the set containing x.
+   **/
+  public int root(int x) {
+    while (array[x] >= 0) {
+      x = array[x];
+    }
+    return x;
+  }
+
   /**
    *  main() is test code.  All the find()s on the same output line should be
    *  identical.